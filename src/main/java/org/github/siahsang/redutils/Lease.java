@@ -0,0 +1,40 @@
+package org.github.siahsang.redutils;
+
+import org.github.siahsang.redutils.exception.RefreshLockException;
+
+/**
+ * A held lock. It is refreshed in the background until it is closed and closing it releases the lock.
+ * <pre>
+ * try (Lease lease = redUtilsLock.lock("lock1")) {
+ *     // protected code, runs on the calling thread
+ * }
+ * </pre>
+ * If refreshing the lock fails, the lock may be taken by another client. The lease is then invalid and the thread that
+ * holds it is interrupted, long running code should check {@link #checkValid()} before changes that need the lock.
+ * <p>
+ * A lease should be closed by the thread that acquired it. Leases are not reentrant, a thread that already holds the
+ * lease of a lock can not lease it again until it is closed. Leases of different locks can be nested.
+ *
+ * @author Javad Alimohammadi
+ */
+public interface Lease extends AutoCloseable {
+
+    String getLockName();
+
+    /**
+     * @return true if the lock is still held, false after it is closed or refreshing it failed
+     */
+    boolean isValid();
+
+    /**
+     * @throws RefreshLockException  if refreshing the lock failed
+     * @throws IllegalStateException if the lease is closed
+     */
+    void checkValid();
+
+    /**
+     * Release the lock, closing it again does nothing
+     */
+    @Override
+    void close();
+}
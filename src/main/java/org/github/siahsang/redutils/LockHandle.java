@@ -0,0 +1,51 @@
+package org.github.siahsang.redutils;
+
+import org.github.siahsang.redutils.common.OperationCallBack;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * A lock that is prepared by {@link RedUtilsLock#handle(String)}
+ *
+ * @author Javad Alimohammadi
+ */
+public interface LockHandle {
+
+    String getLockName();
+
+    /**
+     * Same as {@link RedUtilsLock#tryAcquire(String, OperationCallBack)} for this lock
+     */
+    boolean tryAcquire(OperationCallBack operationCallBack);
+
+    /**
+     * Same as {@link RedUtilsLock#acquire(String, OperationCallBack)} for this lock
+     */
+    void acquire(OperationCallBack operationCallBack);
+
+    /**
+     * Same as {@link RedUtilsLock#acquire(String, Duration, OperationCallBack)} for this lock
+     */
+    boolean acquire(Duration maxWait, OperationCallBack operationCallBack);
+
+    /**
+     * Same as {@link RedUtilsLock#tryAcquireAsync(String, OperationCallBack)} for this lock
+     */
+    CompletableFuture<Boolean> tryAcquireAsync(OperationCallBack operationCallBack);
+
+    /**
+     * Same as {@link RedUtilsLock#acquireAsync(String, OperationCallBack)} for this lock
+     */
+    CompletableFuture<Void> acquireAsync(OperationCallBack operationCallBack);
+
+    /**
+     * Same as {@link RedUtilsLock#tryLock(String)} for this lock
+     */
+    Lease tryLock();
+
+    /**
+     * Same as {@link RedUtilsLock#lock(String)} for this lock
+     */
+    Lease lock();
+}
@@ -2,6 +2,9 @@ package org.github.siahsang.redutils;
 
 import org.github.siahsang.redutils.common.OperationCallBack;
 
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+
 /**
  * @author Javad Alimohammadi
  */
@@ -22,4 +25,106 @@ public interface RedUtilsLock {
      * @param operationCallBack Operation that should be executed after acquiring lock successfully
      */
     void acquire(String lockName, OperationCallBack operationCallBack);
+
+    /**
+     * Same as {@link #acquire(String, OperationCallBack)} but does not wait more than maxWait for getting the lock. The
+     * remaining time also bounds the reply of each Redis command, so a slow server does not keep the caller either.
+     *
+     * @param lockName          Name of the lock
+     * @param maxWait           Maximum time of getting the lock, the operation itself is not limited
+     * @param operationCallBack Operation that should be executed after acquiring lock successfully
+     * @return True if the operation is executed, false if the lock is not acquired in time
+     */
+    boolean acquire(String lockName, Duration maxWait, OperationCallBack operationCallBack);
+
+    /**
+     * Same as {@link #tryAcquire(String, OperationCallBack)} without blocking the calling thread. The lock is not owned
+     * by the calling thread, so it is not reentrant with the locks of the thread.
+     *
+     * @param lockName          Name of the lock
+     * @param operationCallBack Operation that should be executed after acquiring lock successfully
+     * @return completed with true after the operation is executed, or with false if the lock is held by someone else
+     */
+    CompletableFuture<Boolean> tryAcquireAsync(String lockName, OperationCallBack operationCallBack);
+
+    /**
+     * Same as {@link #acquire(String, OperationCallBack)} without holding any thread while waiting for the lock. The
+     * lock is not owned by the calling thread, so it is not reentrant with the locks of the thread. Cancelling the
+     * future does not stop the request.
+     *
+     * @param lockName          Name of the lock
+     * @param operationCallBack Operation that should be executed after acquiring lock successfully
+     * @return completed after the operation is executed and the lock is released
+     */
+    CompletableFuture<Void> acquireAsync(String lockName, OperationCallBack operationCallBack);
+
+    /**
+     * Get the lock if it is free. The protected code runs on the calling thread and the lock is released when the
+     * lease is closed, so it should be used with try-with-resources.
+     *
+     * @param lockName Name of the lock
+     * @return lease of the lock, or null if the lock is held by someone else, including a lease of the calling thread
+     */
+    Lease tryLock(String lockName);
+
+    /**
+     * Same as {@link #tryLock(String)} but waits for getting the lock if necessary
+     *
+     * @param lockName Name of the lock
+     * @return lease of the lock
+     * @throws IllegalStateException if the calling thread already holds a lease of the lock
+     */
+    Lease lock(String lockName);
+
+    /**
+     * Prepare a reusable handle for a lock that is used many times, so the work that only depends on the lock name is
+     * done once instead of on every call
+     *
+     * @param lockName Name of the lock
+     * @return handle that can be shared between threads
+     */
+    default LockHandle handle(String lockName) {
+        final RedUtilsLock redUtilsLock = this;
+        return new LockHandle() {
+            @Override
+            public String getLockName() {
+                return lockName;
+            }
+
+            @Override
+            public boolean tryAcquire(OperationCallBack operationCallBack) {
+                return redUtilsLock.tryAcquire(lockName, operationCallBack);
+            }
+
+            @Override
+            public void acquire(OperationCallBack operationCallBack) {
+                redUtilsLock.acquire(lockName, operationCallBack);
+            }
+
+            @Override
+            public boolean acquire(Duration maxWait, OperationCallBack operationCallBack) {
+                return redUtilsLock.acquire(lockName, maxWait, operationCallBack);
+            }
+
+            @Override
+            public CompletableFuture<Boolean> tryAcquireAsync(OperationCallBack operationCallBack) {
+                return redUtilsLock.tryAcquireAsync(lockName, operationCallBack);
+            }
+
+            @Override
+            public CompletableFuture<Void> acquireAsync(OperationCallBack operationCallBack) {
+                return redUtilsLock.acquireAsync(lockName, operationCallBack);
+            }
+
+            @Override
+            public Lease tryLock() {
+                return redUtilsLock.tryLock(lockName);
+            }
+
+            @Override
+            public Lease lock() {
+                return redUtilsLock.lock(lockName);
+            }
+        };
+    }
 }
@@ -1,24 +1,54 @@
 package org.github.siahsang.redutils;
 
+import org.github.siahsang.redutils.common.Bulkhead;
+import org.github.siahsang.redutils.common.CallbackGroup;
+import org.github.siahsang.redutils.common.CircuitBreaker;
+import org.github.siahsang.redutils.common.CommandExecutionMode;
+import org.github.siahsang.redutils.common.Deadline;
 import org.github.siahsang.redutils.common.OperationCallBack;
+import org.github.siahsang.redutils.common.OwnerToken;
 import org.github.siahsang.redutils.common.RedUtilsConfig;
+import org.github.siahsang.redutils.common.ThreadFactories;
 import org.github.siahsang.redutils.common.ThreadManager;
+import org.github.siahsang.redutils.common.connection.AdmissionQueue;
 import org.github.siahsang.redutils.common.connection.JedisConnectionManager;
+import org.github.siahsang.redutils.common.connection.NioConnectionManager;
+import org.github.siahsang.redutils.common.redis.AutoPipeliningCommandExecutor;
+import org.github.siahsang.redutils.common.redis.DirectCommandExecutor;
 import org.github.siahsang.redutils.common.redis.LuaScript;
+import org.github.siahsang.redutils.common.redis.NioCommandExecutor;
+import org.github.siahsang.redutils.common.redis.RedisCommandExecutor;
 import org.github.siahsang.redutils.common.redis.RedisResponse;
+import org.github.siahsang.redutils.common.redis.RedisScript;
+import org.github.siahsang.redutils.exception.BulkheadFullException;
+import org.github.siahsang.redutils.exception.DeadlineExceededException;
 import org.github.siahsang.redutils.exception.InsufficientResourceException;
+import org.github.siahsang.redutils.exception.RefreshLockException;
+import org.github.siahsang.redutils.lock.ChannelLingerCache;
+import org.github.siahsang.redutils.lock.ChannelListener;
 import org.github.siahsang.redutils.lock.JedisLockChannel;
 import org.github.siahsang.redutils.lock.JedisLockRefresher;
-import org.github.siahsang.redutils.lock.LockChannel;
+import org.github.siahsang.redutils.lock.KeyspaceNotification;
 import org.github.siahsang.redutils.lock.LockRefresher;
+import org.github.siahsang.redutils.lock.SessionLockRefresher;
+import org.github.siahsang.redutils.lock.WaitStrategy;
 import org.github.siahsang.redutils.replica.JedisReplicaManager;
 import org.github.siahsang.redutils.replica.ReplicaManager;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
 import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * @author Javad Alimohammadi
@@ -26,16 +56,65 @@ import java.util.concurrent.Executors;
 public class RedUtilsLockImpl implements RedUtilsLock {
     private static final Logger log = LoggerFactory.getLogger(RedUtilsLockImpl.class);
 
-    private final ExecutorService operationExecutorService = Executors.newCachedThreadPool();
+    private static final String SESSION_KEY_PREFIX = "red_utils_session:";
 
-    private final LockChannel lockChannel;
+    private static final byte[] STARTABLE_BYTES = {'1'};
+
+    private static final byte[] NOT_STARTABLE_BYTES = {'0'};
+
+    private static final long LOCK_ACQUIRED = 0;
+
+    // waiting time of a parked thread that could not get a connection for trying again
+    private static final long RESERVE_RETRY_MILLIS = 50;
+
+    // asynchronous requests subscribe to channels with negative ids, so they do not clash with thread ids
+    private static final AtomicLong ASYNC_SUBSCRIBER_IDS = new AtomicLong();
+
+    // runs the internal tasks, and the callbacks if no other executor is configured
+    private final ExecutorService operationExecutorService = ThreadFactories.newTaskExecutor();
+
+    private final List<CallbackRoute> callbackRoutes = new ArrayList<>();
+
+    // route of the locks that do not belong to any callback group
+    private final CallbackRoute defaultCallbackRoute;
+
+    private final JedisLockChannel lockChannel;
 
     private final ReplicaManager replicaManager;
 
+    private final WaitStrategy waitStrategy;
+
+    // names of the locks that are leased by the thread
+    private final ThreadLocal<Set<String>> leasedLockNames = ThreadLocal.withInitial(HashSet::new);
+
     private final RedUtilsConfig redUtilsConfig;
 
     private final JedisConnectionManager connectionManager;
 
+    private final RedisCommandExecutor commandExecutor;
+
+    private final LockRefresher lockRefresher;
+
+    private final String sessionKey;
+
+    private final byte[] sessionKeyBytes;
+
+    // null if session lease is disabled
+    private final SessionLockRefresher sessionLockRefresher;
+
+    private final byte[] lockKeyLeaseBytes;
+
+    // encoded arguments that are the same for all commands
+    private final byte[] leaseTimeBytes;
+
+    private final byte[] unlockedMessageBytes;
+
+    // null if the circuit breaker is disabled
+    private final CircuitBreaker circuitBreaker;
+
+    // null if callers should not wait for a connection
+    private final AdmissionQueue admissionQueue;
+
     /**
      * Start with default Redis configuration, host:127.0.0.1 and port:6379
      */
@@ -71,82 +150,239 @@ public class RedUtilsLockImpl implements RedUtilsLock {
     public RedUtilsLockImpl(RedUtilsConfig redUtilsConfig) {
         this.redUtilsConfig = redUtilsConfig;
         this.connectionManager = new JedisConnectionManager(redUtilsConfig);
-        this.lockChannel = new JedisLockChannel(connectionManager, redUtilsConfig.getUnlockedMessagePattern());
+        this.commandExecutor = makeCommandExecutor(redUtilsConfig, connectionManager);
+        this.lockChannel = new JedisLockChannel(connectionManager, redUtilsConfig.getUnlockedMessagePattern(),
+                redUtilsConfig.getReadTimeOutMillis(),
+                new ChannelLingerCache(redUtilsConfig.getChannelLingerMillis(), redUtilsConfig.getChannelLingerMaxSize()),
+                redUtilsConfig.getWakePolicy(), redUtilsConfig.getUnlockNotificationMode(), operationExecutorService);
         this.replicaManager = new JedisReplicaManager(connectionManager, redUtilsConfig.getReplicaCount(),
                 redUtilsConfig.getRetryCountForSyncingWithReplicas(), redUtilsConfig.getWaitingTimeForReplicasMillis());
+        this.waitStrategy = redUtilsConfig.getWaitStrategy();
+        if (redUtilsConfig.isSessionLeaseEnabled()) {
+            this.sessionKey = SESSION_KEY_PREFIX + UUID.randomUUID();
+            this.sessionKeyBytes = sessionKey.getBytes(StandardCharsets.UTF_8);
+            this.sessionLockRefresher = new SessionLockRefresher(redUtilsConfig, sessionKey, replicaManager, connectionManager,
+                    operationExecutorService);
+            this.lockRefresher = sessionLockRefresher;
+            this.lockKeyLeaseBytes = String.valueOf(sessionLockRefresher.getLockKeyLeaseMillis()).getBytes(StandardCharsets.US_ASCII);
+        } else {
+            this.sessionKey = null;
+            this.sessionKeyBytes = null;
+            this.sessionLockRefresher = null;
+            this.lockRefresher = new JedisLockRefresher(redUtilsConfig, replicaManager, connectionManager,
+                    operationExecutorService);
+            this.lockKeyLeaseBytes = null;
+        }
+
+        this.leaseTimeBytes = String.valueOf(redUtilsConfig.getLeaseTimeMillis()).getBytes(StandardCharsets.US_ASCII);
+        // with an empty message the release scripts do not publish anything
+        this.unlockedMessageBytes = redUtilsConfig.getUnlockNotificationMode().isPublishEnabled()
+                ? redUtilsConfig.getUnlockedMessagePattern().getBytes(StandardCharsets.UTF_8) : new byte[0];
+
+        if (redUtilsConfig.isCircuitBreakerEnabled()) {
+            this.circuitBreaker = new CircuitBreaker(redUtilsConfig.getCircuitBreakerFailureRateThreshold(),
+                    redUtilsConfig.getCircuitBreakerMinimumCalls(), redUtilsConfig.getCircuitBreakerProbeIntervalMillis(),
+                    this::ping, operationExecutorService);
+        } else {
+            this.circuitBreaker = null;
+        }
+
+        if (redUtilsConfig.isAdmissionQueueEnabled()) {
+            this.admissionQueue = new AdmissionQueue(redUtilsConfig.getAdmissionQueueMaxLength(),
+                    redUtilsConfig.getAdmissionQueueMaxWaitMillis(), redUtilsConfig.getLoadSheddingPolicy());
+        } else {
+            this.admissionQueue = null;
+        }
+
+        final Executor callbackExecutor = redUtilsConfig.getOperationExecutor() != null
+                ? redUtilsConfig.getOperationExecutor() : operationExecutorService;
+        this.defaultCallbackRoute = new CallbackRoute(null, callbackExecutor);
+        for (CallbackGroup callbackGroup : redUtilsConfig.getCallbackGroups()) {
+            callbackRoutes.add(new CallbackRoute(callbackGroup, callbackGroup.getExecutor() != null
+                    ? callbackGroup.getExecutor() : callbackExecutor));
+        }
+
+        if (redUtilsConfig.getUnlockNotificationMode().isKeyspaceEnabled()) {
+            checkKeyspaceNotifications();
+        }
+
+        if (redUtilsConfig.isWarmUpEnabled()) {
+            warmUp();
+        }
 
     }
 
     @Override
     public boolean tryAcquire(final String lockName, final OperationCallBack operationCallBack) {
+        return tryAcquire(lockName, lockName.getBytes(StandardCharsets.UTF_8), route(lockName), operationCallBack);
+    }
 
-        if (!connectionManager.reserveOne()) {
-            throw new InsufficientResourceException("There is`t any available connection, please try again or change connection configs");
-        }
+    @Override
+    public void acquire(final String lockName, final OperationCallBack operationCallBack) {
+        acquire(lockName, lockName.getBytes(StandardCharsets.UTF_8), route(lockName), Deadline.NONE, operationCallBack);
+    }
 
-        boolean getLockSuccessfully = getLock(lockName, redUtilsConfig.getLeaseTimeMillis());
-        LockRefresher lockRefresher = null;
-        if (getLockSuccessfully) {
-            try {
-                lockRefresher = new JedisLockRefresher(redUtilsConfig, replicaManager, connectionManager);
-                CompletableFuture<Void> lockRefresherFuture = lockRefresher.start(lockName);
-                CompletableFuture<Void> mainOperationFuture = CompletableFuture.runAsync(operationCallBack::doOperation,
-                        operationExecutorService);
+    @Override
+    public boolean acquire(final String lockName, final Duration maxWait, final OperationCallBack operationCallBack) {
+        return acquire(lockName, lockName.getBytes(StandardCharsets.UTF_8), route(lockName), Deadline.after(maxWait),
+                operationCallBack);
+    }
 
-                lockRefresherFuture.exceptionally(throwable -> {
-                    mainOperationFuture.completeExceptionally(throwable);
-                    return null;
-                });
+    @Override
+    public Lease tryLock(final String lockName) {
+        return tryLock(lockName, lockName.getBytes(StandardCharsets.UTF_8));
+    }
 
-                mainOperationFuture.join();
+    @Override
+    public Lease lock(final String lockName) {
+        return lock(lockName, lockName.getBytes(StandardCharsets.UTF_8));
+    }
 
-            } finally {
-                lockRefresher.tryStop(lockName);
-                tryReleaseLock(lockName);
-                tryNotifyOtherClients(lockName);
-                connectionManager.free();
+    @Override
+    public CompletableFuture<Boolean> tryAcquireAsync(final String lockName, final OperationCallBack operationCallBack) {
+        return new AsyncLockRequest(lockName, lockName.getBytes(StandardCharsets.UTF_8), route(lockName),
+                operationCallBack, false).start();
+    }
+
+    @Override
+    public CompletableFuture<Void> acquireAsync(final String lockName, final OperationCallBack operationCallBack) {
+        return new AsyncLockRequest(lockName, lockName.getBytes(StandardCharsets.UTF_8), route(lockName),
+                operationCallBack, true).start().thenApply(acquired -> null);
+    }
+
+    /**
+     * The handle keeps the encoded lock name, so it is not encoded on every call
+     */
+    @Override
+    public LockHandle handle(final String lockName) {
+        return new PreparedLockHandle(lockName);
+    }
+
+    private boolean tryAcquire(final String lockName, final byte[] lockKey, final CallbackRoute route,
+                               final OperationCallBack operationCallBack) {
+        route.enter(lockName);
+        try {
+            final OwnerToken owner = ThreadManager.createToken();
+            if (!tryGetLockNow(owner, lockKey)) {
+                return false;
+            }
+
+            runWithLock(owner, lockName, lockKey, route.executor, operationCallBack);
+            return true;
+        } finally {
+            route.exit();
+        }
+    }
+
+    /**
+     * @return false if the lock is not acquired before the deadline
+     */
+    private boolean acquire(final String lockName, final byte[] lockKey, final CallbackRoute route,
+                            final Deadline deadline, final OperationCallBack operationCallBack) {
+        route.enter(lockName);
+        try {
+            final OwnerToken owner = ThreadManager.createToken();
+            if (!waitForLock(owner, lockName, lockKey, deadline)) {
+                return false;
             }
 
+            runWithLock(owner, lockName, lockKey, route.executor, operationCallBack);
             return true;
+        } finally {
+            route.exit();
+        }
+    }
+
+    private Lease tryLock(final String lockName, final byte[] lockKey) {
+        if (leasedLockNames.get().contains(lockName)) {
+            return null;
         }
 
-        return false;
+        // every lease has its own owner, so closing one lease does not release the lock or connection of another
+        final OwnerToken owner = ThreadManager.createDetachedToken();
+        return tryGetLockNow(owner, lockKey) ? new LockLease(owner, lockName, lockKey) : null;
     }
 
-    @Override
-    public void acquire(final String lockName, final OperationCallBack operationCallBack) {
-        if (!connectionManager.reserve(2)) {
+    private Lease lock(final String lockName, final byte[] lockKey) {
+        if (leasedLockNames.get().contains(lockName)) {
+            // it would wait for itself
+            throw new IllegalStateException(String.format("Lock '%s' is already leased by the calling thread, leases " +
+                    "are not reentrant", lockName));
+        }
+
+        final OwnerToken owner = ThreadManager.createDetachedToken();
+        waitForLock(owner, lockName, lockKey, Deadline.NONE);
+        return new LockLease(owner, lockName, lockKey);
+    }
+
+    /**
+     * @return true if the lock is acquired, then the connection of the owner stays reserved
+     */
+    private boolean tryGetLockNow(final OwnerToken owner, final byte[] lockKey) {
+        if (!admitConnection(owner, Deadline.NONE)) {
             throw new InsufficientResourceException("There is`t any available connection, please try again or change connection configs");
         }
 
-        boolean getLockSuccessfully = getLock(lockName, redUtilsConfig.getLeaseTimeMillis());
+        return getLockOrFree(owner, lockKey, Deadline.NONE) == LOCK_ACQUIRED;
+    }
+
+    /**
+     * Wait until the lock is acquired, then the connection of the owner stays reserved. The remaining time of the
+     * deadline bounds waiting for a connection, for the notifications and for the reply of each command. Between the
+     * attempts the thread waits as the configured {@link WaitStrategy} decides.
+     *
+     * @return false if the lock is not acquired before the deadline
+     */
+    private boolean waitForLock(final OwnerToken owner, final String lockName, final byte[] lockKey,
+                                final Deadline deadline) {
+        try {
+            if (!admitConnection(owner, deadline)) {
+                if (deadline.isExpired()) {
+                    return false;
+                }
+                throw new InsufficientResourceException("There is`t any available connection, please try again or change connection configs");
+            }
 
-        if (!getLockSuccessfully) {
+            long ttl = getLockOrFree(owner, lockKey, deadline);
+            if (ttl == LOCK_ACQUIRED) {
+                return true;
+            }
+
+            // the thread does not hold any connection while it is waiting
+            final WaitStrategy.Waiting waiting = waitStrategy.start(lockName, lockChannel);
             try {
-                lockChannel.subscribe(lockName);
-
-                while (!getLockSuccessfully) {
-                    final long ttl = getTTL(lockName);
-                    if (ttl > 0) {
-                        lockChannel.waitForNotification(lockName, ttl);
-                    } else {
-                        getLockSuccessfully = getLock(lockName, redUtilsConfig.getLeaseTimeMillis());
+                int attempt = 0;
+                while (ttl != LOCK_ACQUIRED) {
+                    final long remainingMillis = deadline.remainingMillis();
+                    if (remainingMillis <= 0) {
+                        return false;
                     }
+                    waiting.await(++attempt, ttl, remainingMillis);
+                    ttl = tryGetLock(owner, lockName, lockKey, deadline);
                 }
+                return true;
             } catch (InterruptedException ex) {
                 Thread.currentThread().interrupt();
                 throw new IllegalStateException("Interrupted");
             } finally {
-                lockChannel.unSubscribe(lockName);
+                waiting.finish(ttl == LOCK_ACQUIRED);
             }
+        } catch (DeadlineExceededException ex) {
+            log.trace("Deadline of getting lock [{}] passed", lockName, ex);
+            return false;
         }
+    }
 
-        // At this point we have the lock
-        LockRefresher lockRefresher = new JedisLockRefresher(redUtilsConfig, replicaManager, connectionManager);
+    /**
+     * Run the operation while the lock is refreshed, the operation fails if refreshing the lock fails. The lock is
+     * released afterwards.
+     */
+    private void runWithLock(final OwnerToken owner, final String lockName, final byte[] lockKey,
+                             final Executor callbackExecutor, final OperationCallBack operationCallBack) {
         try {
-            CompletableFuture<Void> lockRefresherStatus = lockRefresher.start(lockName);
+            CompletableFuture<Void> lockRefresherStatus = lockRefresher.start(lockName, owner.getName());
             CompletableFuture<Void> mainOperationFuture = CompletableFuture.runAsync(operationCallBack::doOperation,
-                    operationExecutorService);
+                    callbackExecutor);
 
             lockRefresherStatus.exceptionally(throwable -> {
                 mainOperationFuture.completeExceptionally(throwable);
@@ -155,63 +391,653 @@ public class RedUtilsLockImpl implements RedUtilsLock {
 
             mainOperationFuture.join();
         } finally {
-            lockRefresher.tryStop(lockName);
-            tryReleaseLock(lockName);
-            tryNotifyOtherClients(lockName);
-            connectionManager.free();
+            unlock(owner, lockName, lockKey);
         }
     }
 
+    /**
+     * Release the lock that is held by the owner and free its connection
+     */
+    private void unlock(final OwnerToken owner, final String lockName, final byte[] lockKey) {
+        lockRefresher.tryStop(lockName, owner.getName());
+        tryReleaseLock(owner, lockName, lockKey);
+        freeConnection(owner);
+    }
 
-    private boolean getLock(final String lockName, final long expirationTimeMillis) {
+    /**
+     * Reserve a connection only for this attempt, so waiting threads do not hold any connection
+     *
+     * @return {@link #LOCK_ACQUIRED} if the lock is acquired (and the connection stays reserved), otherwise the time to
+     * wait before trying again
+     */
+    private long tryGetLock(final OwnerToken owner, final String lockName, final byte[] lockKey,
+                            final Deadline deadline) {
+        if (!reserveConnection(owner)) {
+            log.trace("There is`t any available connection for getting lock [{}], trying again later", lockName);
+            return RESERVE_RETRY_MILLIS;
+        }
 
-        final String lockValue = ThreadManager.getName();
+        return getLockOrFree(owner, lockKey, deadline);
+    }
 
+    /**
+     * Same as {@link #getLock(OwnerToken, byte[], Deadline)} but the reserved connection is freed if the lock is not
+     * acquired
+     */
+    private long getLockOrFree(final OwnerToken owner, final byte[] lockKey, final Deadline deadline) {
         try {
-            Object response = connectionManager.doWithConnection(jedis -> {
-                return jedis.eval(LuaScript.GET_LOCK, 1, lockName, lockValue, String.valueOf(expirationTimeMillis));
-            });
-            if (RedisResponse.isFailed(response)) {
-                return false;
+            long ttl = getLock(owner, lockKey, deadline);
+            if (ttl != LOCK_ACQUIRED) {
+                freeConnection(owner);
             }
-            replicaManager.waitForResponse();
-            return true;
+            return ttl;
+        } catch (Exception exception) {
+            freeConnection(owner);
+            throw exception;
+        }
+    }
+
+    /**
+     * @param lockKey  encoded name of the lock
+     * @param deadline the lock is released if it is acquired but replicas do not respond before the deadline
+     * @return {@link #LOCK_ACQUIRED} if the lock is acquired, otherwise the remaining time of the current holder
+     */
+    private long getLock(final OwnerToken owner, final byte[] lockKey, final Deadline deadline) {
+
+        final byte[] lockValue = owner.getBytes();
+
+        try {
+            if (sessionKey != null) {
+                return getLockInSession(owner, lockKey, deadline);
+            }
+
+            final Object response = execute(owner, deadline, LuaScript.GET_LOCK, 1, lockKey, lockValue, leaseTimeBytes);
+            if (response instanceof Long) {
+                // a holder without expiration reports -1, so wait for a short time instead of spinning
+                return Math.max((Long) response, 1);
+            }
+            replicaManager.waitForResponse(owner.getName(), deadline.remainingMillis());
+            return LOCK_ACQUIRED;
         } catch (Exception exception) {
-            releaseLock(lockName);
+            try {
+                releaseLock(owner, lockKey);
+            } catch (Exception releaseException) {
+                // e.g. the connection is discarded after a time out, the lease of the lock expires instead
+                exception.addSuppressed(releaseException);
+            }
             throw exception;
         }
 
     }
 
-    private void releaseLock(String lockName) {
-        String lockValue = ThreadManager.getName();
-        connectionManager.doWithConnection(jedis -> {
-            return jedis.eval(LuaScript.RELEASE_LOCK, 1, lockName, lockValue);
-        });
+    /**
+     * Same as {@link #getLock(OwnerToken, byte[], Deadline)} in the current incarnation of the session
+     *
+     * @throws RefreshLockException if the session is expired, its locks are reported as lost and the next acquire
+     *                              starts a new incarnation
+     */
+    private long getLockInSession(final OwnerToken owner, final byte[] lockKey, final Deadline deadline) {
+        final SessionLockRefresher.Incarnation incarnation = sessionLockRefresher.getIncarnation();
+        final byte[] incarnationBytes = incarnation.getNumber().getBytes(StandardCharsets.US_ASCII);
+        final byte[] startableBytes = incarnation.isStartable() ? STARTABLE_BYTES : NOT_STARTABLE_BYTES;
+        Object response = execute(owner, deadline, LuaScript.GET_LOCK_IN_SESSION, 3, lockKey, sessionKeyBytes,
+                sessionKeyBytes, owner.getBytes(), leaseTimeBytes, lockKeyLeaseBytes, incarnationBytes, startableBytes);
+        final String holderSession = RedisResponse.getHolderSession(response);
+        if (holderSession != null) {
+            // the script only reads the session of the holder when it is declared as a key
+            response = execute(owner, deadline, LuaScript.GET_LOCK_IN_SESSION, 3, lockKey, sessionKeyBytes,
+                    holderSession.getBytes(StandardCharsets.UTF_8), owner.getBytes(), leaseTimeBytes, lockKeyLeaseBytes,
+                    incarnationBytes, startableBytes);
+            if (RedisResponse.getHolderSession(response) != null) {
+                // the lock has changed hands in the meantime
+                return RESERVE_RETRY_MILLIS;
+            }
+        }
 
+        if (response instanceof Long) {
+            return Math.max((Long) response, 1);
+        }
+
+        if (RedisResponse.isSessionExpired(response)) {
+            if (sessionLockRefresher.onExpired(incarnation)) {
+                throw new RefreshLockException(String.format("Session '%s' is expired", sessionKey), null);
+            }
+            // another caller already started a new incarnation
+            return RESERVE_RETRY_MILLIS;
+        }
+
+        replicaManager.waitForResponse(owner.getName(), deadline.remainingMillis());
+        final String lockValue = sessionKey + "|" + owner.getName() + "|" + incarnation.getNumber();
+        if (!sessionLockRefresher.register(new String(lockKey, StandardCharsets.UTF_8), incarnation, lockValue)) {
+            // the incarnation ended before the lock could be kept alive
+            releaseLock(owner, lockKey);
+            return RESERVE_RETRY_MILLIS;
+        }
+        return LOCK_ACQUIRED;
+    }
+
+    /**
+     * Release the lock and notify other clients that are waiting for it, with one round trip
+     */
+    private void releaseLock(final OwnerToken owner, final byte[] lockKey) {
+        final byte[] lockValue = owner.getBytes();
+        if (sessionKey != null) {
+            execute(owner, Deadline.NONE, LuaScript.RELEASE_LOCK_IN_SESSION, 2, lockKey, sessionKeyBytes, lockValue, unlockedMessageBytes);
+        } else {
+            execute(owner, Deadline.NONE, LuaScript.RELEASE_LOCK, 1, lockKey, lockValue, unlockedMessageBytes);
+        }
+
+    }
+
+    private static RedisCommandExecutor makeCommandExecutor(final RedUtilsConfig redUtilsConfig,
+                                                            final JedisConnectionManager connectionManager) {
+        final CommandExecutionMode executionMode = redUtilsConfig.getCommandExecutionMode();
+        if (executionMode != CommandExecutionMode.DIRECT && redUtilsConfig.getReplicaCount() > 0) {
+            throw new IllegalArgumentException(executionMode + " execution mode can not be used with replicas");
+        }
+
+        switch (executionMode) {
+            case AUTO_PIPELINING:
+                return new AutoPipeliningCommandExecutor(connectionManager, redUtilsConfig.getPipelineConnectionCount(),
+                        redUtilsConfig.getPipelineMaxBatchSize());
+            case NIO:
+                return new NioCommandExecutor(new NioConnectionManager(redUtilsConfig),
+                        redUtilsConfig.getReadTimeOutMillis());
+            default:
+                return new DirectCommandExecutor(connectionManager);
+        }
     }
 
-    private void tryReleaseLock(String lockName) {
+    private Object execute(final OwnerToken owner, final Deadline deadline, final RedisScript script, final int keyCount,
+                           final byte[]... params) {
         try {
-            releaseLock(lockName);
-        } catch (Exception ex) {
-            log.debug("Could not release lock [{}]", lockName, ex);
+            Object response = deadline.isNone()
+                    ? commandExecutor.evalAndWait(owner.getName(), script, keyCount, params)
+                    : commandExecutor.evalAndWait(owner.getName(), deadline.remainingMillis(), script, keyCount, params);
+            if (circuitBreaker != null) {
+                circuitBreaker.onSuccess();
+            }
+            return response;
+        } catch (RuntimeException ex) {
+            if (circuitBreaker != null) {
+                circuitBreaker.onFailure(ex);
+            }
+            throw ex;
+        }
+    }
+
+    /**
+     * Reserve a connection for the owner, if commands are sent with it. Pipelining executors share their connections,
+     * so nothing is reserved and only the circuit breaker is checked.
+     *
+     * @return false if there isn`t any available connection
+     */
+    private boolean reserveConnection(final OwnerToken owner) {
+        if (circuitBreaker != null) {
+            circuitBreaker.checkPermission();
+        }
+
+        if (commandExecutor.isReservationRequired()) {
+            try {
+                return connectionManager.reserve(owner.getName(), 1);
+            } catch (RuntimeException ex) {
+                // the pool could not connect
+                if (circuitBreaker != null) {
+                    circuitBreaker.onFailure(ex);
+                }
+                throw ex;
+            }
+        }
+
+        return true;
+    }
+
+    /**
+     * Same as {@link #reserveConnection(OwnerToken)} but waits in the admission queue, if it is enabled, while there
+     * isn`t any available connection, not past the deadline
+     */
+    private boolean admitConnection(final OwnerToken owner, final Deadline deadline) {
+        if (admissionQueue == null || !commandExecutor.isReservationRequired()) {
+            return reserveConnection(owner);
+        }
+
+        try {
+            return admissionQueue.admit(() -> reserveConnection(owner), deadline.remainingMillis());
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted");
+        }
+    }
+
+    private void freeConnection(final OwnerToken owner) {
+        if (commandExecutor.isReservationRequired()) {
+            connectionManager.free(owner.getName());
+            if (admissionQueue != null) {
+                admissionQueue.onCapacityReleased();
+            }
         }
     }
 
-    private long getTTL(final String lockName) {
-        return connectionManager.doWithConnection(jedis -> jedis.pttl(lockName));
+    private void checkKeyspaceNotifications() {
+        final String resourceId = "red-utils-check:" + UUID.randomUUID();
+        if (!connectionManager.reserve(resourceId, 1)) {
+            throw new InsufficientResourceException("There is`t any available connection, please try again or change connection configs");
+        }
+
+        try {
+            connectionManager.doWithConnection(resourceId, jedis -> {
+                KeyspaceNotification.check(jedis);
+                return null;
+            });
+        } finally {
+            connectionManager.free(resourceId);
+        }
     }
 
+    /**
+     * Open idle connections, load the scripts and make sure the server and replicas are reachable
+     */
+    private void warmUp() {
+        final long startTime = System.currentTimeMillis();
+        connectionManager.prefill(redUtilsConfig.getMinIdleConnections());
+
+        final String resourceId = "red-utils-warm-up:" + UUID.randomUUID();
+        if (!connectionManager.reserve(resourceId, 1)) {
+            throw new InsufficientResourceException("There is`t any available connection, please try again or change connection configs");
+        }
 
-    public void tryNotifyOtherClients(final String lockName) {
         try {
-            connectionManager.doWithConnection(jedis -> {
-                return jedis.publish(lockName, redUtilsConfig.getUnlockedMessagePattern());
+            connectionManager.doWithConnection(resourceId, jedis -> {
+                jedis.ping();
+                LuaScript.ALL_SCRIPTS.forEach(script -> script.load(jedis));
+                return null;
             });
-        } catch (Exception exception) {
-            // nothing
-            log.debug("Error in notify [{}] to other clients", lockName, exception);
+            replicaManager.waitForResponse(resourceId);
+        } finally {
+            connectionManager.free(resourceId);
+        }
+
+        log.debug("Warmed up in [{}] millis", System.currentTimeMillis() - startTime);
+    }
+
+    /**
+     * Probe of the circuit breaker
+     */
+    private void ping() {
+        final String resourceId = "red-utils-probe:" + UUID.randomUUID();
+        if (!connectionManager.reserve(resourceId, 1)) {
+            throw new InsufficientResourceException("There is`t any available connection for checking Redis");
+        }
+
+        try {
+            connectionManager.doWithConnection(resourceId, jedis -> jedis.ping());
+        } finally {
+            connectionManager.free(resourceId);
+        }
+    }
+
+    private void tryReleaseLock(final OwnerToken owner, final String lockName, final byte[] lockKey) {
+        try {
+            releaseLock(owner, lockKey);
+        } catch (Exception ex) {
+            log.debug("Could not release lock [{}]", lockName, ex);
+        }
+    }
+
+    /**
+     * @return statistics of channels that are kept subscribed after their last waiter left
+     */
+    public ChannelLingerCache getChannelLingerCache() {
+        return lockChannel.getLingerCache();
+    }
+
+    /**
+     * @return statistics of callers that waited for a connection, or null if the admission queue is disabled
+     */
+    public AdmissionQueue getAdmissionQueue() {
+        return admissionQueue;
+    }
+
+    /**
+     * @return state of the circuit breaker, or null if it is disabled
+     */
+    public CircuitBreaker.State getCircuitBreakerState() {
+        return circuitBreaker == null ? null : circuitBreaker.getState();
+    }
+
+    /**
+     * @return statistics of the callback group of the lock, or null if its callbacks are not limited
+     */
+    public Bulkhead getBulkhead(final String lockName) {
+        return route(lockName).bulkhead;
+    }
+
+    /**
+     * Stop the threads and close the connections of the client. Executors that are given by the configuration are
+     * not shut down. Locks that are still held are not refreshed anymore.
+     */
+    public void shutdown() {
+        lockRefresher.shutdown();
+        lockChannel.shutdown();
+        operationExecutorService.shutdown();
+        commandExecutor.shutdown();
+        connectionManager.shutdown();
+    }
+
+    private CallbackRoute route(final String lockName) {
+        for (CallbackRoute callbackRoute : callbackRoutes) {
+            if (callbackRoute.callbackGroup.matches(lockName)) {
+                return callbackRoute;
+            }
+        }
+        return defaultCallbackRoute;
+    }
+
+    /**
+     * Executor and bulkhead of the callbacks of a {@link CallbackGroup}
+     */
+    private static final class CallbackRoute {
+        private final CallbackGroup callbackGroup;
+
+        private final Executor executor;
+
+        // null if the callbacks are not limited
+        private final Bulkhead bulkhead;
+
+        private CallbackRoute(CallbackGroup callbackGroup, Executor executor) {
+            this.callbackGroup = callbackGroup;
+            this.executor = executor;
+            this.bulkhead = callbackGroup == null || callbackGroup.getMaxConcurrentCallbacks() == CallbackGroup.UNLIMITED
+                    ? null : new Bulkhead(callbackGroup.getLockNamePattern(), callbackGroup.getMaxConcurrentCallbacks());
+        }
+
+        private void enter(final String lockName) {
+            if (bulkhead != null && !bulkhead.tryEnter()) {
+                throw new BulkheadFullException(String.format("Callbacks of lock '%s' reached the limit of group '%s'",
+                        lockName, bulkhead.getName()));
+            }
+        }
+
+        private void exit() {
+            if (bulkhead != null) {
+                bulkhead.exit();
+            }
+        }
+    }
+
+    private final class PreparedLockHandle implements LockHandle {
+        private final String lockName;
+
+        private final byte[] lockKey;
+
+        private final CallbackRoute route;
+
+        private PreparedLockHandle(String lockName) {
+            this.lockName = lockName;
+            this.lockKey = lockName.getBytes(StandardCharsets.UTF_8);
+            this.route = route(lockName);
+        }
+
+        @Override
+        public String getLockName() {
+            return lockName;
+        }
+
+        @Override
+        public boolean tryAcquire(final OperationCallBack operationCallBack) {
+            return RedUtilsLockImpl.this.tryAcquire(lockName, lockKey, route, operationCallBack);
+        }
+
+        @Override
+        public void acquire(final OperationCallBack operationCallBack) {
+            RedUtilsLockImpl.this.acquire(lockName, lockKey, route, Deadline.NONE, operationCallBack);
+        }
+
+        @Override
+        public boolean acquire(final Duration maxWait, final OperationCallBack operationCallBack) {
+            return RedUtilsLockImpl.this.acquire(lockName, lockKey, route, Deadline.after(maxWait), operationCallBack);
+        }
+
+        @Override
+        public CompletableFuture<Boolean> tryAcquireAsync(final OperationCallBack operationCallBack) {
+            return new AsyncLockRequest(lockName, lockKey, route, operationCallBack, false).start();
+        }
+
+        @Override
+        public CompletableFuture<Void> acquireAsync(final OperationCallBack operationCallBack) {
+            return new AsyncLockRequest(lockName, lockKey, route, operationCallBack, true).start()
+                    .thenApply(acquired -> null);
+        }
+
+        @Override
+        public Lease tryLock() {
+            return RedUtilsLockImpl.this.tryLock(lockName, lockKey);
+        }
+
+        @Override
+        public Lease lock() {
+            return RedUtilsLockImpl.this.lock(lockName, lockKey);
+        }
+
+        @Override
+        public String toString() {
+            return "LockHandle{" + lockName + "}";
+        }
+    }
+
+    /**
+     * Lock that is held by the thread that acquired it, until the lease is closed
+     */
+    private final class LockLease implements Lease {
+        private final OwnerToken owner;
+
+        private final String lockName;
+
+        private final byte[] lockKey;
+
+        private final Thread ownerThread;
+
+        private volatile RefreshLockException failure;
+
+        // guarded by this
+        private boolean closed;
+
+        private LockLease(OwnerToken owner, String lockName, byte[] lockKey) {
+            this.owner = owner;
+            this.lockName = lockName;
+            this.lockKey = lockKey;
+            this.ownerThread = Thread.currentThread();
+            leasedLockNames.get().add(lockName);
+            lockRefresher.start(lockName, owner.getName()).exceptionally(this::onLost);
+        }
+
+        @Override
+        public String getLockName() {
+            return lockName;
+        }
+
+        @Override
+        public boolean isValid() {
+            synchronized (this) {
+                return !closed && failure == null;
+            }
+        }
+
+        @Override
+        public void checkValid() {
+            final RefreshLockException cause = failure;
+            if (cause != null) {
+                throw cause;
+            }
+            synchronized (this) {
+                if (closed) {
+                    throw new IllegalStateException(String.format("Lease of lock '%s' is already closed", lockName));
+                }
+            }
+        }
+
+        @Override
+        public void close() {
+            if (Thread.currentThread() != ownerThread) {
+                throw new IllegalStateException("A lease should be closed by the thread that acquired it");
+            }
+            synchronized (this) {
+                if (closed) {
+                    return;
+                }
+                closed = true;
+            }
+
+            leasedLockNames.get().remove(lockName);
+            unlock(owner, lockName, lockKey);
+        }
+
+        private Void onLost(final Throwable throwable) {
+            final Throwable cause = throwable instanceof CompletionException ? throwable.getCause() : throwable;
+            failure = cause instanceof RefreshLockException ? (RefreshLockException) cause
+                    : new RefreshLockException(String.format("Error in refreshing the lock '%s'", lockName), cause);
+            synchronized (this) {
+                // the owner may already be running code that is not protected by the lock
+                if (!closed) {
+                    ownerThread.interrupt();
+                }
+            }
+            return null;
+        }
+
+        @Override
+        public String toString() {
+            return "Lease{" + lockName + "}";
+        }
+    }
+
+    /**
+     * Request of an asynchronous caller. Every attempt runs on the operation executor, between the attempts the request
+     * waits for a notification of the channel, or for the remaining time of the holder, without holding any thread.
+     * Callers do not wait in the admission queue, an attempt that finds no available connection is retried later.
+     */
+    private final class AsyncLockRequest {
+        private final String lockName;
+
+        private final byte[] lockKey;
+
+        private final CallbackRoute route;
+
+        private final OperationCallBack operationCallBack;
+
+        private final boolean waitForLock;
+
+        private final OwnerToken owner = ThreadManager.createDetachedToken();
+
+        private final long subscriberId = -ASYNC_SUBSCRIBER_IDS.incrementAndGet();
+
+        private final CompletableFuture<Boolean> result = new CompletableFuture<>();
+
+        // attempts do not overlap, each one is started after the previous one
+        private ChannelListener channelListener;
+
+        private AsyncLockRequest(String lockName, byte[] lockKey, CallbackRoute route,
+                                 OperationCallBack operationCallBack, boolean waitForLock) {
+            this.lockName = lockName;
+            this.lockKey = lockKey;
+            this.route = route;
+            this.operationCallBack = operationCallBack;
+            this.waitForLock = waitForLock;
+        }
+
+        private CompletableFuture<Boolean> start() {
+            try {
+                route.enter(lockName);
+            } catch (BulkheadFullException ex) {
+                result.completeExceptionally(ex);
+                return result;
+            }
+
+            attemptAfter(CompletableFuture.completedFuture(null));
+            // the caller is completed after leaving the bulkhead
+            return result.whenComplete((acquired, throwable) -> route.exit());
+        }
+
+        private void attemptAfter(final CompletableFuture<Void> trigger) {
+            trigger.thenRunAsync(this::attempt, operationExecutorService).exceptionally(this::fail);
+        }
+
+        private void attempt() {
+            try {
+                final long ttl = waitForLock ? tryGetLock(owner, lockName, lockKey, Deadline.NONE) : tryGetLockNow();
+                if (ttl == LOCK_ACQUIRED) {
+                    leaveChannel(true);
+                    runOperation();
+                } else if (!waitForLock) {
+                    result.complete(false);
+                } else if (channelListener == null) {
+                    channelListener = lockChannel.subscribe(lockName, subscriberId);
+                    // try again, the lock may have been released before subscribing to the channel
+                    attemptAfter(CompletableFuture.completedFuture(null));
+                } else {
+                    attemptAfter(channelListener.waitForNotificationAsync(subscriberId, ttl));
+                }
+            } catch (RuntimeException ex) {
+                fail(ex);
+            }
+        }
+
+        private long tryGetLockNow() {
+            if (!reserveConnection(owner)) {
+                throw new InsufficientResourceException("There is`t any available connection, please try again or change connection configs");
+            }
+
+            return getLockOrFree(owner, lockKey, Deadline.NONE);
+        }
+
+        private void runOperation() {
+            final CompletableFuture<Void> mainOperationFuture;
+            try {
+                CompletableFuture<Void> lockRefresherStatus = lockRefresher.start(lockName, owner.getName());
+                mainOperationFuture = CompletableFuture.runAsync(operationCallBack::doOperation, route.executor);
+
+                lockRefresherStatus.exceptionally(throwable -> {
+                    mainOperationFuture.completeExceptionally(throwable);
+                    return null;
+                });
+            } catch (RuntimeException ex) {
+                unlock(owner, lockName, lockKey);
+                throw ex;
+            }
+
+            // the refresher may fail the operation on one of its threads, so the lock is released on the executor
+            mainOperationFuture.whenCompleteAsync((ignored, throwable) -> {
+                unlock(owner, lockName, lockKey);
+                if (throwable == null) {
+                    result.complete(true);
+                } else {
+                    result.completeExceptionally(unwrap(throwable));
+                }
+            }, operationExecutorService);
+        }
+
+        private Void fail(final Throwable throwable) {
+            leaveChannel(false);
+            result.completeExceptionally(unwrap(throwable));
+            return null;
+        }
+
+        private void leaveChannel(final boolean lockAcquired) {
+            if (channelListener == null) {
+                return;
+            }
+
+            channelListener = null;
+            try {
+                lockChannel.unSubscribe(lockName, subscriberId, lockAcquired);
+            } catch (Exception ex) {
+                log.debug("Error in unsubscribing from lock [{}]", lockName, ex);
+            }
+        }
+
+        private Throwable unwrap(final Throwable throwable) {
+            return throwable instanceof CompletionException && throwable.getCause() != null
+                    ? throwable.getCause() : throwable;
         }
     }
 
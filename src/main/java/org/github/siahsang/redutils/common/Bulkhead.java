@@ -0,0 +1,92 @@
+package org.github.siahsang.redutils.common;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Limit the number of concurrent calls of a {@link CallbackGroup}, callers that exceed the limit are rejected at once
+ * instead of creating more threads
+ *
+ * @author Javad Alimohammadi
+ */
+public class Bulkhead {
+    private final String name;
+
+    private final int maxConcurrentCalls;
+
+    private final AtomicInteger activeCalls = new AtomicInteger();
+
+    private final AtomicInteger peakActiveCalls = new AtomicInteger();
+
+    private final LongAdder acceptedCount = new LongAdder();
+
+    private final LongAdder rejectedCount = new LongAdder();
+
+    public Bulkhead(String name, int maxConcurrentCalls) {
+        if (maxConcurrentCalls <= 0) {
+            throw new IllegalArgumentException("maxConcurrentCalls should be positive");
+        }
+        this.name = name;
+        this.maxConcurrentCalls = maxConcurrentCalls;
+    }
+
+    /**
+     * @return true if the call is accepted, then {@link #exit()} should be called after it is finished
+     */
+    public boolean tryEnter() {
+        int active;
+        do {
+            active = activeCalls.get();
+            if (active >= maxConcurrentCalls) {
+                rejectedCount.increment();
+                return false;
+            }
+        } while (!activeCalls.compareAndSet(active, active + 1));
+
+        acceptedCount.increment();
+        peakActiveCalls.accumulateAndGet(active + 1, Math::max);
+        return true;
+    }
+
+    public void exit() {
+        activeCalls.decrementAndGet();
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public int getMaxConcurrentCalls() {
+        return maxConcurrentCalls;
+    }
+
+    public int getActiveCalls() {
+        return activeCalls.get();
+    }
+
+    public int getPeakActiveCalls() {
+        return peakActiveCalls.get();
+    }
+
+    public long getAcceptedCount() {
+        return acceptedCount.sum();
+    }
+
+    public long getRejectedCount() {
+        return rejectedCount.sum();
+    }
+
+    /**
+     * @return percentage of the limit that is in use
+     */
+    public double getSaturation() {
+        return 100.0 * getActiveCalls() / maxConcurrentCalls;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("Bulkhead{name=%s, activeCalls=%d, maxConcurrentCalls=%d, peakActiveCalls=%d, " +
+                        "acceptedCount=%d, rejectedCount=%d}", name, getActiveCalls(), maxConcurrentCalls,
+                getPeakActiveCalls(), getAcceptedCount(), getRejectedCount());
+    }
+}
@@ -0,0 +1,70 @@
+package org.github.siahsang.redutils.common;
+
+import java.util.concurrent.Executor;
+import java.util.regex.Pattern;
+
+/**
+ * Callbacks of the locks whose names match a pattern, like {@code orders:*}. They run on the executor of the group and
+ * at most {@link #getMaxConcurrentCallbacks()} callers of the group acquire locks and run callbacks at the same time.
+ *
+ * @author Javad Alimohammadi
+ */
+public final class CallbackGroup {
+    public static final int UNLIMITED = 0;
+
+    private final String lockNamePattern;
+
+    private final Pattern pattern;
+
+    private final Executor executor;
+
+    private final int maxConcurrentCallbacks;
+
+    /**
+     * @param lockNamePattern        name of the locks, {@code *} matches any characters
+     * @param executor               executor of the callbacks, or null for the operation executor of the client
+     * @param maxConcurrentCallbacks limit of the bulkhead of the group, or {@link #UNLIMITED}
+     */
+    public CallbackGroup(String lockNamePattern, Executor executor, int maxConcurrentCallbacks) {
+        if (maxConcurrentCallbacks < 0) {
+            throw new IllegalArgumentException("maxConcurrentCallbacks can not be negative");
+        }
+        this.lockNamePattern = lockNamePattern;
+        this.pattern = compile(lockNamePattern);
+        this.executor = executor;
+        this.maxConcurrentCallbacks = maxConcurrentCallbacks;
+    }
+
+    public boolean matches(final String lockName) {
+        return pattern.matcher(lockName).matches();
+    }
+
+    public String getLockNamePattern() {
+        return lockNamePattern;
+    }
+
+    public Executor getExecutor() {
+        return executor;
+    }
+
+    public int getMaxConcurrentCallbacks() {
+        return maxConcurrentCallbacks;
+    }
+
+    private static Pattern compile(final String lockNamePattern) {
+        StringBuilder regex = new StringBuilder();
+        int start = 0;
+        int wildcard;
+        while ((wildcard = lockNamePattern.indexOf('*', start)) >= 0) {
+            regex.append(Pattern.quote(lockNamePattern.substring(start, wildcard))).append(".*");
+            start = wildcard + 1;
+        }
+        regex.append(Pattern.quote(lockNamePattern.substring(start)));
+        return Pattern.compile(regex.toString(), Pattern.DOTALL);
+    }
+
+    @Override
+    public String toString() {
+        return "CallbackGroup{" + lockNamePattern + "}";
+    }
+}
@@ -0,0 +1,177 @@
+package org.github.siahsang.redutils.common;
+
+import org.github.siahsang.redutils.exception.CircuitBreakerOpenException;
+import org.github.siahsang.redutils.exception.DeadlineExceededException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import redis.clients.jedis.exceptions.JedisConnectionException;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Stop sending commands to Redis while it is unhealthy. The outcome of calls is counted in windows of
+ * {@link #WINDOW_SIZE} calls and the circuit opens when the rate of connection errors and timeouts in the current window
+ * reaches the threshold. While the circuit is open every call fails at once with {@link CircuitBreakerOpenException}.
+ * <p>
+ * An open circuit sends a probe after each probe interval. During the probe the circuit is half-open and calls still
+ * fail fast, it closes if the probe succeeds and opens again otherwise.
+ *
+ * @author Javad Alimohammadi
+ */
+public class CircuitBreaker {
+    private static final Logger log = LoggerFactory.getLogger(CircuitBreaker.class);
+
+    static final int WINDOW_SIZE = 100;
+
+    private static final long ONE_CALL = 1L << 32;
+
+    private static final long FAILURES_MASK = ONE_CALL - 1;
+
+    public enum State {
+        CLOSED, OPEN, HALF_OPEN
+    }
+
+    private final int failureRateThreshold;
+
+    private final int minimumCalls;
+
+    private final long probeIntervalMillis;
+
+    private final Runnable probe;
+
+    private final Executor probeExecutor;
+
+    private final HashedWheelTimer timer;
+
+    private final HashedWheelTimer.BatchTask<CircuitBreaker> probeTask = breakers -> breakers.forEach(CircuitBreaker::startProbe);
+
+    private final AtomicReference<State> state = new AtomicReference<>(State.CLOSED);
+
+    // number of calls in the high and number of failures in the low 32 bits, for the current window
+    private final AtomicLong window = new AtomicLong();
+
+    /**
+     * @param failureRateThreshold percentage of failed calls that opens the circuit
+     * @param minimumCalls         number of calls in a window before the failure rate is checked
+     * @param probeIntervalMillis  waiting time of an open circuit before the next probe
+     * @param probe                request that throws an exception if Redis is not healthy yet
+     * @param probeExecutor        executor of the probe, so a slow probe does not block the timer
+     */
+    public CircuitBreaker(int failureRateThreshold, int minimumCalls, long probeIntervalMillis, Runnable probe,
+                          Executor probeExecutor) {
+        this.failureRateThreshold = failureRateThreshold;
+        this.minimumCalls = Math.min(minimumCalls, WINDOW_SIZE);
+        this.probeIntervalMillis = probeIntervalMillis;
+        this.probe = probe;
+        this.probeExecutor = probeExecutor;
+        this.timer = HashedWheelTimer.shared();
+    }
+
+    /**
+     * @throws CircuitBreakerOpenException if the circuit is not closed
+     */
+    public void checkPermission() {
+        State currentState = state.get();
+        if (currentState != State.CLOSED) {
+            throw new CircuitBreakerOpenException(String.format("Redis is unhealthy, circuit is %s", currentState));
+        }
+    }
+
+    public void onSuccess() {
+        record(0);
+    }
+
+    /**
+     * Count the failure if it is a connection error or a timeout, other errors are counted as success since Redis
+     * replied
+     */
+    public void onFailure(final Throwable throwable) {
+        record(isRedisUnavailable(throwable) ? 1 : 0);
+    }
+
+    public State getState() {
+        return state.get();
+    }
+
+    static boolean isRedisUnavailable(final Throwable throwable) {
+        if (throwable instanceof DeadlineExceededException) {
+            // the caller ran out of time, it says nothing about Redis
+            return false;
+        }
+
+        for (Throwable cause = throwable; cause != null; cause = cause.getCause()) {
+            if (cause instanceof JedisConnectionException || cause instanceof TimeoutException
+                    || cause instanceof IOException || cause instanceof UncheckedIOException) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    private void record(final int failure) {
+        long current;
+        long next;
+        do {
+            current = window.get();
+            long calls = (current >>> 32) + 1;
+            // a full window starts the next one
+            next = calls >= WINDOW_SIZE ? 0 : current + ONE_CALL + failure;
+        } while (!window.compareAndSet(current, next));
+
+        if (failure == 0) {
+            return;
+        }
+
+        final long calls = (current >>> 32) + 1;
+        final long failures = (current & FAILURES_MASK) + 1;
+        if (calls >= minimumCalls && failures * 100 >= (long) failureRateThreshold * calls) {
+            open(calls, failures);
+        }
+    }
+
+    private void open(final long calls, final long failures) {
+        if (state.compareAndSet(State.CLOSED, State.OPEN)) {
+            window.set(0);
+            log.warn("Circuit is opened, [{}] of the last [{}] calls failed", failures, calls);
+            scheduleProbe();
+        }
+    }
+
+    private void scheduleProbe() {
+        timer.schedule(probeTask, this, probeIntervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    private void startProbe() {
+        if (!state.compareAndSet(State.OPEN, State.HALF_OPEN)) {
+            return;
+        }
+
+        try {
+            probeExecutor.execute(this::runProbe);
+        } catch (RuntimeException ex) {
+            log.debug("Could not start the probe", ex);
+            state.set(State.OPEN);
+            scheduleProbe();
+        }
+    }
+
+    private void runProbe() {
+        try {
+            probe.run();
+            window.set(0);
+            state.set(State.CLOSED);
+            log.info("Circuit is closed, Redis is healthy again");
+        } catch (Exception ex) {
+            log.debug("Probe failed, circuit stays open", ex);
+            state.set(State.OPEN);
+            scheduleProbe();
+        }
+    }
+}
@@ -0,0 +1,25 @@
+package org.github.siahsang.redutils.common;
+
+/**
+ * How the lock commands are sent to Redis
+ *
+ * @author Javad Alimohammadi
+ */
+public enum CommandExecutionMode {
+    /**
+     * Every command is sent with the connection that is reserved by the calling thread and waits for its reply
+     */
+    DIRECT,
+
+    /**
+     * Commands of all threads are queued and written together as pipelines on a few shared connections. It can not be
+     * used with replicas, since waiting for replicas blocks the connection that is shared by other threads.
+     */
+    AUTO_PIPELINING,
+
+    /**
+     * Commands are sent over a few non-blocking connections that are shared by all threads and served by one event loop
+     * thread, replies are matched to commands in order. Like {@link #AUTO_PIPELINING}, it can not be used with replicas.
+     */
+    NIO
+}
@@ -0,0 +1,51 @@
+package org.github.siahsang.redutils.common;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Point in time after which a caller does not wait anymore. Its remaining time bounds every wait and every Redis call
+ * of the caller.
+ *
+ * @author Javad Alimohammadi
+ */
+public final class Deadline {
+    /**
+     * Deadline of callers that wait without any limit
+     */
+    public static final Deadline NONE = new Deadline(0);
+
+    private final long deadlineNanos;
+
+    private Deadline(long deadlineNanos) {
+        this.deadlineNanos = deadlineNanos;
+    }
+
+    public static Deadline after(final Duration maxWait) {
+        return new Deadline(System.nanoTime() + maxWait.toNanos());
+    }
+
+    public boolean isNone() {
+        return this == NONE;
+    }
+
+    /**
+     * @return remaining time, it is {@link Long#MAX_VALUE} for {@link #NONE} and zero or negative after the deadline
+     */
+    public long remainingMillis() {
+        if (isNone()) {
+            return Long.MAX_VALUE;
+        }
+
+        return TimeUnit.NANOSECONDS.toMillis(deadlineNanos - System.nanoTime());
+    }
+
+    public boolean isExpired() {
+        return !isNone() && deadlineNanos - System.nanoTime() <= 0;
+    }
+
+    @Override
+    public String toString() {
+        return isNone() ? "Deadline{none}" : "Deadline{remainingMillis=" + remainingMillis() + "}";
+    }
+}
@@ -0,0 +1,246 @@
+package org.github.siahsang.redutils.common;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A hashed timer wheel driven by a single worker thread. All elements that expire in the same tick and belong to the
+ * same {@link BatchTask} are handed to that task together, so callers can process them with one round trip.
+ * <p>
+ * Tasks are executed on the worker thread, so a slow task delays the following ticks. Tasks that do blocking I/O
+ * should only hand their work to an executor.
+ *
+ * @author Javad Alimohammadi
+ */
+public class HashedWheelTimer {
+    private static final Logger log = LoggerFactory.getLogger(HashedWheelTimer.class);
+
+    private static final HashedWheelTimer SHARED = new HashedWheelTimer("red-utils-timer", 50, 512);
+
+    private final long tickNanos;
+
+    private final int mask;
+
+    private final List<List<Timeout<?>>> wheel;
+
+    private final Queue<Timeout<?>> pendingTimeouts = new ConcurrentLinkedQueue<>();
+
+    private final AtomicBoolean started = new AtomicBoolean(false);
+
+    private final Thread workerThread;
+
+    private final CountDownLatch startTimeInitialized = new CountDownLatch(1);
+
+    private volatile long startTime;
+
+    /**
+     * @param threadName name of the worker thread
+     * @param tickMillis duration of one tick
+     * @param wheelSize  number of buckets, rounded up to a power of two
+     */
+    public HashedWheelTimer(final String threadName, final long tickMillis, final int wheelSize) {
+        if (tickMillis <= 0 || wheelSize <= 0) {
+            throw new IllegalArgumentException("tickMillis and wheelSize must be positive");
+        }
+
+        int normalizedWheelSize = Integer.highestOneBit(wheelSize);
+        if (normalizedWheelSize < wheelSize) {
+            normalizedWheelSize <<= 1;
+        }
+
+        this.tickNanos = TimeUnit.MILLISECONDS.toNanos(tickMillis);
+        this.mask = normalizedWheelSize - 1;
+        this.wheel = new ArrayList<>(normalizedWheelSize);
+        for (int i = 0; i < normalizedWheelSize; i++) {
+            wheel.add(new ArrayList<>());
+        }
+
+        this.workerThread = ThreadFactories.newDaemonThread(threadName, this::work);
+    }
+
+    /**
+     * @return process-wide timer that is shared by all clients
+     */
+    public static HashedWheelTimer shared() {
+        return SHARED;
+    }
+
+    /**
+     * Schedule the element to be handed to the task after the given delay
+     *
+     * @param task    task that processes expired elements
+     * @param element element that will be passed to the task
+     * @param delay   delay before expiration
+     * @param unit    unit of the delay
+     * @return handle that can be used to cancel the timeout
+     */
+    public <T> Timeout<T> schedule(final BatchTask<T> task, final T element, final long delay, final TimeUnit unit) {
+        start();
+
+        final long deadline = System.nanoTime() + unit.toNanos(Math.max(delay, 0)) - startTime;
+        Timeout<T> timeout = new Timeout<>(task, element, deadline);
+        pendingTimeouts.add(timeout);
+        return timeout;
+    }
+
+    private void start() {
+        if (started.compareAndSet(false, true)) {
+            startTime = System.nanoTime();
+            startTimeInitialized.countDown();
+            workerThread.start();
+            return;
+        }
+
+        // other threads may observe started=true before startTime is set
+        boolean interrupted = false;
+        while (startTimeInitialized.getCount() != 0) {
+            try {
+                startTimeInitialized.await();
+            } catch (InterruptedException ex) {
+                interrupted = true;
+            }
+        }
+
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void work() {
+        long tick = 0;
+        while (!Thread.currentThread().isInterrupted()) {
+            if (!waitForNextTick(tick)) {
+                return;
+            }
+
+            transferPendingTimeouts(tick);
+            expireTimeouts(wheel.get((int) (tick & mask)));
+            tick++;
+        }
+    }
+
+    private boolean waitForNextTick(final long tick) {
+        final long deadline = tickNanos * (tick + 1);
+        while (true) {
+            final long sleepNanos = deadline - (System.nanoTime() - startTime);
+            if (sleepNanos <= 0) {
+                return true;
+            }
+
+            try {
+                TimeUnit.NANOSECONDS.sleep(sleepNanos);
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                return false;
+            }
+        }
+    }
+
+    private void transferPendingTimeouts(final long tick) {
+        Timeout<?> timeout;
+        while ((timeout = pendingTimeouts.poll()) != null) {
+            if (timeout.isCancelled()) {
+                continue;
+            }
+
+            final long calculatedTick = timeout.deadline / tickNanos;
+            timeout.remainingRounds = (calculatedTick - tick) / wheel.size();
+
+            // if the deadline is already passed, put it in the current bucket
+            final long targetTick = Math.max(calculatedTick, tick);
+            wheel.get((int) (targetTick & mask)).add(timeout);
+        }
+    }
+
+    private void expireTimeouts(final List<Timeout<?>> bucket) {
+        final Map<BatchTask<?>, List<Object>> batches = new IdentityHashMap<>();
+
+        int retained = 0;
+        for (Timeout<?> timeout : bucket) {
+            if (timeout.isCancelled()) {
+                continue;
+            }
+
+            if (timeout.remainingRounds > 0) {
+                timeout.remainingRounds--;
+                bucket.set(retained++, timeout);
+                continue;
+            }
+
+            if (timeout.expire()) {
+                batches.computeIfAbsent(timeout.task, task -> new ArrayList<>()).add(timeout.element);
+            }
+        }
+        bucket.subList(retained, bucket.size()).clear();
+
+        batches.forEach(this::runTask);
+    }
+
+    @SuppressWarnings("unchecked")
+    private void runTask(final BatchTask<?> task, final List<Object> elements) {
+        try {
+            ((BatchTask<Object>) task).run(elements);
+        } catch (Throwable throwable) {
+            log.warn("Error in running timer task", throwable);
+        }
+    }
+
+    /**
+     * Task that processes all of its elements that expired in the same tick
+     */
+    @FunctionalInterface
+    public interface BatchTask<T> {
+        void run(List<T> elements);
+    }
+
+    public static final class Timeout<T> {
+        private static final int ST_INIT = 0;
+
+        private static final int ST_CANCELLED = 1;
+
+        private static final int ST_EXPIRED = 2;
+
+        private final BatchTask<T> task;
+
+        private final T element;
+
+        private final long deadline;
+
+        private final AtomicInteger state = new AtomicInteger(ST_INIT);
+
+        // only accessed by the worker thread
+        private long remainingRounds;
+
+        private Timeout(BatchTask<T> task, T element, long deadline) {
+            this.task = task;
+            this.element = element;
+            this.deadline = deadline;
+        }
+
+        /**
+         * @return true if the timeout was cancelled before expiration
+         */
+        public boolean cancel() {
+            return state.compareAndSet(ST_INIT, ST_CANCELLED);
+        }
+
+        public boolean isCancelled() {
+            return state.get() == ST_CANCELLED;
+        }
+
+        private boolean expire() {
+            return state.compareAndSet(ST_INIT, ST_EXPIRED);
+        }
+    }
+}
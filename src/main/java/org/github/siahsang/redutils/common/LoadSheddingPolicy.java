@@ -0,0 +1,19 @@
+package org.github.siahsang.redutils.common;
+
+/**
+ * Decide which caller is turned away when the admission queue is full
+ *
+ * @author Javad Alimohammadi
+ */
+public enum LoadSheddingPolicy {
+    /**
+     * Reject the new caller, callers that are already waiting keep their place
+     */
+    REJECT_NEW,
+
+    /**
+     * Reject the longest waiting caller and queue the new one, since the oldest caller is the most likely to have
+     * timed out on its own side
+     */
+    DROP_OLDEST
+}
@@ -0,0 +1,35 @@
+package org.github.siahsang.redutils.common;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Identity of a lock owner with its encoded form, so it is not encoded again for every command
+ *
+ * @author Javad Alimohammadi
+ */
+public final class OwnerToken {
+    private final String name;
+
+    private final byte[] bytes;
+
+    OwnerToken(final String name) {
+        this.name = name;
+        this.bytes = name.getBytes(StandardCharsets.UTF_8);
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * @return UTF-8 encoded name, the array is shared and must not be changed
+     */
+    public byte[] getBytes() {
+        return bytes;
+    }
+
+    @Override
+    public String toString() {
+        return name;
+    }
+}
@@ -1,5 +1,13 @@
 package org.github.siahsang.redutils.common;
 
+import org.github.siahsang.redutils.lock.PubSubWaitStrategy;
+import org.github.siahsang.redutils.lock.WaitStrategy;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Executor;
+
 /**
  * @author Javad Alimohammadi
  */
@@ -27,6 +35,54 @@ public class RedUtilsConfig {
 
     public final int port;
 
+    private final boolean sessionLeaseEnabled;
+
+    private final int channelLingerMillis;
+
+    private final int channelLingerMaxSize;
+
+    private final WakePolicy wakePolicy;
+
+    private final UnlockNotificationMode unlockNotificationMode;
+
+    private final CommandExecutionMode commandExecutionMode;
+
+    private final int pipelineConnectionCount;
+
+    private final int pipelineMaxBatchSize;
+
+    private final boolean warmUpEnabled;
+
+    private final int minIdleConnections;
+
+    private final boolean elasticPoolEnabled;
+
+    private final int minPoolSize;
+
+    private final int poolSizingPeriodMillis;
+
+    private final boolean circuitBreakerEnabled;
+
+    private final int circuitBreakerFailureRateThreshold;
+
+    private final int circuitBreakerMinimumCalls;
+
+    private final int circuitBreakerProbeIntervalMillis;
+
+    private final boolean admissionQueueEnabled;
+
+    private final int admissionQueueMaxLength;
+
+    private final int admissionQueueMaxWaitMillis;
+
+    private final LoadSheddingPolicy loadSheddingPolicy;
+
+    private final Executor operationExecutor;
+
+    private final List<CallbackGroup> callbackGroups;
+
+    private final WaitStrategy waitStrategy;
+
     private RedUtilsConfig(RedUtilsConfigBuilder redUtilsConfigBuilder) {
         this.waitingTimeForReplicasMillis = redUtilsConfigBuilder.waitingTimeForReplicasMillis;
         this.retryCountForSyncingWithReplicas = redUtilsConfigBuilder.retryCountForSyncingWithReplicas;
@@ -37,6 +93,30 @@ public class RedUtilsConfig {
         this.replicaCount = redUtilsConfigBuilder.replicaCount;
         this.hostAddress = redUtilsConfigBuilder.hostAddress;
         this.port = redUtilsConfigBuilder.port;
+        this.sessionLeaseEnabled = redUtilsConfigBuilder.sessionLeaseEnabled;
+        this.channelLingerMillis = redUtilsConfigBuilder.channelLingerMillis;
+        this.channelLingerMaxSize = redUtilsConfigBuilder.channelLingerMaxSize;
+        this.wakePolicy = redUtilsConfigBuilder.wakePolicy;
+        this.unlockNotificationMode = redUtilsConfigBuilder.unlockNotificationMode;
+        this.commandExecutionMode = redUtilsConfigBuilder.commandExecutionMode;
+        this.pipelineConnectionCount = redUtilsConfigBuilder.pipelineConnectionCount;
+        this.pipelineMaxBatchSize = redUtilsConfigBuilder.pipelineMaxBatchSize;
+        this.warmUpEnabled = redUtilsConfigBuilder.warmUpEnabled;
+        this.minIdleConnections = redUtilsConfigBuilder.minIdleConnections;
+        this.elasticPoolEnabled = redUtilsConfigBuilder.elasticPoolEnabled;
+        this.minPoolSize = redUtilsConfigBuilder.minPoolSize;
+        this.poolSizingPeriodMillis = redUtilsConfigBuilder.poolSizingPeriodMillis;
+        this.circuitBreakerEnabled = redUtilsConfigBuilder.circuitBreakerEnabled;
+        this.circuitBreakerFailureRateThreshold = redUtilsConfigBuilder.circuitBreakerFailureRateThreshold;
+        this.circuitBreakerMinimumCalls = redUtilsConfigBuilder.circuitBreakerMinimumCalls;
+        this.circuitBreakerProbeIntervalMillis = redUtilsConfigBuilder.circuitBreakerProbeIntervalMillis;
+        this.admissionQueueEnabled = redUtilsConfigBuilder.admissionQueueEnabled;
+        this.admissionQueueMaxLength = redUtilsConfigBuilder.admissionQueueMaxLength;
+        this.admissionQueueMaxWaitMillis = redUtilsConfigBuilder.admissionQueueMaxWaitMillis;
+        this.loadSheddingPolicy = redUtilsConfigBuilder.loadSheddingPolicy;
+        this.operationExecutor = redUtilsConfigBuilder.operationExecutor;
+        this.callbackGroups = Collections.unmodifiableList(new ArrayList<>(redUtilsConfigBuilder.callbackGroups));
+        this.waitStrategy = redUtilsConfigBuilder.waitStrategy;
 
     }
 
@@ -76,6 +156,102 @@ public class RedUtilsConfig {
         return port;
     }
 
+    public boolean isSessionLeaseEnabled() {
+        return sessionLeaseEnabled;
+    }
+
+    public int getChannelLingerMillis() {
+        return channelLingerMillis;
+    }
+
+    public int getChannelLingerMaxSize() {
+        return channelLingerMaxSize;
+    }
+
+    public WakePolicy getWakePolicy() {
+        return wakePolicy;
+    }
+
+    public UnlockNotificationMode getUnlockNotificationMode() {
+        return unlockNotificationMode;
+    }
+
+    public CommandExecutionMode getCommandExecutionMode() {
+        return commandExecutionMode;
+    }
+
+    public int getPipelineConnectionCount() {
+        return pipelineConnectionCount;
+    }
+
+    public int getPipelineMaxBatchSize() {
+        return pipelineMaxBatchSize;
+    }
+
+    public boolean isWarmUpEnabled() {
+        return warmUpEnabled;
+    }
+
+    public int getMinIdleConnections() {
+        return minIdleConnections;
+    }
+
+    public boolean isElasticPoolEnabled() {
+        return elasticPoolEnabled;
+    }
+
+    public int getMinPoolSize() {
+        return minPoolSize;
+    }
+
+    public int getPoolSizingPeriodMillis() {
+        return poolSizingPeriodMillis;
+    }
+
+    public boolean isCircuitBreakerEnabled() {
+        return circuitBreakerEnabled;
+    }
+
+    public int getCircuitBreakerFailureRateThreshold() {
+        return circuitBreakerFailureRateThreshold;
+    }
+
+    public int getCircuitBreakerMinimumCalls() {
+        return circuitBreakerMinimumCalls;
+    }
+
+    public int getCircuitBreakerProbeIntervalMillis() {
+        return circuitBreakerProbeIntervalMillis;
+    }
+
+    public boolean isAdmissionQueueEnabled() {
+        return admissionQueueEnabled;
+    }
+
+    public int getAdmissionQueueMaxLength() {
+        return admissionQueueMaxLength;
+    }
+
+    public int getAdmissionQueueMaxWaitMillis() {
+        return admissionQueueMaxWaitMillis;
+    }
+
+    public LoadSheddingPolicy getLoadSheddingPolicy() {
+        return loadSheddingPolicy;
+    }
+
+    public WaitStrategy getWaitStrategy() {
+        return waitStrategy;
+    }
+
+    public Executor getOperationExecutor() {
+        return operationExecutor;
+    }
+
+    public List<CallbackGroup> getCallbackGroups() {
+        return callbackGroups;
+    }
+
 
     public static final class RedUtilsConfigBuilder {
         private int waitingTimeForReplicasMillis = 1000;
@@ -96,6 +272,54 @@ public class RedUtilsConfig {
 
         private int port = DEFAULT_PORT;
 
+        private boolean sessionLeaseEnabled = false;
+
+        private int channelLingerMillis = 0;
+
+        private int channelLingerMaxSize = 256;
+
+        private WakePolicy wakePolicy = WakePolicy.WAKE_ONE;
+
+        private UnlockNotificationMode unlockNotificationMode = UnlockNotificationMode.PUBLISH;
+
+        private CommandExecutionMode commandExecutionMode = CommandExecutionMode.DIRECT;
+
+        private int pipelineConnectionCount = 2;
+
+        private int pipelineMaxBatchSize = 128;
+
+        private boolean warmUpEnabled = false;
+
+        private int minIdleConnections = 0;
+
+        private boolean elasticPoolEnabled = false;
+
+        private int minPoolSize = 4;
+
+        private int poolSizingPeriodMillis = 5000;
+
+        private boolean circuitBreakerEnabled = false;
+
+        private int circuitBreakerFailureRateThreshold = 50;
+
+        private int circuitBreakerMinimumCalls = 10;
+
+        private int circuitBreakerProbeIntervalMillis = 1000;
+
+        private boolean admissionQueueEnabled = false;
+
+        private int admissionQueueMaxLength = 256;
+
+        private int admissionQueueMaxWaitMillis = 1000;
+
+        private LoadSheddingPolicy loadSheddingPolicy = LoadSheddingPolicy.REJECT_NEW;
+
+        private Executor operationExecutor = null;
+
+        private final List<CallbackGroup> callbackGroups = new ArrayList<>();
+
+        private WaitStrategy waitStrategy = new PubSubWaitStrategy();
+
         public RedUtilsConfig build() {
             return new RedUtilsConfig(this);
         }
@@ -120,6 +344,10 @@ public class RedUtilsConfig {
             return this;
         }
 
+        /**
+         * Maximum number of connections. Besides the lock callers, the channel subscriber takes one once a lock is
+         * waited for and the lock refresher takes one while locks are held.
+         */
         public RedUtilsConfigBuilder maxPoolSize(int lockMaxPoolSize) {
             this.maxPoolSize = lockMaxPoolSize;
             return this;
@@ -144,5 +372,213 @@ public class RedUtilsConfig {
             this.port = port;
             return this;
         }
+
+        /**
+         * When enabled, every client heartbeats one session key instead of refreshing each held lock, and locks are
+         * valid as long as the session of their holder is alive.
+         */
+        public RedUtilsConfigBuilder sessionLeaseEnabled(boolean sessionLeaseEnabled) {
+            this.sessionLeaseEnabled = sessionLeaseEnabled;
+            return this;
+        }
+
+        /**
+         * How long a channel stays subscribed after its last local waiter left. Zero, the default, disables lingering.
+         * <p>
+         * A lingering channel saves the SUBSCRIBE of the next waiter on a hot lock, but Redis still counts it as a
+         * subscriber, so every release of the lock in the meantime publishes a message that nobody waits for.
+         */
+        public RedUtilsConfigBuilder channelLingerMillis(int channelLingerMillis) {
+            this.channelLingerMillis = channelLingerMillis;
+            return this;
+        }
+
+        /**
+         * Maximum number of idle channels that stay subscribed, the least recently used ones are unsubscribed first
+         */
+        public RedUtilsConfigBuilder channelLingerMaxSize(int channelLingerMaxSize) {
+            this.channelLingerMaxSize = channelLingerMaxSize;
+            return this;
+        }
+
+        /**
+         * Which local waiters of a lock are woken up when it is released
+         */
+        public RedUtilsConfigBuilder wakePolicy(WakePolicy wakePolicy) {
+            this.wakePolicy = wakePolicy;
+            return this;
+        }
+
+        /**
+         * How waiters are notified when a lock is removed, see {@link UnlockNotificationMode}
+         */
+        public RedUtilsConfigBuilder unlockNotificationMode(UnlockNotificationMode unlockNotificationMode) {
+            this.unlockNotificationMode = unlockNotificationMode;
+            return this;
+        }
+
+        /**
+         * How lock commands are sent to Redis, see {@link CommandExecutionMode}
+         */
+        public RedUtilsConfigBuilder commandExecutionMode(CommandExecutionMode commandExecutionMode) {
+            this.commandExecutionMode = commandExecutionMode;
+            return this;
+        }
+
+        /**
+         * Number of shared connections that commands are written to, when auto-pipelining or NIO is enabled
+         */
+        public RedUtilsConfigBuilder pipelineConnectionCount(int pipelineConnectionCount) {
+            this.pipelineConnectionCount = pipelineConnectionCount;
+            return this;
+        }
+
+        /**
+         * Maximum number of commands that are written with one flush, when auto-pipelining is enabled
+         */
+        public RedUtilsConfigBuilder pipelineMaxBatchSize(int pipelineMaxBatchSize) {
+            this.pipelineMaxBatchSize = pipelineMaxBatchSize;
+            return this;
+        }
+
+        /**
+         * When enabled, the client opens {@link #minIdleConnections(int)} connections, loads the Lua scripts and checks
+         * that the server and replicas are reachable when it is created, instead of on the first lock
+         */
+        public RedUtilsConfigBuilder warmUpEnabled(boolean warmUpEnabled) {
+            this.warmUpEnabled = warmUpEnabled;
+            return this;
+        }
+
+        /**
+         * Number of idle connections that are kept open in the pool
+         */
+        public RedUtilsConfigBuilder minIdleConnections(int minIdleConnections) {
+            this.minIdleConnections = minIdleConnections;
+            return this;
+        }
+
+        /**
+         * When enabled, the number of open connections follows the peak number of used connections between
+         * {@link #minPoolSize(int)} and {@link #maxPoolSize(int)}, and idle connections are validated by sampling
+         */
+        public RedUtilsConfigBuilder elasticPoolEnabled(boolean elasticPoolEnabled) {
+            this.elasticPoolEnabled = elasticPoolEnabled;
+            return this;
+        }
+
+        /**
+         * Number of idle connections that an elastic pool keeps open when there is no load
+         */
+        public RedUtilsConfigBuilder minPoolSize(int minPoolSize) {
+            this.minPoolSize = minPoolSize;
+            return this;
+        }
+
+        /**
+         * Period of resizing an elastic pool
+         */
+        public RedUtilsConfigBuilder poolSizingPeriodMillis(int poolSizingPeriodMillis) {
+            this.poolSizingPeriodMillis = poolSizingPeriodMillis;
+            return this;
+        }
+
+        /**
+         * When enabled, lock operations fail at once with CircuitBreakerOpenException while Redis is unhealthy,
+         * instead of waiting for the read timeout
+         */
+        public RedUtilsConfigBuilder circuitBreakerEnabled(boolean circuitBreakerEnabled) {
+            this.circuitBreakerEnabled = circuitBreakerEnabled;
+            return this;
+        }
+
+        /**
+         * Percentage of connection errors and timeouts that opens the circuit
+         */
+        public RedUtilsConfigBuilder circuitBreakerFailureRateThreshold(int circuitBreakerFailureRateThreshold) {
+            this.circuitBreakerFailureRateThreshold = circuitBreakerFailureRateThreshold;
+            return this;
+        }
+
+        /**
+         * Number of calls that are needed before the failure rate is checked
+         */
+        public RedUtilsConfigBuilder circuitBreakerMinimumCalls(int circuitBreakerMinimumCalls) {
+            this.circuitBreakerMinimumCalls = circuitBreakerMinimumCalls;
+            return this;
+        }
+
+        /**
+         * Waiting time of an open circuit before it checks Redis again with a PING
+         */
+        public RedUtilsConfigBuilder circuitBreakerProbeIntervalMillis(int circuitBreakerProbeIntervalMillis) {
+            this.circuitBreakerProbeIntervalMillis = circuitBreakerProbeIntervalMillis;
+            return this;
+        }
+
+        /**
+         * When enabled, callers that find no available connection wait in a FIFO queue instead of getting
+         * InsufficientResourceException at once
+         */
+        public RedUtilsConfigBuilder admissionQueueEnabled(boolean admissionQueueEnabled) {
+            this.admissionQueueEnabled = admissionQueueEnabled;
+            return this;
+        }
+
+        /**
+         * Maximum number of callers that wait for a connection
+         */
+        public RedUtilsConfigBuilder admissionQueueMaxLength(int admissionQueueMaxLength) {
+            this.admissionQueueMaxLength = admissionQueueMaxLength;
+            return this;
+        }
+
+        /**
+         * Maximum waiting time of a caller for a connection
+         */
+        public RedUtilsConfigBuilder admissionQueueMaxWaitMillis(int admissionQueueMaxWaitMillis) {
+            this.admissionQueueMaxWaitMillis = admissionQueueMaxWaitMillis;
+            return this;
+        }
+
+        /**
+         * Decide which caller is rejected when the admission queue is full
+         */
+        public RedUtilsConfigBuilder loadSheddingPolicy(LoadSheddingPolicy loadSheddingPolicy) {
+            this.loadSheddingPolicy = loadSheddingPolicy;
+            return this;
+        }
+
+        /**
+         * Executor of the callbacks that do not belong to a callback group. It is not shut down by the client, by
+         * default each client has its own executor.
+         */
+        public RedUtilsConfigBuilder operationExecutor(Executor operationExecutor) {
+            this.operationExecutor = operationExecutor;
+            return this;
+        }
+
+        /**
+         * Run the callbacks of the locks whose names match the pattern on the executor, with at most
+         * maxConcurrentCallbacks callers of the group at the same time. The first matching group of a lock is used.
+         *
+         * @see CallbackGroup#CallbackGroup(String, Executor, int)
+         */
+        public RedUtilsConfigBuilder callbackGroup(String lockNamePattern, Executor executor, int maxConcurrentCallbacks) {
+            this.callbackGroups.add(new CallbackGroup(lockNamePattern, executor, maxConcurrentCallbacks));
+            return this;
+        }
+
+        /**
+         * How a blocking acquire waits between its attempts when the lock is held by someone else, by default it waits
+         * for the notification of releasing the lock. Asynchronous requests always wait for the notification.
+         *
+         * @see org.github.siahsang.redutils.lock.SpinThenSubscribeWaitStrategy
+         * @see org.github.siahsang.redutils.lock.BackoffPollingWaitStrategy
+         */
+        public RedUtilsConfigBuilder waitStrategy(WaitStrategy waitStrategy) {
+            this.waitStrategy = waitStrategy;
+            return this;
+        }
     }
 }
@@ -1,33 +0,0 @@
-package org.github.siahsang.redutils.common;
-
-import java.util.concurrent.CompletableFuture;
-import java.util.concurrent.ScheduledExecutorService;
-import java.util.concurrent.TimeUnit;
-
-/**
- * @author Javad Alimohammadi
- */
-
-public abstract class Scheduler {
-
-    private Scheduler() {
-    }
-
-    public static <T> CompletableFuture<T> scheduleAtFixRate(ScheduledExecutorService executor, OperationCallBack operationCallBack,
-                                                             final long initialDelay, final long delay, final TimeUnit unit) {
-        CompletableFuture<T> completableFuture = new CompletableFuture<>();
-
-        executor.scheduleAtFixedRate(() -> {
-            try {
-                operationCallBack.doOperation();
-            } catch (Exception exception) {
-                completableFuture.completeExceptionally(exception);
-                throw exception;
-            }
-
-        }, initialDelay, delay, unit);
-
-        return completableFuture;
-    }
-
-}
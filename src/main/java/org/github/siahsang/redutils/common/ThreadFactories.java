@@ -0,0 +1,42 @@
+package org.github.siahsang.redutils.common;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Create the threads of the library. On Java 21 and later this class is replaced by the variant in
+ * {@code src/main/java21} of the multi-release jar, which creates virtual threads.
+ *
+ * @author Javad Alimohammadi
+ */
+public final class ThreadFactories {
+    private static final AtomicInteger TASK_THREAD_COUNTER = new AtomicInteger();
+
+    private ThreadFactories() {
+    }
+
+    /**
+     * @return true if the created threads are virtual
+     */
+    public static boolean isVirtual() {
+        return false;
+    }
+
+    /**
+     * @return executor of callbacks and other short tasks, with a thread per running task
+     */
+    public static ExecutorService newTaskExecutor() {
+        return Executors.newCachedThreadPool(runnable ->
+                new Thread(runnable, "red-utils-task-" + TASK_THREAD_COUNTER.getAndIncrement()));
+    }
+
+    /**
+     * @return unstarted thread for a long running task, like a listener or a timer, that does not keep the JVM alive
+     */
+    public static Thread newDaemonThread(final String name, final Runnable task) {
+        Thread thread = new Thread(task, name);
+        thread.setDaemon(true);
+        return thread;
+    }
+}
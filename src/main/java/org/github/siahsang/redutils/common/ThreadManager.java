@@ -1,6 +1,7 @@
 package org.github.siahsang.redutils.common;
 
 import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * @author Javad Alimohammadi
@@ -9,18 +10,46 @@ public abstract class ThreadManager {
     private ThreadManager() {
     }
 
-    private static final InheritableThreadLocal<String> PARENT_THREAD_NAME = new InheritableThreadLocal<>();
-
     private static final String GENERATED_UUID = UUID.randomUUID().toString();
 
+    private static final AtomicLong DETACHED_TOKEN_COUNTER = new AtomicLong();
+
+    private static final InheritableThreadLocal<OwnerToken> PARENT_THREAD_TOKEN = new InheritableThreadLocal<>();
+
+    // the token of a thread is created once and reused by all of its reservations
+    private static final ThreadLocal<OwnerToken> THREAD_TOKEN = ThreadLocal.withInitial(() ->
+            new OwnerToken(Thread.currentThread().getId() + ":" + GENERATED_UUID));
+
     public static String createUniqiueName() {
-        long threadId = Thread.currentThread().getId();
-        PARENT_THREAD_NAME.set(threadId + ":" + GENERATED_UUID);
-        return PARENT_THREAD_NAME.get();
+        return createToken().getName();
+    }
+
+    /**
+     * Make the calling thread the owner of its next reservation and locks, threads that it starts inherit the owner
+     */
+    public static OwnerToken createToken() {
+        final OwnerToken token = THREAD_TOKEN.get();
+        if (PARENT_THREAD_TOKEN.get() != token) {
+            PARENT_THREAD_TOKEN.set(token);
+        }
+        return token;
+    }
+
+    /**
+     * Create an owner that is not bound to any thread, for requests that move between threads. It is not set as the
+     * owner of the calling thread.
+     */
+    public static OwnerToken createDetachedToken() {
+        return new OwnerToken("async-" + DETACHED_TOKEN_COUNTER.incrementAndGet() + ":" + GENERATED_UUID);
     }
 
     public static String getName() {
-        return PARENT_THREAD_NAME.get();
+        final OwnerToken token = PARENT_THREAD_TOKEN.get();
+        return token == null ? null : token.getName();
+    }
+
+    public static OwnerToken getToken() {
+        return PARENT_THREAD_TOKEN.get();
     }
 
 }
@@ -0,0 +1,42 @@
+package org.github.siahsang.redutils.common;
+
+/**
+ * How waiting clients are notified when a lock is removed
+ *
+ * @author Javad Alimohammadi
+ */
+public enum UnlockNotificationMode {
+    /**
+     * The holder publishes an unlock message when it releases the lock. If the holder crashes, waiters wake up when
+     * the lock expires.
+     */
+    PUBLISH(true, false),
+
+    /**
+     * Waiters listen to the keyspace events of the lock and wake up as soon as Redis deletes or expires it. It needs
+     * {@code notify-keyspace-events} to include the keyspace and generic (or all) event classes, e.g. {@code Kgx}.
+     */
+    KEYSPACE(false, true),
+
+    /**
+     * Both of the above
+     */
+    BOTH(true, true);
+
+    private final boolean publishEnabled;
+
+    private final boolean keyspaceEnabled;
+
+    UnlockNotificationMode(boolean publishEnabled, boolean keyspaceEnabled) {
+        this.publishEnabled = publishEnabled;
+        this.keyspaceEnabled = keyspaceEnabled;
+    }
+
+    public boolean isPublishEnabled() {
+        return publishEnabled;
+    }
+
+    public boolean isKeyspaceEnabled() {
+        return keyspaceEnabled;
+    }
+}
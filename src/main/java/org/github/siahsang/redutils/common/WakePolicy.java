@@ -0,0 +1,19 @@
+package org.github.siahsang.redutils.common;
+
+/**
+ * Decide which local waiters are woken up when the unlock message of a channel is received
+ *
+ * @author Javad Alimohammadi
+ */
+public enum WakePolicy {
+    /**
+     * Wake up the longest waiting thread. If the woken thread leaves without getting the lock, the wake-up is passed on
+     * to the next waiting thread.
+     */
+    WAKE_ONE,
+
+    /**
+     * Wake up all waiting threads, they compete for the lock again
+     */
+    WAKE_ALL
+}
@@ -0,0 +1,260 @@
+package org.github.siahsang.redutils.common.connection;
+
+import org.github.siahsang.redutils.common.LoadSheddingPolicy;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.BooleanSupplier;
+
+/**
+ * Bounded FIFO queue of callers that could not reserve a connection. Only the head of the queue tries to reserve, when
+ * capacity is given back or after {@link #RETRY_MILLIS}, and new callers do not overtake the queued ones. When the queue
+ * is full the {@link LoadSheddingPolicy} decides who is rejected.
+ *
+ * @author Javad Alimohammadi
+ */
+public class AdmissionQueue {
+
+    // capacity that is given back without calling onCapacityReleased is noticed after this time
+    static final long RETRY_MILLIS = 50;
+
+    private final int maxQueueLength;
+
+    private final long maxWaitMillis;
+
+    private final LoadSheddingPolicy sheddingPolicy;
+
+    private final ReentrantLock lock = new ReentrantLock();
+
+    // guarded by lock
+    private final Deque<Waiter> waiters = new ArrayDeque<>();
+
+    private volatile int queueDepth;
+
+    // guarded by lock
+    private int maxQueueDepth;
+
+    private final LongAdder admittedCount = new LongAdder();
+
+    private final LongAdder rejectedCount = new LongAdder();
+
+    private final LongAdder timedOutCount = new LongAdder();
+
+    private final LongAdder queuedCount = new LongAdder();
+
+    private final LongAdder totalWaitNanos = new LongAdder();
+
+    public AdmissionQueue(int maxQueueLength, long maxWaitMillis, LoadSheddingPolicy sheddingPolicy) {
+        this.maxQueueLength = maxQueueLength;
+        this.maxWaitMillis = maxWaitMillis;
+        this.sheddingPolicy = sheddingPolicy;
+    }
+
+    /**
+     * Reserve with the given function, waiting in the queue if there is not enough capacity
+     *
+     * @param tryReserve reserves and returns false if there is not enough capacity
+     * @return false if the caller is rejected or could not reserve in max wait time
+     */
+    public boolean admit(final BooleanSupplier tryReserve) throws InterruptedException {
+        return admit(tryReserve, maxWaitMillis);
+    }
+
+    /**
+     * Same as {@link #admit(BooleanSupplier)} but waits at most the given time, if it is less than the max wait time
+     */
+    public boolean admit(final BooleanSupplier tryReserve, final long timeOutMillis) throws InterruptedException {
+        if (queueDepth == 0 && tryReserve.getAsBoolean()) {
+            admittedCount.increment();
+            return true;
+        }
+
+        final long waitMillis = Math.min(maxWaitMillis, timeOutMillis);
+        if (maxQueueLength <= 0 || waitMillis <= 0) {
+            rejectedCount.increment();
+            return false;
+        }
+
+        final long startTime = System.nanoTime();
+        final Waiter waiter;
+        lock.lock();
+        try {
+            if (waiters.size() >= maxQueueLength) {
+                if (sheddingPolicy == LoadSheddingPolicy.REJECT_NEW) {
+                    rejectedCount.increment();
+                    return false;
+                }
+                Waiter oldest = waiters.pollFirst();
+                oldest.dropped = true;
+                oldest.condition.signal();
+                rejectedCount.increment();
+                Waiter head = waiters.peekFirst();
+                if (head != null) {
+                    head.condition.signal();
+                }
+            }
+
+            waiter = new Waiter(lock.newCondition());
+            waiters.addLast(waiter);
+            queueDepth = waiters.size();
+            maxQueueDepth = Math.max(maxQueueDepth, queueDepth);
+        } finally {
+            lock.unlock();
+        }
+
+        queuedCount.increment();
+        try {
+            return waitForTurn(waiter, tryReserve, startTime + TimeUnit.MILLISECONDS.toNanos(waitMillis));
+        } finally {
+            totalWaitNanos.add(System.nanoTime() - startTime);
+            leave(waiter);
+        }
+    }
+
+    /**
+     * Let the head of the queue try again, call it after giving back capacity
+     */
+    public void onCapacityReleased() {
+        if (queueDepth == 0) {
+            return;
+        }
+
+        lock.lock();
+        try {
+            Waiter head = waiters.peekFirst();
+            if (head != null) {
+                head.condition.signal();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private boolean waitForTurn(final Waiter waiter, final BooleanSupplier tryReserve, final long deadline)
+            throws InterruptedException {
+        while (true) {
+            lock.lockInterruptibly();
+            try {
+                if (waiter.dropped) {
+                    return false;
+                }
+                if (waiters.peekFirst() != waiter) {
+                    long remainingNanos = deadline - System.nanoTime();
+                    if (remainingNanos <= 0) {
+                        timedOutCount.increment();
+                        return false;
+                    }
+                    waiter.condition.awaitNanos(remainingNanos);
+                    continue;
+                }
+            } finally {
+                lock.unlock();
+            }
+
+            // only the head reserves, without holding the lock since it may open a connection
+            if (tryReserve.getAsBoolean()) {
+                admittedCount.increment();
+                return true;
+            }
+
+            lock.lockInterruptibly();
+            try {
+                long remainingNanos = deadline - System.nanoTime();
+                if (remainingNanos <= 0) {
+                    timedOutCount.increment();
+                    return false;
+                }
+                if (!waiter.dropped) {
+                    waiter.condition.awaitNanos(Math.min(remainingNanos, TimeUnit.MILLISECONDS.toNanos(RETRY_MILLIS)));
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    private void leave(final Waiter waiter) {
+        lock.lock();
+        try {
+            boolean wasHead = waiters.peekFirst() == waiter;
+            waiters.remove(waiter);
+            queueDepth = waiters.size();
+            if (wasHead) {
+                // the next caller may use the remaining capacity
+                Waiter head = waiters.peekFirst();
+                if (head != null) {
+                    head.condition.signal();
+                }
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * @return number of callers that are waiting now
+     */
+    public int getQueueDepth() {
+        return queueDepth;
+    }
+
+    public int getMaxQueueDepth() {
+        lock.lock();
+        try {
+            return maxQueueDepth;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * @return number of callers that reserved, with or without waiting
+     */
+    public long getAdmittedCount() {
+        return admittedCount.sum();
+    }
+
+    /**
+     * @return number of callers that are turned away because the queue was full
+     */
+    public long getRejectedCount() {
+        return rejectedCount.sum();
+    }
+
+    /**
+     * @return number of callers that could not reserve in max wait time
+     */
+    public long getTimedOutCount() {
+        return timedOutCount.sum();
+    }
+
+    /**
+     * @return mean waiting time of the callers that were queued
+     */
+    public double getMeanWaitMillis() {
+        long queued = queuedCount.sum();
+        return queued == 0 ? 0 : totalWaitNanos.sum() / 1_000_000.0 / queued;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("AdmissionQueue{queueDepth=%d, maxQueueDepth=%d, admittedCount=%d, rejectedCount=%d, " +
+                        "timedOutCount=%d, meanWaitMillis=%.2f}", getQueueDepth(), getMaxQueueDepth(),
+                getAdmittedCount(), getRejectedCount(), getTimedOutCount(), getMeanWaitMillis());
+    }
+
+    private static final class Waiter {
+        private final Condition condition;
+
+        // guarded by lock, rejected by the load shedding policy
+        private boolean dropped;
+
+        private Waiter(Condition condition) {
+            this.condition = condition;
+        }
+    }
+}
@@ -1,7 +1,5 @@
 package org.github.siahsang.redutils.common.connection;
 
-import redis.clients.jedis.Jedis;
-
 import java.util.function.Function;
 
 /**
@@ -31,9 +29,9 @@ public interface ConnectionManager<T> {
 
     void returnBack(T connection);
 
-    <E> E doWithConnection(String resourceId, Function<Jedis, E> operation);
+    <E> E doWithConnection(String resourceId, Function<T, E> operation);
 
-    <E> E doWithConnection(Function<Jedis, E> operation);
+    <E> E doWithConnection(Function<T, E> operation);
 
     int remainingCapacity();
 }
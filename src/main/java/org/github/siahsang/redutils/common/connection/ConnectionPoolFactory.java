@@ -12,6 +12,13 @@ public abstract class ConnectionPoolFactory {
     }
 
     public static GenericObjectPoolConfig<Jedis> makePool(final int maxSize) {
+        return makePool(maxSize, 0);
+    }
+
+    /**
+     * @param minIdle number of idle connections that the evictor keeps open
+     */
+    public static GenericObjectPoolConfig<Jedis> makePool(final int maxSize, final int minIdle) {
         GenericObjectPoolConfig<Jedis> poolConfig = new GenericObjectPoolConfig<>();
         poolConfig.setTestWhileIdle(true);
         poolConfig.setMinEvictableIdleTimeMillis(60000);
@@ -19,6 +26,28 @@ public abstract class ConnectionPoolFactory {
         poolConfig.setNumTestsPerEvictionRun(-1);
 
         poolConfig.setMaxTotal(maxSize);
+        poolConfig.setMinIdle(Math.min(minIdle, maxSize));
+
+        return poolConfig;
+    }
+
+    /**
+     * Pool for {@link ElasticPoolSizer}. Idle connections above min idle are closed after a short idle time and only a
+     * sample of idle connections is validated in each eviction run.
+     *
+     * @param minIdle initial number of idle connections that the evictor keeps open
+     */
+    public static GenericObjectPoolConfig<Jedis> makeElasticPool(final int maxSize, final int minIdle) {
+        GenericObjectPoolConfig<Jedis> poolConfig = new GenericObjectPoolConfig<>();
+        poolConfig.setTestWhileIdle(true);
+        poolConfig.setMinEvictableIdleTimeMillis(-1);
+        poolConfig.setSoftMinEvictableIdleTimeMillis(30000);
+        poolConfig.setTimeBetweenEvictionRunsMillis(10000);
+        poolConfig.setNumTestsPerEvictionRun(ElasticPoolSizer.SAMPLED_TESTS_PER_EVICTION_RUN);
+
+        poolConfig.setMaxTotal(maxSize);
+        poolConfig.setMinIdle(Math.min(minIdle, maxSize));
+        poolConfig.setMaxIdle(Math.min(minIdle, maxSize));
 
         return poolConfig;
     }
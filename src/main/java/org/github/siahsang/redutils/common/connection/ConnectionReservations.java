@@ -0,0 +1,254 @@
+package org.github.siahsang.redutils.common.connection;
+
+import org.github.siahsang.redutils.exception.BadRequestException;
+import org.github.siahsang.redutils.exception.InsufficientResourceException;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+
+/**
+ * Bookkeeping of reserved connections. Every resource id has its own {@link Reservation}, so threads only contend on
+ * the shared capacity counter when they reserve or free connections. Borrowing and putting back a connection does not
+ * allocate anything.
+ *
+ * @author Javad Alimohammadi
+ */
+public class ConnectionReservations<T> {
+
+    private final int maxCapacity;
+
+    private final AtomicInteger capacity;
+
+    // highest number of reserved connections since the last call of takePeakReserved
+    private final AtomicInteger peakReserved = new AtomicInteger();
+
+    private final LongAdder failedReservations = new LongAdder();
+
+    private final Map<String, Reservation<T>> reservations = new ConcurrentHashMap<>();
+
+    public ConnectionReservations(int capacity) {
+        this.maxCapacity = capacity;
+        this.capacity = new AtomicInteger(capacity);
+    }
+
+    /**
+     * Take the capacity for the given number of connections
+     *
+     * @return false if there is not enough capacity
+     */
+    public boolean tryReserve(final int size) {
+        while (true) {
+            int current = capacity.get();
+            if (current < size) {
+                failedReservations.increment();
+                return false;
+            }
+            if (capacity.compareAndSet(current, current - size)) {
+                peakReserved.accumulateAndGet(maxCapacity - current + size, Math::max);
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Give back the capacity that is taken by {@link #tryReserve(int)} but could not be used
+     */
+    void cancelReserve(final int size) {
+        capacity.addAndGet(size);
+    }
+
+    /**
+     * Add connections, for which the capacity is already taken, to the reservation of the resource id
+     */
+    public void add(final String resourceId, final List<T> connections) {
+        reservations.computeIfAbsent(resourceId, id -> new Reservation<>()).add(connections);
+    }
+
+    public T borrow(final String resourceId) {
+        T connection = getReservation(resourceId).poll();
+        if (connection == null) {
+            throw new InsufficientResourceException("There is no any free connection. Try later!");
+        }
+
+        return connection;
+    }
+
+    /**
+     * Put the borrowed connection back into its reservation
+     *
+     * @return false if the reservation is already freed, then the caller owns the connection
+     */
+    public boolean putBack(final String resourceId, final T connection) {
+        Reservation<T> reservation = reservations.get(resourceId);
+        return reservation != null && reservation.push(connection);
+    }
+
+    /**
+     * Remove a borrowed connection from the reservation and give back its capacity
+     */
+    void release(final String resourceId) {
+        getReservation(resourceId).shrink();
+        capacity.incrementAndGet();
+    }
+
+    /**
+     * Remove the reservation and give back its capacity
+     *
+     * @param closer called for each connection that is not borrowed
+     */
+    public void free(final String resourceId, final Consumer<T> closer) {
+        Reservation<T> reservation = reservations.remove(resourceId);
+        if (reservation == null) {
+            throw new BadRequestException(invalidResourceIdMessage(resourceId));
+        }
+
+        capacity.addAndGet(reservation.close(closer));
+    }
+
+    int remainingCapacity() {
+        return capacity.get();
+    }
+
+    int reservedCount() {
+        return maxCapacity - capacity.get();
+    }
+
+    /**
+     * @return highest number of reserved connections since the last call, the next period starts from the current
+     * number
+     */
+    int takePeakReserved() {
+        return peakReserved.getAndSet(reservedCount());
+    }
+
+    /**
+     * @return number of reservations that failed for lack of capacity since the last call
+     */
+    long takeFailedReservations() {
+        return failedReservations.sumThenReset();
+    }
+
+    private Reservation<T> getReservation(final String resourceId) {
+        Reservation<T> reservation = reservations.get(resourceId);
+        if (reservation == null) {
+            throw new BadRequestException(invalidResourceIdMessage(resourceId));
+        }
+
+        return reservation;
+    }
+
+    private String invalidResourceIdMessage(String resourceId) {
+        return String.format("Invalid resource_id %s", resourceId);
+    }
+
+    /**
+     * Connections of one resource id. It is mostly used by a single thread, so its lock is almost never contended. It is
+     * not a monitor, since its callers may be virtual threads.
+     */
+    private static final class Reservation<T> {
+        private final ReentrantLock lock = new ReentrantLock();
+
+        // guarded by lock, idle connections as a stack
+        private Object[] idleConnections = new Object[2];
+
+        private int idleCount;
+
+        // number of connections that are not given back yet, including borrowed ones
+        private int size;
+
+        private boolean closed;
+
+        void add(final List<T> connections) {
+            lock.lock();
+            try {
+                ensureCapacity(idleCount + connections.size());
+                for (T connection : connections) {
+                    idleConnections[idleCount++] = connection;
+                }
+                size += connections.size();
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        @SuppressWarnings("unchecked")
+        T poll() {
+            lock.lock();
+            try {
+                if (idleCount == 0) {
+                    return null;
+                }
+
+                T connection = (T) idleConnections[--idleCount];
+                idleConnections[idleCount] = null;
+                return connection;
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        boolean push(final T connection) {
+            lock.lock();
+            try {
+                if (closed) {
+                    return false;
+                }
+
+                ensureCapacity(idleCount + 1);
+                idleConnections[idleCount++] = connection;
+                return true;
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        void shrink() {
+            lock.lock();
+            try {
+                size--;
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        /**
+         * @return number of connections that were reserved
+         */
+        @SuppressWarnings("unchecked")
+        int close(final Consumer<T> closer) {
+            final Object[] closedConnections;
+            final int closedCount;
+            final int reservedSize;
+            lock.lock();
+            try {
+                closed = true;
+                closedConnections = idleConnections;
+                closedCount = idleCount;
+                reservedSize = size;
+                idleConnections = new Object[0];
+                idleCount = 0;
+            } finally {
+                lock.unlock();
+            }
+
+            // closing may do I/O, so it is done outside of the lock
+            for (int i = 0; i < closedCount; i++) {
+                closer.accept((T) closedConnections[i]);
+            }
+
+            return reservedSize;
+        }
+
+        private void ensureCapacity(final int minCapacity) {
+            if (minCapacity > idleConnections.length) {
+                idleConnections = Arrays.copyOf(idleConnections, Math.max(minCapacity, idleConnections.length * 2));
+            }
+        }
+    }
+}
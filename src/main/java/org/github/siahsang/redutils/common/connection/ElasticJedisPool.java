@@ -0,0 +1,44 @@
+package org.github.siahsang.redutils.common.connection;
+
+import org.apache.commons.pool2.impl.GenericObjectPoolConfig;
+import redis.clients.jedis.Jedis;
+import redis.clients.jedis.JedisPool;
+
+/**
+ * Jedis pool whose idle bounds and idle validation can be changed while it is used
+ *
+ * @author Javad Alimohammadi
+ */
+class ElasticJedisPool extends JedisPool {
+
+    ElasticJedisPool(GenericObjectPoolConfig<Jedis> poolConfig, String host, int port, int timeout) {
+        super(poolConfig, host, port, timeout);
+    }
+
+    /**
+     * Idle connections above max idle are closed when they are returned and the evictor opens connections up to min
+     * idle
+     */
+    void setIdleBounds(final int minIdle, final int maxIdle) {
+        internalPool.setMaxIdle(maxIdle);
+        internalPool.setMinIdle(minIdle);
+    }
+
+    /**
+     * @param numTestsPerEvictionRun a negative value -n tests one n-th of idle connections in each eviction run
+     */
+    void setNumTestsPerEvictionRun(final int numTestsPerEvictionRun) {
+        internalPool.setNumTestsPerEvictionRun(numTestsPerEvictionRun);
+    }
+
+    /**
+     * @return number of connections that are closed by the evictor because they were idle too long or failed validation
+     */
+    long getDestroyedByEvictorCount() {
+        return internalPool.getDestroyedByEvictorCount();
+    }
+
+    int getMinIdle() {
+        return internalPool.getMinIdle();
+    }
+}
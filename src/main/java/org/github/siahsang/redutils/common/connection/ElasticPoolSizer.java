@@ -0,0 +1,119 @@
+package org.github.siahsang.redutils.common.connection;
+
+import org.github.siahsang.redutils.common.HashedWheelTimer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Periodically fit the number of idle connections of the pool to the peak number of reserved connections in the last
+ * period, between the configured bounds. The pool grows at once and shrinks by half of the surplus in each period, so
+ * short gaps between bursts do not close connections that are needed again.
+ * <p>
+ * Idle connections are validated by sampling a part of them in each eviction run. If the evictor closed connections in
+ * the last period, the next run validates all of them.
+ *
+ * @author Javad Alimohammadi
+ */
+class ElasticPoolSizer {
+    private static final Logger log = LoggerFactory.getLogger(ElasticPoolSizer.class);
+
+    // validate a quarter of idle connections in each eviction run
+    static final int SAMPLED_TESTS_PER_EVICTION_RUN = -4;
+
+    static final int ALL_TESTS_PER_EVICTION_RUN = -1;
+
+    private final ElasticJedisPool pool;
+
+    private final ConnectionReservations<?> reservations;
+
+    private final int minPoolSize;
+
+    private final int maxPoolSize;
+
+    private final long sizingPeriodMillis;
+
+    private final HashedWheelTimer timer;
+
+    private final HashedWheelTimer.BatchTask<ElasticPoolSizer> sizingTask = sizers -> sizers.forEach(ElasticPoolSizer::resize);
+
+    // only used by the timer thread
+    private int idleTarget;
+
+    private long lastDestroyedByEvictorCount;
+
+    private volatile boolean running = true;
+
+    ElasticPoolSizer(ElasticJedisPool pool, ConnectionReservations<?> reservations, int minPoolSize, int maxPoolSize,
+                     long sizingPeriodMillis) {
+        this.pool = pool;
+        this.reservations = reservations;
+        this.minPoolSize = minPoolSize;
+        this.maxPoolSize = maxPoolSize;
+        this.sizingPeriodMillis = sizingPeriodMillis;
+        this.timer = HashedWheelTimer.shared();
+        this.idleTarget = minPoolSize;
+    }
+
+    void start() {
+        pool.setIdleBounds(idleTarget, idleTarget);
+        pool.setNumTestsPerEvictionRun(SAMPLED_TESTS_PER_EVICTION_RUN);
+        schedule();
+    }
+
+    void stop() {
+        running = false;
+    }
+
+    /**
+     * @return number of idle connections for the next period
+     */
+    static int nextIdleTarget(final int currentTarget, final int peakReserved, final int minPoolSize,
+                              final int maxPoolSize) {
+        // keep a quarter more than the peak for the next burst
+        final int demand = Math.min(maxPoolSize, Math.max(minPoolSize, peakReserved + (peakReserved + 3) / 4));
+        if (demand >= currentTarget) {
+            return demand;
+        }
+
+        return currentTarget - Math.max(1, (currentTarget - demand) / 2);
+    }
+
+    private void resize() {
+        if (!running) {
+            return;
+        }
+
+        try {
+            final int peakReserved = reservations.takePeakReserved();
+            final long failedReservations = reservations.takeFailedReservations();
+            final int nextTarget = nextIdleTarget(idleTarget, peakReserved, minPoolSize, maxPoolSize);
+            if (nextTarget != idleTarget) {
+                log.debug("Resizing idle connections from [{}] to [{}], peak of reserved connections is [{}]",
+                        idleTarget, nextTarget, peakReserved);
+                idleTarget = nextTarget;
+                pool.setIdleBounds(idleTarget, idleTarget);
+            }
+            if (failedReservations > 0) {
+                log.warn("[{}] reservation(s) failed since the pool reached its max size [{}]", failedReservations,
+                        maxPoolSize);
+            }
+
+            final long destroyedByEvictorCount = pool.getDestroyedByEvictorCount();
+            pool.setNumTestsPerEvictionRun(destroyedByEvictorCount > lastDestroyedByEvictorCount
+                    ? ALL_TESTS_PER_EVICTION_RUN : SAMPLED_TESTS_PER_EVICTION_RUN);
+            lastDestroyedByEvictorCount = destroyedByEvictorCount;
+        } catch (Exception ex) {
+            log.debug("Error in resizing the pool", ex);
+        } finally {
+            schedule();
+        }
+    }
+
+    private void schedule() {
+        if (running) {
+            timer.schedule(sizingTask, this, sizingPeriodMillis, TimeUnit.MILLISECONDS);
+        }
+    }
+}
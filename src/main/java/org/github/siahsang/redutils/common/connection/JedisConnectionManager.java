@@ -4,7 +4,6 @@ import org.apache.commons.pool2.impl.GenericObjectPoolConfig;
 import org.github.siahsang.redutils.common.RedUtilsConfig;
 import org.github.siahsang.redutils.common.ThreadManager;
 import org.github.siahsang.redutils.exception.BadRequestException;
-import org.github.siahsang.redutils.exception.InsufficientResourceException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import redis.clients.jedis.Jedis;
@@ -12,11 +11,6 @@ import redis.clients.jedis.JedisPool;
 
 import java.util.ArrayList;
 import java.util.List;
-import java.util.Map;
-import java.util.Objects;
-import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.atomic.AtomicBoolean;
-import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.Function;
 
 /**
@@ -26,47 +20,84 @@ import java.util.function.Function;
 public class JedisConnectionManager implements ConnectionManager<Jedis> {
     private static final Logger log = LoggerFactory.getLogger(JedisConnectionManager.class);
 
-    private final AtomicInteger capacity = new AtomicInteger(0);
-
-    private final Map<String, List<Jedis>> reservedConnections = new ConcurrentHashMap<>();
-
+    private final ConnectionReservations<Jedis> reservations;
 
     private final JedisPool channelConnectionPool;
 
+    private final ElasticPoolSizer poolSizer;
+
     public JedisConnectionManager(RedUtilsConfig redUtilsConfig) {
-        this.capacity.set(redUtilsConfig.getLockMaxPoolSize());
+        this.reservations = new ConnectionReservations<>(redUtilsConfig.getLockMaxPoolSize());
+
+        if (redUtilsConfig.isElasticPoolEnabled()) {
+            final int minPoolSize = Math.min(redUtilsConfig.getMinPoolSize(), redUtilsConfig.getLockMaxPoolSize());
+            GenericObjectPoolConfig<Jedis> lockPoolConfig = ConnectionPoolFactory.makeElasticPool(
+                    redUtilsConfig.getLockMaxPoolSize(), minPoolSize);
+            ElasticJedisPool elasticPool = new ElasticJedisPool(lockPoolConfig,
+                    redUtilsConfig.getHostAddress(),
+                    redUtilsConfig.getPort(),
+                    redUtilsConfig.getReadTimeOutMillis()
+            );
+            this.channelConnectionPool = elasticPool;
+            this.poolSizer = new ElasticPoolSizer(elasticPool, reservations, minPoolSize,
+                    redUtilsConfig.getLockMaxPoolSize(), redUtilsConfig.getPoolSizingPeriodMillis());
+            this.poolSizer.start();
+        } else {
+            GenericObjectPoolConfig<Jedis> lockPoolConfig = ConnectionPoolFactory.makePool(redUtilsConfig.getLockMaxPoolSize(),
+                    redUtilsConfig.getMinIdleConnections());
+            this.channelConnectionPool = new JedisPool(lockPoolConfig,
+                    redUtilsConfig.getHostAddress(),
+                    redUtilsConfig.getPort(),
+                    redUtilsConfig.getReadTimeOutMillis()
+            );
+            this.poolSizer = null;
+        }
+    }
+
+    /**
+     * Open idle connections in the pool, so the first callers do not pay for connecting
+     *
+     * @param count number of connections, limited to the pool size
+     */
+    public void prefill(final int count) {
+        final int missingConnections = Math.min(count, reservations.remainingCapacity()) - channelConnectionPool.getNumIdle();
+        if (missingConnections > 0) {
+            channelConnectionPool.addObjects(missingConnections);
+            log.debug("Opened [{}] idle connection(s)", missingConnections);
+        }
+    }
 
-        GenericObjectPoolConfig<Jedis> lockPoolConfig = ConnectionPoolFactory.makePool(capacity.get());
-        this.channelConnectionPool = new JedisPool(lockPoolConfig,
-                redUtilsConfig.getHostAddress(),
-                redUtilsConfig.getPort(),
-                redUtilsConfig.getReadTimeOutMillis()
-        );
+    /**
+     * Stop resizing the pool and close its idle connections
+     */
+    public void shutdown() {
+        if (poolSizer != null) {
+            poolSizer.stop();
+        }
+        channelConnectionPool.close();
     }
 
     @Override
     public boolean reserve(final String resourceId, final int size) {
-        AtomicBoolean reservedSuccessfully = new AtomicBoolean(false);
-        capacity.updateAndGet(operand -> {
-            if (operand - size >= 0) {
-                reservedSuccessfully.set(true);
-                return operand - size;
-            } else {
-                reservedSuccessfully.set(false);
-                return operand;
-            }
-        });
+        if (!reservations.tryReserve(size)) {
+            return false;
+        }
 
-        if (reservedSuccessfully.get()) {
-            reservedConnections.putIfAbsent(resourceId, new ArrayList<>());
+        List<Jedis> resources = new ArrayList<>(size);
+        try {
             for (int i = 0; i < size; i++) {
-                Jedis resource = channelConnectionPool.getResource();
-                reservedConnections.get(resourceId).add(resource);
-                log.trace("Reserved connection with resource_id [{}] successfully.", resourceId);
+                resources.add(channelConnectionPool.getResource());
             }
+        } catch (RuntimeException ex) {
+            resources.forEach(Jedis::close);
+            reservations.cancelReserve(size);
+            throw ex;
         }
 
-        return reservedSuccessfully.get();
+        reservations.add(resourceId, resources);
+        log.trace("Reserved [{}] connection(s) with resource_id [{}] successfully.", size, resourceId);
+
+        return true;
     }
 
     @Override
@@ -84,23 +115,7 @@ public class JedisConnectionManager implements ConnectionManager<Jedis> {
 
     @Override
     public Jedis borrow(final String resourceId) {
-        List<Jedis> returnList = new ArrayList<>();
-        reservedConnections.compute(resourceId, (s, jedisList) -> {
-            if (Objects.isNull(jedisList)) {
-                throw new BadRequestException(invalidResourceIdMessage(resourceId));
-            }
-
-            if (jedisList.isEmpty()) {
-                throw new InsufficientResourceException("There is no any free connection. Try later!");
-            }
-
-            Jedis jedis = jedisList.remove(jedisList.size() - 1);
-            returnList.add(jedis);
-
-            return jedisList;
-        });
-
-        return returnList.get(0);
+        return reservations.borrow(resourceId);
     }
 
     @Override
@@ -109,17 +124,13 @@ public class JedisConnectionManager implements ConnectionManager<Jedis> {
         return borrow(connectionId);
     }
 
+    /**
+     * Give the borrowed connection back to the pool, it is not part of the reservation anymore
+     */
     @Override
     public void returnBack(final String resourceId, final Jedis connection) {
-        reservedConnections.compute(resourceId, (s, jedisList) -> {
-            if (Objects.isNull(jedisList)) {
-                throw new BadRequestException(invalidResourceIdMessage(resourceId));
-            }
-            jedisList.add(connection);
-            return jedisList;
-        });
-
-        capacity.incrementAndGet();
+        reservations.release(resourceId);
+        connection.close();
     }
 
     @Override
@@ -135,7 +146,13 @@ public class JedisConnectionManager implements ConnectionManager<Jedis> {
         try {
             return operation.apply(jedis);
         } finally {
-            returnBack(resourceId, jedis);
+            if (jedis.getClient().isBroken()) {
+                // the reply of a timed out command may still arrive, so the connection is not used again
+                discard(resourceId, jedis);
+            } else if (!reservations.putBack(resourceId, jedis)) {
+                // reservation is freed during the operation
+                jedis.close();
+            }
         }
     }
 
@@ -145,27 +162,25 @@ public class JedisConnectionManager implements ConnectionManager<Jedis> {
         return doWithConnection(connectionId, operation);
     }
 
+    private void discard(final String resourceId, final Jedis jedis) {
+        try {
+            reservations.release(resourceId);
+        } catch (BadRequestException ex) {
+            // reservation is freed during the operation
+        }
+        jedis.close();
+    }
+
     @Override
     public int remainingCapacity() {
-        return capacity.get();
+        return reservations.remainingCapacity();
     }
 
 
     @Override
     public void free(String resourceId) {
-        reservedConnections.compute(resourceId, (s, jedisList) -> {
-            if (Objects.isNull(jedisList)) {
-                throw new BadRequestException(invalidResourceIdMessage(resourceId));
-            }
-
-            if (!jedisList.isEmpty()) {
-                jedisList.forEach(Jedis::close);
-            }
-
-            jedisList.clear();
-            log.debug("Free connections for resource_id [{}] successfully", resourceId);
-            return null;
-        });
+        reservations.free(resourceId, Jedis::close);
+        log.debug("Free connections for resource_id [{}] successfully", resourceId);
     }
 
     @Override
@@ -174,8 +189,4 @@ public class JedisConnectionManager implements ConnectionManager<Jedis> {
         free(connectionId);
     }
 
-
-    private String invalidResourceIdMessage(String resourceId) {
-        return String.format("Invalid resource_id %s", resourceId);
-    }
 }
@@ -0,0 +1,152 @@
+package org.github.siahsang.redutils.common.connection;
+
+import org.github.siahsang.redutils.common.RedUtilsConfig;
+import org.github.siahsang.redutils.common.ThreadManager;
+import org.github.siahsang.redutils.exception.BadRequestException;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Function;
+
+/**
+ * Connection manager with a few non-blocking connections that are shared by all threads, all of them are served by one
+ * event loop thread. Since a connection is never owned by a thread, reserving always succeeds and only keeps track of
+ * resource ids.
+ *
+ * @author Javad Alimohammadi
+ */
+public class NioConnectionManager implements ConnectionManager<RespConnection> {
+
+    private final RedUtilsConfig redUtilsConfig;
+
+    private final RespEventLoop eventLoop = new RespEventLoop("red-utils-resp");
+
+    private final RespConnection[] connections;
+
+    private final AtomicInteger nextConnection = new AtomicInteger();
+
+    // guards opening the shared connections
+    private final ReentrantLock connectLock = new ReentrantLock();
+
+    private final Map<String, Boolean> reservedResourceIds = new ConcurrentHashMap<>();
+
+    public NioConnectionManager(RedUtilsConfig redUtilsConfig) {
+        this.redUtilsConfig = redUtilsConfig;
+        this.connections = new RespConnection[redUtilsConfig.getPipelineConnectionCount()];
+    }
+
+    /**
+     * Always succeeds, there is no limit on the callers of the shared connections. {@link
+     * org.github.siahsang.redutils.common.redis.NioCommandExecutor} does not require a reservation, so the lock does not
+     * call it while acquiring, nor waits in the admission queue for it.
+     *
+     * @return true
+     */
+    @Override
+    public boolean reserve(final String resourceId, final int size) {
+        reservedResourceIds.put(resourceId, Boolean.TRUE);
+        return true;
+    }
+
+    @Override
+    public void free(final String resourceId) {
+        if (reservedResourceIds.remove(resourceId) == null) {
+            throw new BadRequestException(invalidResourceIdMessage(resourceId));
+        }
+    }
+
+    @Override
+    public void free() {
+        free(ThreadManager.getName());
+    }
+
+    /**
+     * @return true, see {@link #reserve(String, int)}
+     */
+    @Override
+    public boolean reserve(final int size) {
+        return reserve(ThreadManager.createUniqiueName(), size);
+    }
+
+    /**
+     * @return true, see {@link #reserve(String, int)}
+     */
+    @Override
+    public boolean reserveOne() {
+        return reserve(ThreadManager.createUniqiueName(), 1);
+    }
+
+    @Override
+    public RespConnection borrow(final String resourceId) {
+        if (!reservedResourceIds.containsKey(resourceId)) {
+            throw new BadRequestException(invalidResourceIdMessage(resourceId));
+        }
+
+        return next();
+    }
+
+    @Override
+    public RespConnection borrow() {
+        return borrow(ThreadManager.getName());
+    }
+
+    @Override
+    public void returnBack(final String resourceId, final RespConnection connection) {
+        // connections are shared, nothing to give back
+    }
+
+    @Override
+    public void returnBack(final RespConnection connection) {
+        returnBack(ThreadManager.getName(), connection);
+    }
+
+    @Override
+    public <E> E doWithConnection(final String resourceId, final Function<RespConnection, E> operation) {
+        return operation.apply(borrow(resourceId));
+    }
+
+    @Override
+    public <E> E doWithConnection(final Function<RespConnection, E> operation) {
+        return doWithConnection(ThreadManager.getName(), operation);
+    }
+
+    @Override
+    public int remainingCapacity() {
+        return Integer.MAX_VALUE;
+    }
+
+    /**
+     * @return the next shared connection, a closed connection is opened again
+     */
+    public RespConnection next() {
+        final int index = Math.floorMod(nextConnection.getAndIncrement(), connections.length);
+        RespConnection connection = connections[index];
+        if (connection != null && !connection.isClosed()) {
+            return connection;
+        }
+
+        // not a monitor, connecting would pin the carrier of a virtual thread
+        connectLock.lock();
+        try {
+            connection = connections[index];
+            if (connection == null || connection.isClosed()) {
+                connection = RespConnection.open(redUtilsConfig.getHostAddress(), redUtilsConfig.getPort(),
+                        redUtilsConfig.getReadTimeOutMillis(), eventLoop);
+                connections[index] = connection;
+            }
+            return connection;
+        } finally {
+            connectLock.unlock();
+        }
+    }
+
+    public void shutdown() {
+        eventLoop.shutdown();
+    }
+
+    private String invalidResourceIdMessage(String resourceId) {
+        return String.format("Invalid resource_id %s", resourceId);
+    }
+}
@@ -0,0 +1,262 @@
+package org.github.siahsang.redutils.common.connection;
+
+import org.github.siahsang.redutils.exception.RedisReplyException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Non-blocking Redis connection that is shared by many threads. Commands are written in the order they are sent and
+ * Redis replies in the same order, so each reply completes the oldest pending future. Commands that are sent while a
+ * write is in progress are written together with the next write.
+ *
+ * @author Javad Alimohammadi
+ */
+public class RespConnection {
+    private static final Logger log = LoggerFactory.getLogger(RespConnection.class);
+
+    private static final byte[] CRLF = "\r\n".getBytes(StandardCharsets.US_ASCII);
+
+    private final SocketChannel channel;
+
+    private final RespEventLoop eventLoop;
+
+    private final RespReader reader = new RespReader();
+
+    // not a monitor, callers may be virtual threads
+    private final ReentrantLock lock = new ReentrantLock();
+
+    // guarded by lock, in the same order as written commands
+    private final Queue<CompletableFuture<Object>> pendingReplies = new ArrayDeque<>();
+
+    // guarded by lock
+    private final Queue<ByteBuffer> outbound = new ArrayDeque<>();
+
+    // guarded by lock
+    private boolean closed;
+
+    private final AtomicBoolean flushScheduled = new AtomicBoolean(false);
+
+    // only used by the event loop thread
+    private SelectionKey selectionKey;
+
+    private RespConnection(SocketChannel channel, RespEventLoop eventLoop) {
+        this.channel = channel;
+        this.eventLoop = eventLoop;
+    }
+
+    /**
+     * Connect with a blocking socket and then hand it over to the event loop
+     */
+    static RespConnection open(final String host, final int port, final int connectTimeOutMillis,
+                               final RespEventLoop eventLoop) {
+        try {
+            SocketChannel channel = SocketChannel.open();
+            channel.socket().connect(new InetSocketAddress(host, port), connectTimeOutMillis);
+            channel.socket().setTcpNoDelay(true);
+            channel.configureBlocking(false);
+
+            RespConnection connection = new RespConnection(channel, eventLoop);
+            eventLoop.execute(connection::register);
+            return connection;
+        } catch (IOException ex) {
+            throw new UncheckedIOException(String.format("Could not connect to %s:%d", host, port), ex);
+        }
+    }
+
+    /**
+     * Send the command, the future is completed on the event loop thread when its reply is received
+     *
+     * @param args encoded command and its arguments
+     */
+    public CompletableFuture<Object> send(final byte[]... args) {
+        final CompletableFuture<Object> reply = new CompletableFuture<>();
+        final ByteBuffer command = encode(args);
+        lock.lock();
+        try {
+            if (closed) {
+                reply.completeExceptionally(new UncheckedIOException(new IOException("Connection is closed")));
+                return reply;
+            }
+            pendingReplies.add(reply);
+            outbound.add(command);
+        } finally {
+            lock.unlock();
+        }
+
+        if (flushScheduled.compareAndSet(false, true)) {
+            eventLoop.execute(this::flush);
+        }
+
+        return reply;
+    }
+
+    public boolean isClosed() {
+        lock.lock();
+        try {
+            return closed;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public void close() {
+        close(new UncheckedIOException(new IOException("Connection is closed")));
+    }
+
+    void close(final Exception cause) {
+        final List<CompletableFuture<Object>> failedReplies;
+        lock.lock();
+        try {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            failedReplies = new ArrayList<>(pendingReplies);
+            pendingReplies.clear();
+            outbound.clear();
+        } finally {
+            lock.unlock();
+        }
+
+        try {
+            channel.close();
+        } catch (IOException ex) {
+            log.debug("Error in closing connection", ex);
+        }
+        failedReplies.forEach(reply -> reply.completeExceptionally(cause));
+    }
+
+    void onReadable() {
+        try {
+            if (reader.readFrom(channel) < 0) {
+                close(new UncheckedIOException(new IOException("Connection is closed by the server")));
+                return;
+            }
+
+            Object reply;
+            while ((reply = reader.next()) != RespReader.INCOMPLETE) {
+                final CompletableFuture<Object> pendingReply;
+                lock.lock();
+                try {
+                    pendingReply = pendingReplies.poll();
+                } finally {
+                    lock.unlock();
+                }
+                if (pendingReply == null) {
+                    throw new IllegalStateException("Received a reply without any pending command");
+                }
+
+                if (reply instanceof RedisReplyException) {
+                    pendingReply.completeExceptionally((RedisReplyException) reply);
+                } else {
+                    pendingReply.complete(reply);
+                }
+            }
+        } catch (IOException ex) {
+            close(new UncheckedIOException(ex));
+        } catch (RuntimeException ex) {
+            close(ex);
+        }
+    }
+
+    void onWritable() {
+        flush();
+    }
+
+    private void register() {
+        try {
+            selectionKey = channel.register(eventLoop.selector(), SelectionKey.OP_READ, this);
+        } catch (IOException ex) {
+            close(new UncheckedIOException(ex));
+        }
+    }
+
+    private void flush() {
+        if (selectionKey == null || !selectionKey.isValid()) {
+            // not registered yet or closed, register() runs before this task
+            return;
+        }
+
+        flushScheduled.set(false);
+        try {
+            final ByteBuffer[] buffers;
+            lock.lock();
+            try {
+                buffers = outbound.toArray(new ByteBuffer[0]);
+            } finally {
+                lock.unlock();
+            }
+            // the socket is written outside of the lock
+            if (buffers.length > 0) {
+                channel.write(buffers);
+            }
+
+            boolean hasRemaining = false;
+            lock.lock();
+            try {
+                while (!outbound.isEmpty() && !outbound.peek().hasRemaining()) {
+                    outbound.poll();
+                }
+                hasRemaining = !outbound.isEmpty();
+            } finally {
+                lock.unlock();
+            }
+
+            // wait for the socket to be writable again, instead of spinning
+            selectionKey.interestOps(hasRemaining ? SelectionKey.OP_READ | SelectionKey.OP_WRITE : SelectionKey.OP_READ);
+        } catch (IOException ex) {
+            close(new UncheckedIOException(ex));
+        }
+    }
+
+    private static ByteBuffer encode(final byte[][] args) {
+        int size = 1 + digits(args.length) + 2;
+        for (byte[] arg : args) {
+            size += 1 + digits(arg.length) + 2 + arg.length + 2;
+        }
+
+        final ByteBuffer buffer = ByteBuffer.allocate(size);
+        putLength(buffer.put((byte) '*'), args.length).put(CRLF);
+        for (byte[] arg : args) {
+            putLength(buffer.put((byte) '$'), arg.length).put(CRLF);
+            buffer.put(arg).put(CRLF);
+        }
+        buffer.flip();
+
+        return buffer;
+    }
+
+    private static ByteBuffer putLength(final ByteBuffer buffer, final int length) {
+        int divisor = 1;
+        while (divisor <= length / 10) {
+            divisor *= 10;
+        }
+        for (; divisor > 0; divisor /= 10) {
+            buffer.put((byte) ('0' + length / divisor % 10));
+        }
+        return buffer;
+    }
+
+    private static int digits(final int value) {
+        int digits = 1;
+        for (int remaining = value; remaining >= 10; remaining /= 10) {
+            digits++;
+        }
+        return digits;
+    }
+}
@@ -0,0 +1,105 @@
+package org.github.siahsang.redutils.common.connection;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.util.Iterator;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * One thread that does all socket reads and writes of {@link RespConnection}s with a selector
+ *
+ * @author Javad Alimohammadi
+ */
+class RespEventLoop implements Runnable {
+    private static final Logger log = LoggerFactory.getLogger(RespEventLoop.class);
+
+    private final Selector selector;
+
+    private final Queue<Runnable> tasks = new ConcurrentLinkedQueue<>();
+
+    private final Thread thread;
+
+    private volatile boolean running = true;
+
+    RespEventLoop(final String name) {
+        try {
+            this.selector = Selector.open();
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+
+        // stays a platform thread, a selector blocks its carrier while selecting
+        this.thread = new Thread(this, name);
+        this.thread.setDaemon(true);
+        this.thread.start();
+    }
+
+    /**
+     * Run the task on the event loop thread
+     */
+    void execute(final Runnable task) {
+        tasks.add(task);
+        if (Thread.currentThread() != thread) {
+            selector.wakeup();
+        }
+    }
+
+    Selector selector() {
+        return selector;
+    }
+
+    void shutdown() {
+        running = false;
+        selector.wakeup();
+    }
+
+    @Override
+    public void run() {
+        while (running) {
+            try {
+                selector.select();
+                runTasks();
+
+                Iterator<SelectionKey> selectedKeys = selector.selectedKeys().iterator();
+                while (selectedKeys.hasNext()) {
+                    SelectionKey key = selectedKeys.next();
+                    selectedKeys.remove();
+                    RespConnection connection = (RespConnection) key.attachment();
+                    if (!key.isValid()) {
+                        continue;
+                    }
+                    if (key.isReadable()) {
+                        connection.onReadable();
+                    }
+                    if (key.isValid() && key.isWritable()) {
+                        connection.onWritable();
+                    }
+                }
+            } catch (Exception ex) {
+                log.error("Error in RESP event loop", ex);
+            }
+        }
+
+        for (SelectionKey key : selector.keys()) {
+            ((RespConnection) key.attachment()).close(new IllegalStateException("Event loop is shut down"));
+        }
+        try {
+            selector.close();
+        } catch (IOException ex) {
+            log.debug("Error in closing selector", ex);
+        }
+    }
+
+    private void runTasks() {
+        Runnable task;
+        while ((task = tasks.poll()) != null) {
+            task.run();
+        }
+    }
+}
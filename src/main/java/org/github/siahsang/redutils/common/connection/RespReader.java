@@ -0,0 +1,134 @@
+package org.github.siahsang.redutils.common.connection;
+
+import org.github.siahsang.redutils.exception.RedisReplyException;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Incremental reader of RESP replies. Bytes are appended as they arrive and a reply is returned when it is complete.
+ * Replies are converted like Jedis does for scripts: strings to {@link String}, integers to {@link Long}, arrays to
+ * {@link List} and errors inside arrays to {@link RedisReplyException}.
+ *
+ * @author Javad Alimohammadi
+ */
+class RespReader {
+    /**
+     * Returned when the buffered bytes do not contain a complete reply yet
+     */
+    static final Object INCOMPLETE = new Object();
+
+    private ByteBuffer buffer = ByteBuffer.allocate(16 * 1024);
+
+    /**
+     * @return number of read bytes, or -1 if the channel is closed
+     */
+    int readFrom(final ReadableByteChannel channel) throws IOException {
+        if (!buffer.hasRemaining()) {
+            ByteBuffer bigger = ByteBuffer.allocate(buffer.capacity() * 2);
+            buffer.flip();
+            bigger.put(buffer);
+            buffer = bigger;
+        }
+
+        return channel.read(buffer);
+    }
+
+    /**
+     * @return the next complete reply, or {@link #INCOMPLETE}. An error reply is returned as
+     * {@link RedisReplyException}.
+     */
+    Object next() {
+        buffer.flip();
+        final int start = buffer.position();
+        Object reply;
+        try {
+            reply = parse(buffer);
+        } catch (RuntimeException ex) {
+            buffer.compact();
+            throw ex;
+        }
+
+        if (reply == INCOMPLETE) {
+            buffer.position(start);
+        }
+        buffer.compact();
+
+        return reply;
+    }
+
+    private Object parse(final ByteBuffer input) {
+        if (!input.hasRemaining()) {
+            return INCOMPLETE;
+        }
+
+        final byte type = input.get();
+        final String line = readLine(input);
+        if (line == null) {
+            return INCOMPLETE;
+        }
+
+        switch (type) {
+            case '+':
+                return line;
+            case '-':
+                return new RedisReplyException(line);
+            case ':':
+                return Long.parseLong(line);
+            case '$':
+                return parseBulkString(input, Integer.parseInt(line));
+            case '*':
+                return parseArray(input, Integer.parseInt(line));
+            default:
+                throw new IllegalStateException("Unknown RESP type " + (char) type);
+        }
+    }
+
+    private Object parseBulkString(final ByteBuffer input, final int length) {
+        if (length < 0) {
+            return null;
+        }
+        if (input.remaining() < length + 2) {
+            return INCOMPLETE;
+        }
+
+        final String value = new String(input.array(), input.arrayOffset() + input.position(), length,
+                StandardCharsets.UTF_8);
+        input.position(input.position() + length + 2);
+        return value;
+    }
+
+    private Object parseArray(final ByteBuffer input, final int size) {
+        if (size < 0) {
+            return null;
+        }
+
+        final List<Object> elements = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            Object element = parse(input);
+            if (element == INCOMPLETE) {
+                return INCOMPLETE;
+            }
+            elements.add(element);
+        }
+
+        return elements;
+    }
+
+    private String readLine(final ByteBuffer input) {
+        final int start = input.position();
+        for (int i = start; i < input.limit() - 1; i++) {
+            if (input.get(i) == '\r' && input.get(i + 1) == '\n') {
+                String line = new String(input.array(), input.arrayOffset() + start, i - start, StandardCharsets.UTF_8);
+                input.position(i + 2);
+                return line;
+            }
+        }
+
+        return null;
+    }
+}
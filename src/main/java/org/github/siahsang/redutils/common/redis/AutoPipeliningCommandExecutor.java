@@ -0,0 +1,203 @@
+package org.github.siahsang.redutils.common.redis;
+
+import org.github.siahsang.redutils.common.ThreadFactories;
+import org.github.siahsang.redutils.common.connection.ConnectionManager;
+import org.github.siahsang.redutils.exception.InsufficientResourceException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import redis.clients.jedis.Jedis;
+import redis.clients.jedis.Pipeline;
+import redis.clients.jedis.Response;
+import redis.clients.jedis.exceptions.JedisNoScriptException;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Combine the commands of all threads into pipelines. Every shared connection has a writer thread that takes all queued
+ * commands (up to the max batch size), writes them with one flush and completes the future of each command from its
+ * reply. While a batch is on the wire the next one is queued, so under load the number of round trips does not grow
+ * with the number of threads.
+ *
+ * @author Javad Alimohammadi
+ */
+public class AutoPipeliningCommandExecutor implements RedisCommandExecutor {
+    private static final Logger log = LoggerFactory.getLogger(AutoPipeliningCommandExecutor.class);
+
+    private final PipelineWriter[] writers;
+
+    private final AtomicInteger nextWriter = new AtomicInteger();
+
+    public AutoPipeliningCommandExecutor(ConnectionManager<Jedis> connectionManager, int connectionCount,
+                                         int maxBatchSize) {
+        this.writers = new PipelineWriter[connectionCount];
+        for (int i = 0; i < connectionCount; i++) {
+            writers[i] = new PipelineWriter(connectionManager, maxBatchSize);
+            ThreadFactories.newDaemonThread("red-utils-pipeline-" + i, writers[i]).start();
+        }
+    }
+
+    @Override
+    public CompletableFuture<Object> eval(final RedisScript script, final int keyCount, final byte[]... params) {
+        PendingCommand command = new PendingCommand(script, keyCount, params);
+        PipelineWriter writer = writers[Math.floorMod(nextWriter.getAndIncrement(), writers.length)];
+        if (!writer.running) {
+            command.reply.completeExceptionally(new IllegalStateException("Command executor is shut down"));
+            return command.reply;
+        }
+
+        writer.queue.add(command);
+        return command.reply;
+    }
+
+    @Override
+    public boolean isReservationRequired() {
+        return false;
+    }
+
+    @Override
+    public void shutdown() {
+        for (PipelineWriter writer : writers) {
+            writer.running = false;
+            writer.queue.add(PendingCommand.POISON);
+        }
+    }
+
+    private static final class PendingCommand {
+        private static final PendingCommand POISON = new PendingCommand(null, 0);
+
+        private final RedisScript script;
+
+        private final int keyCount;
+
+        private final byte[][] params;
+
+        private final CompletableFuture<Object> reply = new CompletableFuture<>();
+
+        private PendingCommand(RedisScript script, int keyCount, byte[]... params) {
+            this.script = script;
+            this.keyCount = keyCount;
+            this.params = params;
+        }
+    }
+
+    private static final class PipelineWriter implements Runnable {
+        private final ConnectionManager<Jedis> connectionManager;
+
+        private final int maxBatchSize;
+
+        private final String resourceId = "red-utils-pipeline:" + UUID.randomUUID();
+
+        private final BlockingQueue<PendingCommand> queue = new LinkedBlockingQueue<>();
+
+        private volatile boolean running = true;
+
+        // only used by the writer thread
+        private boolean connectionReserved;
+
+        private PipelineWriter(ConnectionManager<Jedis> connectionManager, int maxBatchSize) {
+            this.connectionManager = connectionManager;
+            this.maxBatchSize = maxBatchSize;
+        }
+
+        @Override
+        public void run() {
+            final List<PendingCommand> batch = new ArrayList<>(maxBatchSize);
+            while (running) {
+                try {
+                    batch.add(queue.take());
+                    queue.drainTo(batch, maxBatchSize - 1);
+                    batch.remove(PendingCommand.POISON);
+                    if (!batch.isEmpty()) {
+                        flush(batch);
+                    }
+                } catch (InterruptedException ex) {
+                    Thread.currentThread().interrupt();
+                    running = false;
+                } finally {
+                    batch.clear();
+                }
+            }
+
+            failPendingCommands();
+            releaseConnection();
+        }
+
+        private void flush(final List<PendingCommand> batch) {
+            try {
+                reserveConnection();
+                connectionManager.doWithConnection(resourceId, jedis -> {
+                    writeBatch(jedis, batch);
+                    return null;
+                });
+            } catch (Exception ex) {
+                // the connection may be in an unknown state, so it is not used again
+                releaseConnection();
+                for (PendingCommand command : batch) {
+                    command.reply.completeExceptionally(ex);
+                }
+            }
+        }
+
+        private void writeBatch(final Jedis jedis, final List<PendingCommand> batch) {
+            final List<Response<Object>> responses = new ArrayList<>(batch.size());
+            final Pipeline pipeline = jedis.pipelined();
+            for (PendingCommand command : batch) {
+                responses.add(pipeline.evalsha(command.script.getShaBytes(), command.keyCount, command.params));
+            }
+            pipeline.sync();
+
+            for (int i = 0; i < batch.size(); i++) {
+                PendingCommand command = batch.get(i);
+                try {
+                    command.reply.complete(responses.get(i).get());
+                } catch (JedisNoScriptException ex) {
+                    // loads the script and sends the command again
+                    evalDirectly(jedis, command);
+                } catch (Exception ex) {
+                    command.reply.completeExceptionally(ex);
+                }
+            }
+        }
+
+        private void evalDirectly(final Jedis jedis, final PendingCommand command) {
+            try {
+                command.reply.complete(command.script.eval(jedis, command.keyCount, command.params));
+            } catch (Exception ex) {
+                command.reply.completeExceptionally(ex);
+            }
+        }
+
+        private void reserveConnection() {
+            if (!connectionReserved) {
+                if (!connectionManager.reserve(resourceId, 1)) {
+                    throw new InsufficientResourceException("There is`t any available connection for pipelining commands");
+                }
+                connectionReserved = true;
+            }
+        }
+
+        private void releaseConnection() {
+            if (connectionReserved) {
+                connectionReserved = false;
+                try {
+                    connectionManager.free(resourceId);
+                } catch (Exception exception) {
+                    log.debug("Error in freeing pipeline connection", exception);
+                }
+            }
+        }
+
+        private void failPendingCommands() {
+            PendingCommand command;
+            while ((command = queue.poll()) != null) {
+                command.reply.completeExceptionally(new IllegalStateException("Command executor is shut down"));
+            }
+        }
+    }
+}
@@ -0,0 +1,103 @@
+package org.github.siahsang.redutils.common.redis;
+
+import org.github.siahsang.redutils.common.ThreadManager;
+import org.github.siahsang.redutils.common.connection.ConnectionManager;
+import org.github.siahsang.redutils.exception.DeadlineExceededException;
+import redis.clients.jedis.Client;
+import redis.clients.jedis.Jedis;
+import redis.clients.jedis.exceptions.JedisConnectionException;
+
+import java.net.SocketTimeoutException;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Execute every command with the connection that is reserved by the calling thread, one round trip per command
+ *
+ * @author Javad Alimohammadi
+ */
+public class DirectCommandExecutor implements RedisCommandExecutor {
+
+    private final ConnectionManager<Jedis> connectionManager;
+
+    public DirectCommandExecutor(ConnectionManager<Jedis> connectionManager) {
+        this.connectionManager = connectionManager;
+    }
+
+    @Override
+    public CompletableFuture<Object> eval(final RedisScript script, final int keyCount, final byte[]... params) {
+        return eval(ThreadManager.getName(), script, keyCount, params);
+    }
+
+    @Override
+    public CompletableFuture<Object> eval(final String resourceId, final RedisScript script, final int keyCount,
+                                         final byte[]... params) {
+        CompletableFuture<Object> reply = new CompletableFuture<>();
+        try {
+            reply.complete(evalAndWait(resourceId, script, keyCount, params));
+        } catch (Exception ex) {
+            reply.completeExceptionally(ex);
+        }
+
+        return reply;
+    }
+
+    /**
+     * The command is executed by the calling thread, so there is no need for a future
+     */
+    @Override
+    public Object evalAndWait(final RedisScript script, final int keyCount, final byte[]... params) {
+        return evalAndWait(ThreadManager.getName(), script, keyCount, params);
+    }
+
+    @Override
+    public Object evalAndWait(final String resourceId, final RedisScript script, final int keyCount,
+                              final byte[]... params) {
+        return connectionManager.doWithConnection(resourceId, jedis -> script.eval(jedis, keyCount, params));
+    }
+
+    /**
+     * The time out is set as the socket timeout of the connection for this command, if it is less than the read time
+     * out. A connection that times out is broken and is not used again.
+     */
+    @Override
+    public Object evalAndWait(final String resourceId, final long timeOutMillis, final RedisScript script,
+                              final int keyCount, final byte[]... params) {
+        if (timeOutMillis <= 0) {
+            throw new DeadlineExceededException("Deadline passed before sending the command");
+        }
+
+        return connectionManager.doWithConnection(resourceId, jedis -> {
+            final Client client = jedis.getClient();
+            final int readTimeOutMillis = client.getSoTimeout();
+            if (readTimeOutMillis > 0 && timeOutMillis >= readTimeOutMillis) {
+                return script.eval(jedis, keyCount, params);
+            }
+
+            client.setSoTimeout((int) Math.min(timeOutMillis, Integer.MAX_VALUE));
+            try {
+                client.rollbackTimeout();
+                return script.eval(jedis, keyCount, params);
+            } catch (JedisConnectionException ex) {
+                if (ex.getCause() instanceof SocketTimeoutException) {
+                    throw new DeadlineExceededException(String.format("No reply in %s millis", timeOutMillis));
+                }
+                throw ex;
+            } finally {
+                client.setSoTimeout(readTimeOutMillis);
+                if (!client.isBroken()) {
+                    client.rollbackTimeout();
+                }
+            }
+        });
+    }
+
+    @Override
+    public boolean isReservationRequired() {
+        return true;
+    }
+
+    @Override
+    public void shutdown() {
+        // nothing to release, connections belong to the callers
+    }
+}
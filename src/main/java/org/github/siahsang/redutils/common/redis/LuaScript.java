@@ -1,5 +1,9 @@
 package org.github.siahsang.redutils.common.redis;
 
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
 /**
  * @author Javad Alimohammadi
  */
@@ -9,25 +13,137 @@ public final class LuaScript {
     }
 
     // @formatter:off
-   public static final  String GET_LOCK = String.format(
-                       "if redis.call('EXISTS', KEYS[1]) == 0 then " +
-                       "    redis.call('SET', KEYS[1], ARGV[1], 'NX', 'PX', ARGV[2]) " +
-                       "    return '%s'" +
-                       "elseif redis.call('GET', KEYS[1]) == ARGV[1] then " +
-                       "    redis.call('EXPIRE', KEYS[1], ARGV[2]) " +
+    /**
+     * Take the lock, or extend it if the caller already holds it. KEYS[1] is the lock name, ARGV[1] is the owner and
+     * ARGV[2] is the lease time in milliseconds. Returns SUCCESS when the caller holds the lock, otherwise the remaining
+     * time of the current holder in milliseconds, so waiters do not need another round trip for PTTL.
+     */
+    public static final RedisScript GET_LOCK = new RedisScript(String.format(
+                       "if redis.call('SET', KEYS[1], ARGV[1], 'NX', 'PX', ARGV[2]) then " +
+                       "    return '%s' " +
+                       "end " +
+                       "if redis.call('GET', KEYS[1]) == ARGV[1] then " +
+                       "    redis.call('PEXPIRE', KEYS[1], ARGV[2]) " +
                        "    return '%s' " +
-                       "else " +
-                       "    return '%s' "+
-                       "end ", RedisResponse.SUCCESS, RedisResponse.SUCCESS, RedisResponse.FAIL);
+                       "end " +
+                       "return redis.call('PTTL', KEYS[1])", RedisResponse.SUCCESS, RedisResponse.SUCCESS));
 
 
+    /**
+     * Release the lock and notify waiters. KEYS[1] is the lock name, ARGV[1] is the owner and ARGV[2] is the unlock
+     * message. The message is published to the channel with the same name as the lock, only if the caller owned the lock
+     * and the channel has subscribers, so an uncontended release costs one command. An empty message disables publishing,
+     * when waiters rely on keyspace notifications.
+     */
+    public static final RedisScript RELEASE_LOCK = new RedisScript(String.format(
+                          "if redis.call('GET', KEYS[1]) == ARGV[1] then " +
+                          "   redis.call('DEL', KEYS[1]) " +
+                          "   if ARGV[2] ~= '' and redis.call('PUBSUB', 'NUMSUB', KEYS[1])[2] > 0 then " +
+                          "       redis.call('PUBLISH', KEYS[1], ARGV[2]) " +
+                          "   end " +
+                          "   return '%s' " +
+                          "else " +
+                          "    return '%s' " +
+                          "end", RedisResponse.SUCCESS,  RedisResponse.FAIL));
+
+    /**
+     * Refresh the expiration of all given locks that are still owned by the caller. KEYS are lock names, ARGV[1] is the
+     * lease time in milliseconds and ARGV[i + 1] is the owner of KEYS[i]. Returns 1 for each refreshed lock and 0 for
+     * each lock that is not owned by the caller anymore.
+     */
+    public static final RedisScript REFRESH_LOCKS = new RedisScript(
+                          "local result = {} " +
+                          "for i, key in ipairs(KEYS) do " +
+                          "    if redis.call('GET', key) == ARGV[i + 1] then " +
+                          "        redis.call('PEXPIRE', key, ARGV[1]) " +
+                          "        result[i] = 1 " +
+                          "    else " +
+                          "        result[i] = 0 " +
+                          "    end " +
+                          "end " +
+                          "return result");
 
+    /**
+     * Session mode: the lock is stored as {@code <session key>|<owner>|<incarnation>} and is valid as long as the
+     * session key of its holder is alive and holds the same incarnation. Every incarnation has a larger number, an
+     * expired session is never brought back: acquiring fails with SESSION_EXPIRED until the client starts a new
+     * incarnation, which only the first acquire of the incarnation may do. KEYS[1] is the lock name, KEYS[2] is the
+     * session key of the caller, KEYS[3] is the session key of the expected holder, ARGV[1] is the owner, ARGV[2] is the
+     * lease time of the session, ARGV[3] is the lease time of the lock key in milliseconds, ARGV[4] is the incarnation
+     * and ARGV[5] is 1 if the caller may start it.
+     * Like {@link #GET_LOCK}, returns SUCCESS or the remaining time of the holder's session in milliseconds. Only
+     * declared keys are accessed, so if the lock is held by another session than KEYS[3] it returns
+     * {@code HOLDER_SESSION <session key>} and the caller should call it again with that session key.
+     */
+    public static final RedisScript GET_LOCK_IN_SESSION = new RedisScript(String.format(
+                          "local session = redis.call('GET', KEYS[2]) " +
+                          "if session ~= ARGV[4] then " +
+                          "    if ARGV[5] ~= '1' or (session and tonumber(session) > tonumber(ARGV[4])) then " +
+                          "        return '%s' " +
+                          "    end " +
+                          "    redis.call('SET', KEYS[2], ARGV[4], 'PX', ARGV[2]) " +
+                          "end " +
+                          "local value = KEYS[2] .. '|' .. ARGV[1] .. '|' .. ARGV[4] " +
+                          "local holder = redis.call('GET', KEYS[1]) " +
+                          "if holder and holder ~= value then " +
+                          "    local holderSession, holderIncarnation = string.match(holder, '^([^|]*)|[^|]*|([^|]*)$') " +
+                          "    if holderSession == nil then " +
+                          "        return redis.call('PTTL', KEYS[1]) " +
+                          "    end " +
+                          "    if holderSession ~= KEYS[3] then " +
+                          "        return '%s ' .. holderSession " +
+                          "    end " +
+                          "    if redis.call('GET', KEYS[3]) == holderIncarnation then " +
+                          "        return redis.call('PTTL', KEYS[3]) " +
+                          "    end " +
+                          "end " +
+                          "redis.call('SET', KEYS[1], value, 'PX', ARGV[3]) " +
+                          "return '%s' ", RedisResponse.SESSION_EXPIRED, RedisResponse.HOLDER_SESSION,
+                          RedisResponse.SUCCESS));
 
-    public static final  String RELEASE_LOCK = String.format(
-                          "if redis.call('get',KEYS[1]) == ARGV[1] then " +
-                          "   redis.call('del', KEYS[1]) " +
+    /**
+     * Session mode counterpart of {@link #RELEASE_LOCK}, with the same KEYS[1], KEYS[2] and ARGV[1] as
+     * {@link #GET_LOCK_IN_SESSION}
+     * and the unlock message as ARGV[2]. The lock is released in any incarnation of the caller's session.
+     */
+    public static final RedisScript RELEASE_LOCK_IN_SESSION = new RedisScript(String.format(
+                          "local prefix = KEYS[2] .. '|' .. ARGV[1] .. '|' " +
+                          "local holder = redis.call('GET', KEYS[1]) " +
+                          "if holder and string.sub(holder, 1, #prefix) == prefix then " +
+                          "   redis.call('DEL', KEYS[1]) " +
+                          "   if ARGV[2] ~= '' and redis.call('PUBSUB', 'NUMSUB', KEYS[1])[2] > 0 then " +
+                          "       redis.call('PUBLISH', KEYS[1], ARGV[2]) " +
+                          "   end " +
                           "   return '%s' " +
                           "else " +
                           "    return '%s' " +
-                          "end", RedisResponse.SUCCESS,  RedisResponse.FAIL);
+                          "end", RedisResponse.SUCCESS,  RedisResponse.FAIL));
+
+    /**
+     * Heartbeat of a session. KEYS[1] is the session key and KEYS[i + 1] are lock names whose keys should be refreshed
+     * too, ARGV[1] is the incarnation, ARGV[2] is the lease time of the session, ARGV[3] is the lease time of the lock
+     * keys and ARGV[i + 3] is the value of KEYS[i + 1]. Returns a list whose first element is 1 if the session is still
+     * alive in the same incarnation, then 1 for each refreshed lock and 0 for each lock that is not held anymore.
+     */
+    public static final RedisScript HEARTBEAT_SESSION = new RedisScript(
+                          "if redis.call('GET', KEYS[1]) ~= ARGV[1] then " +
+                          "    return {0} " +
+                          "end " +
+                          "redis.call('PEXPIRE', KEYS[1], ARGV[2]) " +
+                          "local result = {1} " +
+                          "for i = 2, #KEYS do " +
+                          "    if redis.call('GET', KEYS[i]) == ARGV[i + 2] then " +
+                          "        redis.call('PEXPIRE', KEYS[i], ARGV[3]) " +
+                          "        result[i] = 1 " +
+                          "    else " +
+                          "        result[i] = 0 " +
+                          "    end " +
+                          "end " +
+                          "return result");
+
+    /**
+     * All scripts, for loading them before they are used
+     */
+    public static final List<RedisScript> ALL_SCRIPTS = Collections.unmodifiableList(Arrays.asList(GET_LOCK,
+            RELEASE_LOCK, REFRESH_LOCKS, GET_LOCK_IN_SESSION, RELEASE_LOCK_IN_SESSION, HEARTBEAT_SESSION));
 }
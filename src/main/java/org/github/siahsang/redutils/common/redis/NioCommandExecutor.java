@@ -0,0 +1,110 @@
+package org.github.siahsang.redutils.common.redis;
+
+import org.github.siahsang.redutils.common.HashedWheelTimer;
+import org.github.siahsang.redutils.common.connection.NioConnectionManager;
+import org.github.siahsang.redutils.common.connection.RespConnection;
+import org.github.siahsang.redutils.exception.RedisReplyException;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Execute scripts over the shared non-blocking connections of {@link NioConnectionManager}. The calling thread only
+ * waits for its future, it does not hold any socket.
+ *
+ * @author Javad Alimohammadi
+ */
+public class NioCommandExecutor implements RedisCommandExecutor {
+
+    private static final String NO_SCRIPT_ERROR = "NOSCRIPT";
+
+    private static final byte[] EVALSHA = "EVALSHA".getBytes(StandardCharsets.US_ASCII);
+
+    private static final byte[] EVAL = "EVAL".getBytes(StandardCharsets.US_ASCII);
+
+    // scripts have a few keys, so their counts are encoded once
+    private static final byte[][] KEY_COUNTS = new byte[16][];
+
+    static {
+        for (int i = 0; i < KEY_COUNTS.length; i++) {
+            KEY_COUNTS[i] = String.valueOf(i).getBytes(StandardCharsets.US_ASCII);
+        }
+    }
+
+    private final NioConnectionManager connectionManager;
+
+    private final long readTimeOutMillis;
+
+    private final HashedWheelTimer timer;
+
+    private final HashedWheelTimer.BatchTask<CompletableFuture<Object>> timeoutTask = replies -> {
+        for (CompletableFuture<Object> reply : replies) {
+            reply.completeExceptionally(new TimeoutException("Redis did not reply in time"));
+        }
+    };
+
+    public NioCommandExecutor(NioConnectionManager connectionManager, long readTimeOutMillis) {
+        this.connectionManager = connectionManager;
+        this.readTimeOutMillis = readTimeOutMillis;
+        this.timer = HashedWheelTimer.shared();
+    }
+
+    @Override
+    public CompletableFuture<Object> eval(final RedisScript script, final int keyCount, final byte[]... params) {
+        final RespConnection connection = connectionManager.next();
+        final CompletableFuture<Object> reply = connection
+                .send(command(EVALSHA, script.getShaBytes(), keyCount, params))
+                .handle((response, throwable) -> {
+                    if (throwable == null) {
+                        return CompletableFuture.completedFuture(response);
+                    }
+
+                    Throwable cause = throwable instanceof CompletionException ? throwable.getCause() : throwable;
+                    if (cause instanceof RedisReplyException && cause.getMessage().startsWith(NO_SCRIPT_ERROR)) {
+                        // EVAL caches the script, so next EVALSHA calls succeed
+                        return connection.send(command(EVAL,
+                                script.getScript().getBytes(StandardCharsets.UTF_8), keyCount, params));
+                    }
+
+                    CompletableFuture<Object> failed = new CompletableFuture<>();
+                    failed.completeExceptionally(cause);
+                    return failed;
+                })
+                .thenCompose(response -> response);
+
+        HashedWheelTimer.Timeout<CompletableFuture<Object>> timeout = timer.schedule(timeoutTask, reply,
+                readTimeOutMillis, TimeUnit.MILLISECONDS);
+        reply.whenComplete((response, throwable) -> timeout.cancel());
+
+        return reply;
+    }
+
+    @Override
+    public boolean isReservationRequired() {
+        return false;
+    }
+
+    @Override
+    public void shutdown() {
+        connectionManager.shutdown();
+    }
+
+    private static byte[][] command(final byte[] name, final byte[] script, final int keyCount, final byte[][] params) {
+        final byte[][] command = new byte[3 + params.length][];
+        command[0] = name;
+        command[1] = script;
+        command[2] = encodeKeyCount(keyCount);
+        System.arraycopy(params, 0, command, 3, params.length);
+        return command;
+    }
+
+    private static byte[] encodeKeyCount(final int keyCount) {
+        if (keyCount >= 0 && keyCount < KEY_COUNTS.length) {
+            return KEY_COUNTS[keyCount];
+        }
+        return String.valueOf(keyCount).getBytes(StandardCharsets.US_ASCII);
+    }
+}
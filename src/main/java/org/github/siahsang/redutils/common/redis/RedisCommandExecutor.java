@@ -0,0 +1,100 @@
+package org.github.siahsang.redutils.common.redis;
+
+import org.github.siahsang.redutils.exception.DeadlineExceededException;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Execute the lock commands on Redis
+ *
+ * @author Javad Alimohammadi
+ */
+public interface RedisCommandExecutor {
+
+    /**
+     * @param keyCount number of keys at the start of params
+     * @param params   encoded keys and arguments of the script
+     * @return the reply of the script, the future is completed with the error of Redis or the connection if it fails
+     */
+    CompletableFuture<Object> eval(RedisScript script, int keyCount, byte[]... params);
+
+    /**
+     * Same as {@link #eval(RedisScript, int, byte[]...)} but waits for the reply
+     *
+     * @throws RuntimeException the error of Redis or the connection
+     */
+    default Object evalAndWait(RedisScript script, int keyCount, byte[]... params) {
+        try {
+            return eval(script, keyCount, params).join();
+        } catch (CompletionException ex) {
+            if (ex.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) ex.getCause();
+            }
+            throw ex;
+        }
+    }
+
+    /**
+     * Same as {@link #eval(RedisScript, int, byte[]...)} for an owner that is not the calling thread
+     *
+     * @param resourceId the owner of the reserved connection, ignored when {@link #isReservationRequired()} is false
+     */
+    default CompletableFuture<Object> eval(String resourceId, RedisScript script, int keyCount, byte[]... params) {
+        return eval(script, keyCount, params);
+    }
+
+    /**
+     * Same as {@link #evalAndWait(RedisScript, int, byte[]...)} for an owner that is not the calling thread
+     *
+     * @param resourceId the owner of the reserved connection, ignored when {@link #isReservationRequired()} is false
+     */
+    default Object evalAndWait(String resourceId, RedisScript script, int keyCount, byte[]... params) {
+        try {
+            return eval(resourceId, script, keyCount, params).join();
+        } catch (CompletionException ex) {
+            if (ex.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) ex.getCause();
+            }
+            throw ex;
+        }
+    }
+
+    /**
+     * Same as {@link #evalAndWait(String, RedisScript, int, byte[]...)} but waits at most the given time for the reply.
+     * The command may still be executed after the time out.
+     *
+     * @throws DeadlineExceededException if there is no reply in time
+     */
+    default Object evalAndWait(String resourceId, long timeOutMillis, RedisScript script, int keyCount,
+                               byte[]... params) {
+        if (timeOutMillis <= 0) {
+            throw new DeadlineExceededException("Deadline passed before sending the command");
+        }
+
+        try {
+            return eval(resourceId, script, keyCount, params).get(timeOutMillis, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException ex) {
+            throw new DeadlineExceededException(String.format("No reply in %s millis", timeOutMillis));
+        } catch (ExecutionException ex) {
+            if (ex.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) ex.getCause();
+            }
+            throw new CompletionException(ex.getCause());
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted");
+        }
+    }
+
+    /**
+     * @return true if commands are sent with the connection that is reserved by the calling thread, so the caller
+     * should reserve one before executing them
+     */
+    boolean isReservationRequired();
+
+    void shutdown();
+}
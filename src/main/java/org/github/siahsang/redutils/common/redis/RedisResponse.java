@@ -1,5 +1,6 @@
 package org.github.siahsang.redutils.common.redis;
 
+import java.nio.charset.StandardCharsets;
 import java.util.Objects;
 
 /**
@@ -14,7 +15,15 @@ public enum RedisResponse {
     /**
      * NIL response from redis
      */
-    FAIL("FAIL");
+    FAIL("FAIL"),
+    /**
+     * The session of the caller is expired, see {@link LuaScript#GET_LOCK_IN_SESSION}
+     */
+    SESSION_EXPIRED("SESSION_EXPIRED"),
+    /**
+     * The lock is held by another session, followed by its session key, see {@link LuaScript#GET_LOCK_IN_SESSION}
+     */
+    HOLDER_SESSION("HOLDER_SESSION");
 
     final String val;
 
@@ -30,5 +39,30 @@ public enum RedisResponse {
         return Objects.equals(RedisResponse.FAIL.val, response);
     }
 
+    /**
+     * @param response reply of a script, as a string or as raw bytes
+     */
+    public static boolean isSessionExpired(Object response) {
+        if (response instanceof byte[]) {
+            response = new String((byte[]) response, StandardCharsets.UTF_8);
+        }
+        return Objects.equals(RedisResponse.SESSION_EXPIRED.val, response);
+    }
+
+    /**
+     * @param response reply of a script, as a string or as raw bytes
+     * @return session key of the holder, or null if the response is not {@link #HOLDER_SESSION}
+     */
+    public static String getHolderSession(Object response) {
+        if (response instanceof byte[]) {
+            response = new String((byte[]) response, StandardCharsets.UTF_8);
+        }
+        final String prefix = HOLDER_SESSION.val + " ";
+        if (response instanceof String && ((String) response).startsWith(prefix)) {
+            return ((String) response).substring(prefix.length());
+        }
+        return null;
+    }
+
 
 }
@@ -0,0 +1,99 @@
+package org.github.siahsang.redutils.common.redis;
+
+import redis.clients.jedis.Jedis;
+import redis.clients.jedis.exceptions.JedisNoScriptException;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.List;
+
+/**
+ * Lua script that is executed with EVALSHA. The SHA1 digest is calculated locally, so the full script is only sent
+ * (with SCRIPT LOAD) when Redis does not know it yet, e.g. the first time or after a restart or failover.
+ *
+ * @author Javad Alimohammadi
+ */
+public final class RedisScript {
+    private static final char[] HEX_DIGITS = "0123456789abcdef".toCharArray();
+
+    private final String script;
+
+    private final String sha;
+
+    private final byte[] shaBytes;
+
+    public RedisScript(final String script) {
+        this.script = script;
+        this.sha = sha1Hex(script);
+        this.shaBytes = sha.getBytes(StandardCharsets.US_ASCII);
+    }
+
+    public Object eval(final Jedis jedis, final int keyCount, final String... params) {
+        try {
+            return jedis.evalsha(sha, keyCount, params);
+        } catch (JedisNoScriptException ex) {
+            load(jedis);
+            return jedis.evalsha(sha, keyCount, params);
+        }
+    }
+
+    public Object eval(final Jedis jedis, final List<String> keys, final List<String> args) {
+        try {
+            return jedis.evalsha(sha, keys, args);
+        } catch (JedisNoScriptException ex) {
+            load(jedis);
+            return jedis.evalsha(sha, keys, args);
+        }
+    }
+
+    /**
+     * Same as {@link #eval(Jedis, int, String...)} with encoded parameters, replies are not decoded either
+     */
+    public Object eval(final Jedis jedis, final int keyCount, final byte[]... params) {
+        try {
+            return jedis.evalsha(shaBytes, keyCount, params);
+        } catch (JedisNoScriptException ex) {
+            load(jedis);
+            return jedis.evalsha(shaBytes, keyCount, params);
+        }
+    }
+
+    public void load(final Jedis jedis) {
+        jedis.scriptLoad(script);
+    }
+
+    public String getScript() {
+        return script;
+    }
+
+    public String getSha() {
+        return sha;
+    }
+
+    /**
+     * @return ASCII encoded SHA1 digest, the array is shared and must not be changed
+     */
+    public byte[] getShaBytes() {
+        return shaBytes;
+    }
+
+    @Override
+    public String toString() {
+        return sha;
+    }
+
+    private static String sha1Hex(final String script) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-1").digest(script.getBytes(StandardCharsets.UTF_8));
+            char[] hex = new char[digest.length * 2];
+            for (int i = 0; i < digest.length; i++) {
+                hex[i * 2] = HEX_DIGITS[(digest[i] >> 4) & 0xF];
+                hex[i * 2 + 1] = HEX_DIGITS[digest[i] & 0xF];
+            }
+            return new String(hex);
+        } catch (NoSuchAlgorithmException ex) {
+            throw new IllegalStateException("SHA-1 is not supported", ex);
+        }
+    }
+}
@@ -0,0 +1,10 @@
+package org.github.siahsang.redutils.exception;
+
+/**
+ * @author Javad Alimohammadi
+ */
+public class BulkheadFullException extends RuntimeException {
+    public BulkheadFullException(String message) {
+        super(message);
+    }
+}
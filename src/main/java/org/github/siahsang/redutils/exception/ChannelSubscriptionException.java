@@ -0,0 +1,10 @@
+package org.github.siahsang.redutils.exception;
+
+/**
+ * @author Javad Alimohammadi
+ */
+public class ChannelSubscriptionException extends RuntimeException {
+    public ChannelSubscriptionException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
@@ -0,0 +1,10 @@
+package org.github.siahsang.redutils.exception;
+
+/**
+ * @author Javad Alimohammadi
+ */
+public class CircuitBreakerOpenException extends RuntimeException {
+    public CircuitBreakerOpenException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,12 @@
+package org.github.siahsang.redutils.exception;
+
+/**
+ * The time budget of a caller ran out before its command got a reply
+ *
+ * @author Javad Alimohammadi
+ */
+public class DeadlineExceededException extends RuntimeException {
+    public DeadlineExceededException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,10 @@
+package org.github.siahsang.redutils.exception;
+
+/**
+ * @author Javad Alimohammadi
+ */
+public class KeyspaceNotificationDisabledException extends RuntimeException {
+    public KeyspaceNotificationDisabledException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,12 @@
+package org.github.siahsang.redutils.exception;
+
+/**
+ * Error reply of Redis
+ *
+ * @author Javad Alimohammadi
+ */
+public class RedisReplyException extends RuntimeException {
+    public RedisReplyException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,74 @@
+package org.github.siahsang.redutils.lock;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Poll the lock with exponentially growing, jittered delays without subscribing to any channel, for deployments where
+ * pub/sub is not allowed. A delay is never longer than the remaining time of the holder.
+ *
+ * @author Javad Alimohammadi
+ */
+public class BackoffPollingWaitStrategy implements WaitStrategy {
+    private final long initialDelayMillis;
+
+    private final long maxDelayMillis;
+
+    private final double multiplier;
+
+    private final double jitter;
+
+    /**
+     * Delays from 5 to 200 millis, doubled after each attempt, with 50% jitter
+     */
+    public BackoffPollingWaitStrategy() {
+        this(5, 200, 2, 0.5);
+    }
+
+    /**
+     * @param initialDelayMillis delay before the first attempt
+     * @param maxDelayMillis     upper bound of the delays
+     * @param multiplier         growth of the delay after each attempt
+     * @param jitter             fraction of each delay that is random, between 0 and 1, so callers do not poll together
+     */
+    public BackoffPollingWaitStrategy(long initialDelayMillis, long maxDelayMillis, double multiplier, double jitter) {
+        if (initialDelayMillis <= 0 || maxDelayMillis < initialDelayMillis || multiplier < 1 || jitter < 0 || jitter > 1) {
+            throw new IllegalArgumentException("Invalid backoff, it needs 0 < initialDelay <= maxDelay, multiplier >= 1 " +
+                    "and 0 <= jitter <= 1");
+        }
+        this.initialDelayMillis = initialDelayMillis;
+        this.maxDelayMillis = maxDelayMillis;
+        this.multiplier = multiplier;
+        this.jitter = jitter;
+    }
+
+    @Override
+    public Waiting start(final String lockName, final LockChannel lockChannel) {
+        return new Waiting() {
+            @Override
+            public void await(final int attempt, final long ttlMillis, final long maxWaitMillis) throws InterruptedException {
+                final long delayMillis = delayMillis(attempt, ThreadLocalRandom.current().nextDouble());
+                Thread.sleep(Math.max(Math.min(delayMillis, Math.min(ttlMillis, maxWaitMillis)), 1));
+            }
+
+            @Override
+            public void finish(final boolean lockAcquired) {
+                // nothing to clean up
+            }
+        };
+    }
+
+    /**
+     * @param random a number in [0, 1)
+     * @return jittered delay before the attempt
+     */
+    long delayMillis(final int attempt, final double random) {
+        final double delay = Math.min(initialDelayMillis * Math.pow(multiplier, attempt - 1), maxDelayMillis);
+        return Math.round(delay * (1 - jitter * random));
+    }
+
+    @Override
+    public String toString() {
+        return String.format("BackoffPollingWaitStrategy{initialDelayMillis=%d, maxDelayMillis=%d, multiplier=%s, " +
+                "jitter=%s}", initialDelayMillis, maxDelayMillis, multiplier, jitter);
+    }
+}
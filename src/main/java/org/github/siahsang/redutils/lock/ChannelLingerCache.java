@@ -0,0 +1,112 @@
+package org.github.siahsang.redutils.lock;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Keep track of channels that do not have any local waiter but are kept subscribed for a while, since on hot locks the
+ * next waiter usually arrives shortly. Channels are ordered by their last use and the least recently used ones are
+ * evicted when the cache is full.
+ * <p>
+ * A lingering channel is still a subscriber for Redis, so releases of its lock keep publishing until it is evicted.
+ *
+ * @author Javad Alimohammadi
+ */
+public class ChannelLingerCache {
+
+    private final long lingerMillis;
+
+    private final int maxSize;
+
+    // guarded by this, channel name -> idle since (millis), ordered by the last use
+    private final LinkedHashMap<String, Long> idleChannels = new LinkedHashMap<>();
+
+    private final LongAdder hitCount = new LongAdder();
+
+    private final LongAdder missCount = new LongAdder();
+
+    public ChannelLingerCache(long lingerMillis, int maxSize) {
+        this.lingerMillis = lingerMillis;
+        this.maxSize = maxSize;
+    }
+
+    public boolean isEnabled() {
+        return lingerMillis > 0 && maxSize > 0;
+    }
+
+    public long getLingerMillis() {
+        return lingerMillis;
+    }
+
+    /**
+     * Keep the idle channel in the cache
+     *
+     * @return channels that should be evicted to respect the size limit
+     */
+    synchronized List<String> park(final String channelName) {
+        idleChannels.remove(channelName);
+        idleChannels.put(channelName, System.currentTimeMillis());
+        if (idleChannels.size() <= maxSize) {
+            return Collections.emptyList();
+        }
+
+        List<String> evictedChannels = new ArrayList<>(idleChannels.size() - maxSize);
+        Iterator<String> iterator = idleChannels.keySet().iterator();
+        while (idleChannels.size() - evictedChannels.size() > maxSize && iterator.hasNext()) {
+            String eldest = iterator.next();
+            if (!eldest.equals(channelName)) {
+                evictedChannels.add(eldest);
+            }
+        }
+
+        return evictedChannels;
+    }
+
+    synchronized void unpark(final String channelName) {
+        idleChannels.remove(channelName);
+    }
+
+    /**
+     * @return true if the channel is idle for at least linger time
+     */
+    synchronized boolean isExpired(final String channelName) {
+        Long idleSince = idleChannels.get(channelName);
+        return idleSince != null && System.currentTimeMillis() - idleSince >= lingerMillis;
+    }
+
+    void recordHit() {
+        hitCount.increment();
+    }
+
+    void recordMiss() {
+        missCount.increment();
+    }
+
+    /**
+     * @return number of subscriptions that reused a lingering channel
+     */
+    public long getHitCount() {
+        return hitCount.sum();
+    }
+
+    /**
+     * @return number of subscriptions that had to subscribe to a new channel
+     */
+    public long getMissCount() {
+        return missCount.sum();
+    }
+
+    public synchronized int size() {
+        return idleChannels.size();
+    }
+
+    @Override
+    public String toString() {
+        return String.format("ChannelLingerCache{lingerMillis=%d, maxSize=%d, hitCount=%d, missCount=%d}",
+                lingerMillis, maxSize, getHitCount(), getMissCount());
+    }
+}
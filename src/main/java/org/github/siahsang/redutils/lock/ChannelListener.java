@@ -1,61 +1,310 @@
 package org.github.siahsang.redutils.lock;
 
-import java.util.HashSet;
-import java.util.Set;
-import java.util.concurrent.Semaphore;
+import org.github.siahsang.redutils.common.HashedWheelTimer;
+import org.github.siahsang.redutils.common.WakePolicy;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.TimeUnit;
-import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
 
 /**
- * This class hold information about subscribers for the channel
+ * This class hold information about subscribers for the channel and wakes them up according to the {@link WakePolicy}
+ * when a notification is received.
  *
  * @author Javad Alimohammadi
  */
 public abstract class ChannelListener {
 
-    private final AtomicBoolean hasNotification = new AtomicBoolean(false);
+    private final WakePolicy wakePolicy;
+
+    private final ReentrantLock lock = new ReentrantLock();
+
+    private final Map<Long, Waiter> subscribers = new ConcurrentHashMap<>();
+
+    // guarded by lock, in the order of waiting
+    private final Deque<Waiter> parkedWaiters = new ArrayDeque<>();
+
+    // guarded by lock, number of received notifications
+    private long notificationCount;
 
-    private final Semaphore notificationResource = new Semaphore(0);
+    // guarded by lock, a notification that is received when there was no parked waiter
+    private boolean pendingNotification;
 
-    private final Set<Long> subscribers = new HashSet<>();
+    private final HashedWheelTimer.BatchTask<AsyncWait> asyncTimeoutTask = this::onAsyncTimeout;
 
+    // completed when the listener is listening, or with the failure of starting it
+    private final CompletableFuture<Void> listening = new CompletableFuture<>();
+
+    protected ChannelListener() {
+        this(WakePolicy.WAKE_ONE);
+    }
+
+    protected ChannelListener(final WakePolicy wakePolicy) {
+        this.wakePolicy = wakePolicy;
+    }
 
     /**
-     * Wait calling thread for getting notification from channel.
+     * Wait calling thread for getting notification from channel. It returns immediately if a notification was received
+     * while the thread was not waiting (e.g. while trying to get the lock).
      *
      * @param timeOutMillis maximum amount of time for waiting to get
      * @throws InterruptedException
      */
     public void waitForGettingNotificationFromChannel(final long timeOutMillis) throws InterruptedException {
+        final long subscriberId = Thread.currentThread().getId();
+        Waiter waiter = subscribers.get(subscriberId);
+        if (waiter == null) {
+            throw new IllegalStateException("Thread " + subscriberId + " is not subscribed to the channel");
+        }
+
+        lock.lockInterruptibly();
+        try {
+            waiter.woken = false;
+            if (consumeMissedNotification(waiter)) {
+                waiter.woken = true;
+                return;
+            }
 
-        boolean acquireNotificationRecourse = notificationResource.tryAcquire(timeOutMillis, TimeUnit.MILLISECONDS);
+            parkedWaiters.addLast(waiter);
+            long remainingNanos = TimeUnit.MILLISECONDS.toNanos(timeOutMillis);
+            try {
+                while (!waiter.signalled && remainingNanos > 0) {
+                    remainingNanos = waiter.condition.awaitNanos(remainingNanos);
+                }
+            } catch (InterruptedException ex) {
+                if (waiter.signalled) {
+                    waiter.signalled = false;
+                    wakeNext();
+                }
+                throw ex;
+            } finally {
+                parkedWaiters.remove(waiter);
+            }
 
-        // if true, this means we got a new message from the channel and we consumed it
-        if (acquireNotificationRecourse) {
-            hasNotification.set(false);
+            if (waiter.signalled) {
+                waiter.signalled = false;
+                waiter.woken = true;
+            }
+        } finally {
+            waiter.seenNotificationCount = notificationCount;
+            lock.unlock();
         }
+    }
+
+    /**
+     * Same as {@link #waitForGettingNotificationFromChannel(long)} for a subscriber that is not a thread. It does not
+     * block, the future is completed when a notification is received or the time out passes.
+     * <p>
+     * The future may be completed while the listener is locked, so callers should continue asynchronously.
+     *
+     * @param subscriberId id that the subscriber is added with
+     */
+    public CompletableFuture<Void> waitForNotificationAsync(final long subscriberId, final long timeOutMillis) {
+        Waiter waiter = subscribers.get(subscriberId);
+        if (waiter == null) {
+            throw new IllegalStateException("Subscriber " + subscriberId + " is not subscribed to the channel");
+        }
+
+        lock.lock();
+        try {
+            waiter.woken = false;
+            if (consumeMissedNotification(waiter) || timeOutMillis <= 0) {
+                waiter.woken = true;
+                waiter.seenNotificationCount = notificationCount;
+                return CompletableFuture.completedFuture(null);
+            }
 
+            AsyncWait asyncWait = new AsyncWait(waiter);
+            waiter.asyncWait = asyncWait;
+            parkedWaiters.addLast(waiter);
+            asyncWait.timeout = HashedWheelTimer.shared().schedule(asyncTimeoutTask, asyncWait, timeOutMillis,
+                    TimeUnit.MILLISECONDS);
+            return asyncWait.notification;
+        } finally {
+            lock.unlock();
+        }
     }
 
     public void onGettingNewMessage() {
-        if (hasNotification.compareAndSet(false, true)) {
-            notificationResource.release();
+        lock.lock();
+        try {
+            notificationCount++;
+            if (wakePolicy == WakePolicy.WAKE_ALL) {
+                parkedWaiters.forEach(this::signal);
+                parkedWaiters.clear();
+            } else {
+                wakeNext();
+            }
+        } finally {
+            lock.unlock();
         }
     }
 
     public void addSubscriber(long subscriberId) {
-        subscribers.add(subscriberId);
+        lock.lock();
+        try {
+            subscribers.put(subscriberId, new Waiter(lock.newCondition(), notificationCount));
+        } finally {
+            lock.unlock();
+        }
     }
 
     public void removeSubscriber(long subscriberId) {
-        subscribers.remove(subscriberId);
+        removeSubscriber(subscriberId, false);
+    }
+
+    /**
+     * @param subscriberId id of the subscriber
+     * @param lockAcquired whether the subscriber leaves because it got the lock. With {@link WakePolicy#WAKE_ONE} a
+     *                     woken subscriber that leaves without the lock passes the wake-up on to the next waiter.
+     */
+    public void removeSubscriber(long subscriberId, boolean lockAcquired) {
+        lock.lock();
+        try {
+            Waiter waiter = subscribers.remove(subscriberId);
+            if (subscribers.isEmpty()) {
+                pendingNotification = false;
+            } else if (waiter != null && waiter.woken && !lockAcquired && wakePolicy == WakePolicy.WAKE_ONE) {
+                wakeNext();
+            }
+        } finally {
+            lock.unlock();
+        }
     }
 
     public boolean isSubscribersEmpty() {
         return subscribers.isEmpty();
     }
 
+    /**
+     * @return number of subscribers that are waiting for a notification right now
+     */
+    public int getWaitingCount() {
+        lock.lock();
+        try {
+            return parkedWaiters.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private boolean consumeMissedNotification(final Waiter waiter) {
+        if (wakePolicy == WakePolicy.WAKE_ALL) {
+            return waiter.seenNotificationCount != notificationCount;
+        }
+
+        if (pendingNotification) {
+            pendingNotification = false;
+            return true;
+        }
+
+        return false;
+    }
+
+    private void wakeNext() {
+        Waiter waiter = parkedWaiters.pollFirst();
+        if (waiter == null) {
+            pendingNotification = true;
+        } else {
+            signal(waiter);
+        }
+    }
+
+    private void signal(final Waiter waiter) {
+        AsyncWait asyncWait = waiter.asyncWait;
+        if (asyncWait != null) {
+            waiter.asyncWait = null;
+            waiter.woken = true;
+            waiter.seenNotificationCount = notificationCount;
+            asyncWait.timeout.cancel();
+            asyncWait.notification.complete(null);
+            return;
+        }
+
+        waiter.signalled = true;
+        waiter.condition.signal();
+    }
+
+    private void onAsyncTimeout(final List<AsyncWait> asyncWaits) {
+        lock.lock();
+        try {
+            for (AsyncWait asyncWait : asyncWaits) {
+                Waiter waiter = asyncWait.waiter;
+                if (waiter.asyncWait == asyncWait) {
+                    waiter.asyncWait = null;
+                    waiter.seenNotificationCount = notificationCount;
+                    parkedWaiters.remove(waiter);
+                    asyncWait.notification.complete(null);
+                }
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * @param failure null if the listener is listening
+     */
+    void onListeningStarted(final RuntimeException failure) {
+        if (failure == null) {
+            listening.complete(null);
+        } else {
+            listening.completeExceptionally(failure);
+        }
+    }
+
+    /**
+     * Wait until the subscriber that created the listener has started it
+     *
+     * @throws RuntimeException the failure of starting the listener
+     */
+    void awaitListening() {
+        try {
+            listening.join();
+        } catch (CompletionException ex) {
+            throw (RuntimeException) ex.getCause();
+        }
+    }
+
     public abstract void shutdown();
 
     public abstract void startListening();
+
+    private static final class Waiter {
+        private final Condition condition;
+
+        // fields are guarded by lock
+        private boolean signalled;
+
+        private boolean woken;
+
+        private long seenNotificationCount;
+
+        // not null while an asynchronous subscriber is waiting
+        private AsyncWait asyncWait;
+
+        private Waiter(Condition condition, long seenNotificationCount) {
+            this.condition = condition;
+            this.seenNotificationCount = seenNotificationCount;
+        }
+    }
+
+    private static final class AsyncWait {
+        private final Waiter waiter;
+
+        private final CompletableFuture<Void> notification = new CompletableFuture<>();
+
+        private HashedWheelTimer.Timeout<AsyncWait> timeout;
+
+        private AsyncWait(Waiter waiter) {
+            this.waiter = waiter;
+        }
+    }
 }
@@ -1,70 +1,80 @@
 package org.github.siahsang.redutils.lock;
 
-import org.github.siahsang.redutils.common.connection.ConnectionManager;
-import org.slf4j.Logger;
-import org.slf4j.LoggerFactory;
-import redis.clients.jedis.Jedis;
-import redis.clients.jedis.JedisPubSub;
+import org.github.siahsang.redutils.common.UnlockNotificationMode;
+import org.github.siahsang.redutils.common.WakePolicy;
 
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
+import java.util.function.Consumer;
 
 /**
  * @author Javad Alimohammadi
  */
 public class JedisChannelListener extends ChannelListener {
-    private final Logger log = LoggerFactory.getLogger(JedisChannelListener.class);
-
     private final String unlockedMessagePattern;
 
-    private JedisPubSub jedisPubSub;
+    private final String channelName;
+
+    private final JedisChannelSubscriber channelSubscriber;
 
-    private final ExecutorService executorService = Executors.newSingleThreadExecutor();
+    private final UnlockNotificationMode notificationMode;
 
-    private final String channelName;
+    // the subscriber removes a channel only for the handler that it was subscribed with
+    private final Consumer<String> unlockedMessageHandler = this::onUnlockedMessage;
 
-    private final ConnectionManager<Jedis> jedisConnectionManager;
+    private final Consumer<String> removedEventHandler = this::onKeyspaceEvent;
 
-    private Jedis jedis;
+    public JedisChannelListener(String unlockedMessagePattern, String channelName, JedisChannelSubscriber channelSubscriber) {
+        this(unlockedMessagePattern, channelName, channelSubscriber, WakePolicy.WAKE_ONE, UnlockNotificationMode.PUBLISH);
+    }
 
-    public JedisChannelListener(String unlockedMessagePattern, String channelName, ConnectionManager<Jedis> jedisConnectionManager) {
+    public JedisChannelListener(String unlockedMessagePattern, String channelName, JedisChannelSubscriber channelSubscriber,
+                                WakePolicy wakePolicy, UnlockNotificationMode notificationMode) {
+        super(wakePolicy);
+        this.notificationMode = notificationMode;
         this.unlockedMessagePattern = unlockedMessagePattern;
         this.channelName = channelName;
-        this.jedisConnectionManager = jedisConnectionManager;
-
+        this.channelSubscriber = channelSubscriber;
     }
 
     @Override
     public void shutdown() {
-        try {
-            jedisPubSub.unsubscribe();
-        } catch (Exception exception) {
-            log.debug("Error in unsubscribing channel [{}]", channelName);
+        if (notificationMode.isPublishEnabled()) {
+            channelSubscriber.unsubscribe(channelName, unlockedMessageHandler);
         }
-
-        try {
-            executorService.shutdownNow();
-        } catch (Exception ex) {
-            log.debug("Error in shut-down channel [{}]", channelName);
+        if (notificationMode.isKeyspaceEnabled()) {
+            channelSubscriber.unsubscribe(KeyspaceNotification.channelOf(channelName), removedEventHandler);
         }
-
-        jedisConnectionManager.returnBack(jedis);
     }
 
+    /**
+     * @throws RuntimeException if subscribing fails, then the listener does not listen to any channel
+     */
     @Override
     public void startListening() {
-        jedisPubSub = new JedisPubSub() {
-            @Override
-            public void onMessage(String channel, String message) {
-                if (message.startsWith(unlockedMessagePattern)) {
-                    onGettingNewMessage();
+        if (notificationMode.isPublishEnabled()) {
+            channelSubscriber.subscribe(channelName, unlockedMessageHandler);
+        }
+
+        if (notificationMode.isKeyspaceEnabled()) {
+            try {
+                channelSubscriber.subscribe(KeyspaceNotification.channelOf(channelName), removedEventHandler);
+            } catch (RuntimeException ex) {
+                if (notificationMode.isPublishEnabled()) {
+                    channelSubscriber.unsubscribe(channelName, unlockedMessageHandler);
                 }
+                throw ex;
             }
-        };
+        }
+    }
 
-        jedis = jedisConnectionManager.borrow();
-        executorService.submit(() -> {
-            jedis.subscribe(jedisPubSub, channelName);
-        });
+    private void onUnlockedMessage(final String message) {
+        if (message.startsWith(unlockedMessagePattern)) {
+            onGettingNewMessage();
+        }
+    }
+
+    private void onKeyspaceEvent(final String event) {
+        if (KeyspaceNotification.isRemovedEvent(event)) {
+            onGettingNewMessage();
+        }
     }
 }
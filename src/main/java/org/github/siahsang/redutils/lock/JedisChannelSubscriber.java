@@ -0,0 +1,252 @@
+package org.github.siahsang.redutils.lock;
+
+import org.github.siahsang.redutils.common.ThreadFactories;
+import org.github.siahsang.redutils.common.connection.ConnectionManager;
+import org.github.siahsang.redutils.exception.ChannelSubscriptionException;
+import org.github.siahsang.redutils.exception.InsufficientResourceException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import redis.clients.jedis.Jedis;
+import redis.clients.jedis.JedisPubSub;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+
+/**
+ * Subscribe to all channels of a client over one connection. Channels are added and removed with SUBSCRIBE and
+ * UNSUBSCRIBE on the same connection and every message is dispatched to the handler of its channel.
+ * <p>
+ * A private control channel keeps the subscription open while there is no lock channel. If the connection is lost, the
+ * next {@link #subscribe(String, Consumer)} opens a new one and subscribes to all registered channels again.
+ * <p>
+ * The registered handlers and the channels of the connection are changed together under one lock, so they always
+ * match, even when a channel is unsubscribed by one listener and subscribed by another at the same time.
+ *
+ * @author Javad Alimohammadi
+ */
+public class JedisChannelSubscriber {
+    private static final Logger log = LoggerFactory.getLogger(JedisChannelSubscriber.class);
+
+    private final ConnectionManager<Jedis> jedisConnectionManager;
+
+    private final long subscribeTimeOutMillis;
+
+    private final String controlChannel = "red-utils-control:" + UUID.randomUUID();
+
+    // changed under subscriptionLock
+    private final Map<String, Consumer<String>> channelHandlers = new ConcurrentHashMap<>();
+
+    private final ExecutorService executorService = Executors.newSingleThreadExecutor(runnable ->
+            ThreadFactories.newDaemonThread("red-utils-subscriber", runnable));
+
+    // guards changing the subscription, since the connection is not safe for concurrent writes. It is a lock instead
+    // of a monitor, since it is held during I/O.
+    private final ReentrantLock subscriptionLock = new ReentrantLock();
+
+    private volatile JedisPubSub activePubSub;
+
+    // connection of the active subscription
+    private volatile Jedis activeJedis;
+
+    private volatile boolean shutdown;
+
+    public JedisChannelSubscriber(ConnectionManager<Jedis> jedisConnectionManager, long subscribeTimeOutMillis) {
+        this.jedisConnectionManager = jedisConnectionManager;
+        this.subscribeTimeOutMillis = subscribeTimeOutMillis;
+    }
+
+    /**
+     * Start receiving messages of the channel. It returns after Redis confirmed the subscription.
+     *
+     * @param channel        name of the channel
+     * @param messageHandler handler that is called on the subscriber thread for each message
+     * @throws ChannelSubscriptionException  if the channel could not be subscribed
+     * @throws InsufficientResourceException if there is no connection for the subscription
+     */
+    public void subscribe(final String channel, final Consumer<String> messageHandler) {
+        subscriptionLock.lock();
+        try {
+            if (shutdown) {
+                throw new IllegalStateException("Channel subscriber is shut down");
+            }
+
+            channelHandlers.put(channel, messageHandler);
+            JedisPubSub jedisPubSub = activePubSub;
+            if (jedisPubSub != null && jedisPubSub.isSubscribed()) {
+                jedisPubSub.subscribe(channel);
+            } else {
+                // the previous subscription is lost, all registered channels, including this one, are subscribed on
+                // start
+                closeActiveConnection();
+                startListening();
+            }
+        } catch (InsufficientResourceException | ChannelSubscriptionException | IllegalStateException exception) {
+            channelHandlers.remove(channel, messageHandler);
+            throw exception;
+        } catch (RuntimeException exception) {
+            channelHandlers.remove(channel, messageHandler);
+            throw new ChannelSubscriptionException(String.format("Error in subscribing channel '%s'", channel), exception);
+        } finally {
+            subscriptionLock.unlock();
+        }
+    }
+
+    /**
+     * Stop receiving messages of the channel, if it is still subscribed with the handler
+     */
+    public void unsubscribe(final String channel, final Consumer<String> messageHandler) {
+        subscriptionLock.lock();
+        try {
+            if (!channelHandlers.remove(channel, messageHandler)) {
+                // the channel is already subscribed again by another handler
+                return;
+            }
+
+            JedisPubSub jedisPubSub = activePubSub;
+            if (jedisPubSub != null && jedisPubSub.isSubscribed()) {
+                jedisPubSub.unsubscribe(channel);
+            }
+        } catch (Exception exception) {
+            log.debug("Error in unsubscribing channel [{}]", channel, exception);
+        } finally {
+            subscriptionLock.unlock();
+        }
+    }
+
+    /**
+     * Close the subscription and free its connection. The subscriber thread is given the subscribe time out for
+     * leaving, then its connection is closed.
+     */
+    public void shutdown() {
+        subscriptionLock.lock();
+        try {
+            shutdown = true;
+            channelHandlers.clear();
+            JedisPubSub jedisPubSub = activePubSub;
+            if (jedisPubSub != null && jedisPubSub.isSubscribed()) {
+                jedisPubSub.unsubscribe();
+            }
+        } catch (Exception exception) {
+            log.debug("Error in unsubscribing channels", exception);
+        } finally {
+            subscriptionLock.unlock();
+        }
+
+        executorService.shutdown();
+        try {
+            if (!executorService.awaitTermination(subscribeTimeOutMillis, TimeUnit.MILLISECONDS)) {
+                // the subscriber thread is blocked in reading, it leaves when the socket is closed
+                closeActiveConnection();
+                executorService.shutdownNow();
+            }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            executorService.shutdownNow();
+        }
+    }
+
+    /**
+     * Open a new subscription to all registered channels and wait for its confirmation. Called with subscriptionLock.
+     */
+    private void startListening() {
+        // every subscription has its own reservation, so a previous subscription that is still leaving does not free it
+        final String resourceId = "red-utils-subscriber:" + UUID.randomUUID();
+        if (!jedisConnectionManager.reserve(resourceId, 1)) {
+            throw new InsufficientResourceException("There is`t any available connection for subscribing to channels");
+        }
+
+        final CompletableFuture<Void> subscribed = new CompletableFuture<>();
+        final JedisPubSub jedisPubSub = new JedisPubSub() {
+            @Override
+            public void onMessage(String channel, String message) {
+                Consumer<String> messageHandler = channelHandlers.get(channel);
+                if (messageHandler != null) {
+                    messageHandler.accept(message);
+                }
+            }
+
+            @Override
+            public void onSubscribe(String channel, int subscribedChannels) {
+                if (controlChannel.equals(channel)) {
+                    subscribed.complete(null);
+                }
+            }
+        };
+
+        final List<String> channels = new ArrayList<>(channelHandlers.keySet());
+        channels.add(0, controlChannel);
+
+        final Jedis jedis;
+        try {
+            jedis = jedisConnectionManager.borrow(resourceId);
+        } catch (RuntimeException ex) {
+            jedisConnectionManager.free(resourceId);
+            throw ex;
+        }
+        activePubSub = jedisPubSub;
+        activeJedis = jedis;
+        executorService.submit(() -> {
+            try {
+                jedis.subscribe(jedisPubSub, channels.toArray(new String[0]));
+            } catch (Exception exception) {
+                log.debug("Subscription is closed", exception);
+                subscribed.completeExceptionally(exception);
+            } finally {
+                onListeningStopped(jedisPubSub, jedis, resourceId);
+            }
+        });
+
+        try {
+            subscribed.get(subscribeTimeOutMillis, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            closeActiveConnection();
+            throw new ChannelSubscriptionException("Interrupted while subscribing to channels", ex);
+        } catch (ExecutionException ex) {
+            throw new ChannelSubscriptionException("Error in subscribing to channels", ex.getCause());
+        } catch (TimeoutException ex) {
+            // the subscriber thread leaves and frees the connection
+            closeActiveConnection();
+            throw new ChannelSubscriptionException(String.format("Subscribing to channels is not confirmed after [%d] " +
+                    "millis", subscribeTimeOutMillis), ex);
+        }
+    }
+
+    private void closeActiveConnection() {
+        Jedis jedis = activeJedis;
+        if (jedis != null) {
+            try {
+                jedis.getClient().disconnect();
+            } catch (Exception exception) {
+                log.debug("Error in closing subscriber connection", exception);
+            }
+        }
+    }
+
+    private void onListeningStopped(final JedisPubSub jedisPubSub, final Jedis jedis, final String resourceId) {
+        subscriptionLock.lock();
+        try {
+            if (activePubSub == jedisPubSub) {
+                activePubSub = null;
+                activeJedis = null;
+            }
+            jedisConnectionManager.returnBack(resourceId, jedis);
+            jedisConnectionManager.free(resourceId);
+        } catch (Exception exception) {
+            log.debug("Error in releasing subscriber connection", exception);
+        } finally {
+            subscriptionLock.unlock();
+        }
+    }
+}
@@ -1,71 +1,194 @@
 package org.github.siahsang.redutils.lock;
 
-import org.github.siahsang.redutils.common.connection.ConnectionManager;
+import org.github.siahsang.redutils.common.HashedWheelTimer;
+import org.github.siahsang.redutils.common.UnlockNotificationMode;
+import org.github.siahsang.redutils.common.WakePolicy;
 import org.github.siahsang.redutils.common.connection.JedisConnectionManager;
-import redis.clients.jedis.Jedis;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
+import java.util.ArrayList;
+import java.util.List;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
 
 /**
  * @author Javad Alimohammadi
  */
 
 public class JedisLockChannel implements LockChannel {
+    private static final Logger log = LoggerFactory.getLogger(JedisLockChannel.class);
 
     private final ConcurrentHashMap<String, ChannelListener> lockNameChannelInfo = new ConcurrentHashMap<>();
 
     private final String unlockedMessagePattern;
 
-    private final ConnectionManager<Jedis> jedisConnectionManager;
+    private final JedisChannelSubscriber channelSubscriber;
 
-    public JedisLockChannel(JedisConnectionManager jedisConnectionManager, final String unlockedMessagePattern) {
-        this.jedisConnectionManager = jedisConnectionManager;
+    private final ChannelLingerCache lingerCache;
+
+    private final WakePolicy wakePolicy;
+
+    private final UnlockNotificationMode notificationMode;
+
+    private final HashedWheelTimer timer;
+
+    private final Executor evictionExecutor;
+
+    private final HashedWheelTimer.BatchTask<String> lingerExpirationTask = this::evictExpiredChannels;
+
+    public JedisLockChannel(JedisConnectionManager jedisConnectionManager, final String unlockedMessagePattern,
+                            final long subscribeTimeOutMillis) {
+        this(jedisConnectionManager, unlockedMessagePattern, subscribeTimeOutMillis, new ChannelLingerCache(0, 0),
+                WakePolicy.WAKE_ONE, UnlockNotificationMode.PUBLISH, Runnable::run);
+    }
+
+    /**
+     * @param evictionExecutor executor that unsubscribes from expired lingering channels, so the timer thread does not
+     *                         do I/O
+     */
+    public JedisLockChannel(JedisConnectionManager jedisConnectionManager, final String unlockedMessagePattern,
+                            final long subscribeTimeOutMillis, final ChannelLingerCache lingerCache,
+                            final WakePolicy wakePolicy, final UnlockNotificationMode notificationMode,
+                            final Executor evictionExecutor) {
         this.unlockedMessagePattern = unlockedMessagePattern;
+        this.channelSubscriber = new JedisChannelSubscriber(jedisConnectionManager, subscribeTimeOutMillis);
+        this.lingerCache = lingerCache;
+        this.wakePolicy = wakePolicy;
+        this.notificationMode = notificationMode;
+        this.timer = HashedWheelTimer.shared();
+        this.evictionExecutor = evictionExecutor;
     }
 
+    /**
+     * The map only records the listener, subscribing to its channel is done outside of it, so a slow subscription does
+     * not block the other lock names. Subscribers that find a listener that is not started yet wait for it.
+     *
+     * @throws RuntimeException if subscribing to the channel fails
+     */
     @Override
-    public void subscribe(final String lockName) {
-        lockNameChannelInfo.compute(lockName, (s, channelListener) -> {
-            final long threadId = Thread.currentThread().getId();
-            if (channelListener == null) {
-                channelListener = new JedisChannelListener(unlockedMessagePattern, lockName, jedisConnectionManager);
-                channelListener.startListening();
+    public ChannelListener subscribe(final String lockName, final long subscriberId) {
+        final List<ChannelListener> createdListener = new ArrayList<>(1);
+        final ChannelListener channelListener = lockNameChannelInfo.compute(lockName, (s, listener) -> {
+            if (listener == null) {
+                listener = new JedisChannelListener(unlockedMessagePattern, lockName, channelSubscriber,
+                        wakePolicy, notificationMode);
+                createdListener.add(listener);
+                lingerCache.recordMiss();
+            } else if (listener.isSubscribersEmpty()) {
+                // the channel was lingering, so reuse its subscription
+                lingerCache.unpark(lockName);
+                lingerCache.recordHit();
             }
 
-            channelListener.addSubscriber(threadId);
-            return channelListener;
+            listener.addSubscriber(subscriberId);
+            return listener;
         });
+
+        if (createdListener.isEmpty()) {
+            channelListener.awaitListening();
+            return channelListener;
+        }
+
+        try {
+            channelListener.startListening();
+        } catch (RuntimeException ex) {
+            lockNameChannelInfo.remove(lockName, channelListener);
+            channelListener.onListeningStarted(ex);
+            throw ex;
+        }
+        channelListener.onListeningStarted(null);
+        return channelListener;
     }
 
     @Override
     public void waitForNotification(final String lockName, final long timeOutMillis) throws InterruptedException {
-        lockNameChannelInfo.compute(lockName, (lname, redisChannel) -> {
-            if (redisChannel == null) {
-                throw new IllegalArgumentException("There isn`t any channel with name " + lockName);
-            }
-            return redisChannel;
-        });
+        final ChannelListener channelListener = lockNameChannelInfo.get(lockName);
+        if (channelListener == null) {
+            throw new IllegalArgumentException("There isn`t any channel with name " + lockName);
+        }
 
-        lockNameChannelInfo.get(lockName).waitForGettingNotificationFromChannel(timeOutMillis);
+        channelListener.waitForGettingNotificationFromChannel(timeOutMillis);
     }
 
     @Override
-    public void unSubscribe(final String lockName) {
+    public void unSubscribe(final String lockName, final long subscriberId, final boolean lockAcquired) {
+        final List<String> evictedChannels = new ArrayList<>();
+        final List<ChannelListener> closedListener = new ArrayList<>(1);
         lockNameChannelInfo.compute(lockName, (lock, redisChannel) -> {
-            final long threadId = Thread.currentThread().getId();
-
             if (redisChannel == null) {
                 throw new IllegalArgumentException("There isn`t any channel with name " + lockName);
             }
             // if all subscriber removed, it means we do not need to preserve channel
-            redisChannel.removeSubscriber(threadId);
+            redisChannel.removeSubscriber(subscriberId, lockAcquired);
             if (redisChannel.isSubscribersEmpty()) {
-                redisChannel.shutdown();
-                return null;
+                if (!lingerCache.isEnabled()) {
+                    closedListener.add(redisChannel);
+                    return null;
+                }
+
+                evictedChannels.addAll(lingerCache.park(lockName));
+                timer.schedule(lingerExpirationTask, lockName, lingerCache.getLingerMillis(), TimeUnit.MILLISECONDS);
             }
 
             return redisChannel;
         });
+
+        closedListener.forEach(ChannelListener::shutdown);
+        evictedChannels.forEach(this::evictIfIdle);
+    }
+
+    /**
+     * Stop listening to all channels and close the subscription
+     */
+    public void shutdown() {
+        lockNameChannelInfo.keySet().forEach(lockName ->
+                lockNameChannelInfo.computeIfPresent(lockName, (lock, redisChannel) -> {
+                    lingerCache.unpark(lockName);
+                    return null;
+                }));
+        channelSubscriber.shutdown();
+    }
+
+    public ChannelLingerCache getLingerCache() {
+        return lingerCache;
+    }
+
+    /**
+     * Runs on the timer thread, unsubscribing is done on the eviction executor
+     */
+    private void evictExpiredChannels(final List<String> channelNames) {
+        final List<String> expiredChannels = new ArrayList<>();
+        for (String channelName : channelNames) {
+            if (lingerCache.isExpired(channelName)) {
+                expiredChannels.add(channelName);
+            }
+        }
+
+        if (!expiredChannels.isEmpty()) {
+            try {
+                evictionExecutor.execute(() -> expiredChannels.forEach(this::evictIfIdle));
+            } catch (RejectedExecutionException ex) {
+                log.debug("Lingering channels {} are not evicted", expiredChannels, ex);
+            }
+        }
+    }
+
+    private void evictIfIdle(final String channelName) {
+        final List<ChannelListener> closedListener = new ArrayList<>(1);
+        lockNameChannelInfo.computeIfPresent(channelName, (lock, redisChannel) -> {
+            if (!redisChannel.isSubscribersEmpty()) {
+                return redisChannel;
+            }
+
+            lingerCache.unpark(channelName);
+            closedListener.add(redisChannel);
+            return null;
+        });
+
+        closedListener.forEach(ChannelListener::shutdown);
     }
 
 }
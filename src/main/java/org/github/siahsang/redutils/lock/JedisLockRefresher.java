@@ -1,67 +1,203 @@
 package org.github.siahsang.redutils.lock;
 
+import org.github.siahsang.redutils.common.HashedWheelTimer;
 import org.github.siahsang.redutils.common.RedUtilsConfig;
-import org.github.siahsang.redutils.common.Scheduler;
 import org.github.siahsang.redutils.common.connection.ConnectionManager;
+import org.github.siahsang.redutils.common.redis.LuaScript;
 import org.github.siahsang.redutils.exception.RefreshLockException;
 import org.github.siahsang.redutils.replica.ReplicaManager;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import redis.clients.jedis.Jedis;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
 import java.util.concurrent.CompletableFuture;
-import java.util.concurrent.Executors;
-import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.TimeUnit;
 
 /**
+ * Refresh all locks that are held by a client. Locks are tracked by the shared {@link HashedWheelTimer} and the locks
+ * that come due in the same tick are refreshed together with one ownership-checked script call, on a connection that
+ * is reserved for the refresher while it has locks to refresh. The timer only hands the due locks to the refresh executor, so a slow Redis does not
+ * delay the other tasks of the timer.
+ *
  * @author Javad Alimohammadi
  */
 
 public class JedisLockRefresher implements LockRefresher {
     private static final Logger log = LoggerFactory.getLogger(JedisLockRefresher.class);
 
+    private static final int MAX_BATCH_SIZE = 256;
+
     private final RedUtilsConfig redUtilsConfig;
 
-    private final ReplicaManager replicaManager;
+    private final HashedWheelTimer timer;
+
+    private final Executor refreshExecutor;
 
-    private final ConnectionManager<Jedis> jedisConnectionManager;
+    private final HashedWheelTimer.BatchTask<RefreshEntry> refreshTask = this::submitRefresh;
 
-    private final ScheduledExecutorService executor;
+    private final Map<String, RefreshEntry> refreshEntries = new ConcurrentHashMap<>();
+
+    private final RefresherConnection refresherConnection;
 
     public JedisLockRefresher(RedUtilsConfig redUtilsConfig, ReplicaManager replicaManager,
-                              ConnectionManager<Jedis> jedisConnectionManager) {
+                              ConnectionManager<Jedis> jedisConnectionManager, Executor refreshExecutor) {
+        this(redUtilsConfig, replicaManager, jedisConnectionManager, HashedWheelTimer.shared(), refreshExecutor);
+    }
+
+    /**
+     * @param refreshExecutor executor of the refresh commands
+     */
+    public JedisLockRefresher(RedUtilsConfig redUtilsConfig, ReplicaManager replicaManager,
+                              ConnectionManager<Jedis> jedisConnectionManager, HashedWheelTimer timer,
+                              Executor refreshExecutor) {
         this.redUtilsConfig = redUtilsConfig;
-        this.replicaManager = replicaManager;
-        this.jedisConnectionManager = jedisConnectionManager;
-        this.executor = Executors.newScheduledThreadPool(1);
+        this.timer = timer;
+        this.refreshExecutor = refreshExecutor;
+        this.refresherConnection = new RefresherConnection(jedisConnectionManager, replicaManager);
     }
 
     @Override
-    public CompletableFuture<Void> start(final String lockName) {
-        final int refreshPeriodMillis = redUtilsConfig.getLeaseTimeMillis();
-
-        return Scheduler.scheduleAtFixRate(executor, () -> {
-            try {
-                log.trace("Refreshing the lock [{}]", lockName);
-                jedisConnectionManager.doWithConnection(jedis -> {
-                    return jedis.pexpire(lockName, refreshPeriodMillis);
-                });
-                replicaManager.waitForResponse();
-            } catch (Exception ex) {
-                String errMSG = String.format("Error in refreshing the lock '%s'", lockName);
-                throw new RefreshLockException(errMSG, ex);
-            }
-        }, refreshPeriodMillis / 3, refreshPeriodMillis / 3, TimeUnit.MILLISECONDS);
+    public CompletableFuture<Void> start(final String lockName, final String lockValue) {
+        RefreshEntry refreshEntry = new RefreshEntry(lockName, lockValue);
+        refreshEntries.put(lockName, refreshEntry);
+        schedule(refreshEntry);
+        return refreshEntry.status;
     }
 
     @Override
-    public void tryStop(final String lockName) {
+    public void tryStop(final String lockName, final String lockValue) {
         try {
-            executor.shutdownNow();
+            RefreshEntry refreshEntry = refreshEntries.get(lockName);
+            if (refreshEntry != null && refreshEntry.lockValue.equals(lockValue)
+                    && refreshEntries.remove(lockName, refreshEntry)) {
+                refreshEntry.stop();
+            }
+            if (refreshEntries.isEmpty()) {
+                // a running refresh frees it when it finishes
+                refresherConnection.releaseIfIdle();
+            }
         } catch (Exception exception) {
             log.debug("Error in stopping Refresher", exception);
         }
     }
 
-}
\ No newline at end of file
+    @Override
+    public void shutdown() {
+        for (RefreshEntry refreshEntry : refreshEntries.values()) {
+            if (refreshEntries.remove(refreshEntry.lockName, refreshEntry)) {
+                refreshEntry.stop();
+                refreshEntry.fail(new IllegalStateException("Refresher is shut down"));
+            }
+        }
+        refresherConnection.close();
+    }
+
+    private void schedule(final RefreshEntry refreshEntry) {
+        final long refreshPeriodMillis = redUtilsConfig.getLeaseTimeMillis() / 3;
+        refreshEntry.timeout = timer.schedule(refreshTask, refreshEntry, refreshPeriodMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Runs on the timer thread
+     */
+    private void submitRefresh(final List<RefreshEntry> dueEntries) {
+        try {
+            refreshExecutor.execute(() -> refresh(dueEntries));
+        } catch (RejectedExecutionException ex) {
+            dueEntries.forEach(refreshEntry -> refreshEntry.fail(ex));
+        }
+    }
+
+    private void refresh(final List<RefreshEntry> dueEntries) {
+        List<RefreshEntry> batch = new ArrayList<>(Math.min(dueEntries.size(), MAX_BATCH_SIZE));
+        for (RefreshEntry refreshEntry : dueEntries) {
+            if (refreshEntry.stopped) {
+                continue;
+            }
+
+            batch.add(refreshEntry);
+            if (batch.size() == MAX_BATCH_SIZE) {
+                refreshBatch(batch);
+                batch = new ArrayList<>(MAX_BATCH_SIZE);
+            }
+        }
+
+        if (!batch.isEmpty()) {
+            refreshBatch(batch);
+        }
+
+        if (refreshEntries.isEmpty()) {
+            refresherConnection.releaseIfIdle();
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private void refreshBatch(final List<RefreshEntry> batch) {
+        final List<String> keys = new ArrayList<>(batch.size());
+        final List<String> args = new ArrayList<>(batch.size() + 1);
+        args.add(String.valueOf(redUtilsConfig.getLeaseTimeMillis()));
+        for (RefreshEntry refreshEntry : batch) {
+            keys.add(refreshEntry.lockName);
+            args.add(refreshEntry.lockValue);
+        }
+
+        final List<Long> result;
+        try {
+            log.trace("Refreshing [{}] lock(s)", batch.size());
+            result = refresherConnection.doWithConnection(jedis -> {
+                return (List<Long>) LuaScript.REFRESH_LOCKS.eval(jedis, keys, args);
+            });
+        } catch (Exception ex) {
+            batch.forEach(refreshEntry -> refreshEntry.fail(ex));
+            return;
+        }
+
+        for (int i = 0; i < batch.size(); i++) {
+            RefreshEntry refreshEntry = batch.get(i);
+            if (result.get(i) == 1) {
+                if (refreshEntries.get(refreshEntry.lockName) == refreshEntry && !refreshEntry.stopped) {
+                    schedule(refreshEntry);
+                }
+            } else {
+                refreshEntry.fail(null);
+            }
+        }
+    }
+
+    private static final class RefreshEntry {
+        private final String lockName;
+
+        private final String lockValue;
+
+        private final CompletableFuture<Void> status = new CompletableFuture<>();
+
+        private volatile boolean stopped;
+
+        private volatile HashedWheelTimer.Timeout<RefreshEntry> timeout;
+
+        private RefreshEntry(String lockName, String lockValue) {
+            this.lockName = lockName;
+            this.lockValue = lockValue;
+        }
+
+        private void stop() {
+            stopped = true;
+            HashedWheelTimer.Timeout<RefreshEntry> currentTimeout = timeout;
+            if (currentTimeout != null) {
+                currentTimeout.cancel();
+            }
+        }
+
+        private void fail(final Throwable cause) {
+            String errMSG = String.format("Error in refreshing the lock '%s'", lockName);
+            status.completeExceptionally(new RefreshLockException(errMSG, cause));
+        }
+    }
+
+}
@@ -0,0 +1,75 @@
+package org.github.siahsang.redutils.lock;
+
+import org.github.siahsang.redutils.exception.KeyspaceNotificationDisabledException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import redis.clients.jedis.Jedis;
+import redis.clients.jedis.exceptions.JedisDataException;
+
+import java.util.List;
+
+/**
+ * Keyspace events of lock keys. Redis publishes the event name ({@code del}, {@code expired}, ...) to the keyspace
+ * channel of the key, if {@code notify-keyspace-events} is enabled on the server.
+ *
+ * @author Javad Alimohammadi
+ */
+public final class KeyspaceNotification {
+    private static final Logger log = LoggerFactory.getLogger(KeyspaceNotification.class);
+
+    public static final String DEL_EVENT = "del";
+
+    public static final String EXPIRED_EVENT = "expired";
+
+    private static final String NOTIFY_KEYSPACE_EVENTS = "notify-keyspace-events";
+
+    // locks are always kept in the default database
+    private static final String CHANNEL_PREFIX = "__keyspace@0__:";
+
+    private KeyspaceNotification() {
+    }
+
+    public static String channelOf(final String lockName) {
+        return CHANNEL_PREFIX + lockName;
+    }
+
+    public static boolean isRemovedEvent(final String event) {
+        return DEL_EVENT.equals(event) || EXPIRED_EVENT.equals(event);
+    }
+
+    /**
+     * @param flags value of {@code notify-keyspace-events}
+     * @return true if {@code del} and {@code expired} events are published to keyspace channels
+     */
+    public static boolean isEnabled(final String flags) {
+        if (flags == null || flags.indexOf('K') < 0) {
+            return false;
+        }
+
+        // A is an alias for all event classes
+        return flags.indexOf('A') >= 0 || (flags.indexOf('g') >= 0 && flags.indexOf('x') >= 0);
+    }
+
+    /**
+     * Make sure the server publishes the needed keyspace events
+     *
+     * @throws KeyspaceNotificationDisabledException if they are not enabled
+     */
+    public static void check(final Jedis jedis) {
+        final List<String> config;
+        try {
+            config = jedis.configGet(NOTIFY_KEYSPACE_EVENTS);
+        } catch (JedisDataException ex) {
+            // e.g. CONFIG is renamed or disabled on managed services
+            log.warn("Could not check [{}] on the server, make sure it includes Kgx", NOTIFY_KEYSPACE_EVENTS, ex);
+            return;
+        }
+
+        final String flags = config.size() > 1 ? config.get(1) : null;
+        if (!isEnabled(flags)) {
+            String errMSG = String.format("Keyspace notifications are not enabled, '%s' is '%s' but should include 'Kgx'" +
+                    " (e.g. CONFIG SET %s Kgx)", NOTIFY_KEYSPACE_EVENTS, flags, NOTIFY_KEYSPACE_EVENTS);
+            throw new KeyspaceNotificationDisabledException(errMSG);
+        }
+    }
+}
@@ -4,7 +4,20 @@ package org.github.siahsang.redutils.lock;
  * @author Javad Alimohammadi
  */
 public interface LockChannel {
-    void subscribe(String lockName);
+    /**
+     * @return listener of the channel, it stays valid while the calling thread is subscribed
+     */
+    default ChannelListener subscribe(String lockName) {
+        return subscribe(lockName, Thread.currentThread().getId());
+    }
+
+    /**
+     * Same as {@link #subscribe(String)} for a subscriber that is not the calling thread, like an asynchronous request.
+     * Such subscribers wait with {@link ChannelListener#waitForNotificationAsync(long, long)}
+     *
+     * @param subscriberId an id that does not clash with thread ids, e.g. a negative number
+     */
+    ChannelListener subscribe(String lockName, long subscriberId);
 
     /**
      * Wait for getting the notification of releasing the lock
@@ -15,5 +28,26 @@ public interface LockChannel {
      */
     void waitForNotification(String lockName, long timeOutMillis) throws InterruptedException;
 
-    void unSubscribe(String lockName);
+    /**
+     * Same as {@link #waitForNotification(String, long)} with the listener that is returned by
+     * {@link #subscribe(String)}, without looking up the channel again
+     */
+    default void waitForNotification(ChannelListener channelListener, long timeOutMillis) throws InterruptedException {
+        channelListener.waitForGettingNotificationFromChannel(timeOutMillis);
+    }
+
+    default void unSubscribe(String lockName) {
+        unSubscribe(lockName, false);
+    }
+
+    /**
+     * @param lockName
+     * @param lockAcquired whether the calling thread got the lock, a thread that leaves without the lock may pass its
+     *                     notification on to other waiters
+     */
+    default void unSubscribe(String lockName, boolean lockAcquired) {
+        unSubscribe(lockName, Thread.currentThread().getId(), lockAcquired);
+    }
+
+    void unSubscribe(String lockName, long subscriberId, boolean lockAcquired);
 }
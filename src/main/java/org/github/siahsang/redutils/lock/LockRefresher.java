@@ -6,7 +6,27 @@ import java.util.concurrent.CompletableFuture;
  * @author Javad Alimohammadi
  */
 public interface LockRefresher {
-    CompletableFuture<Void> start(String lockName);
+    /**
+     * Keep the lock alive until {@link #tryStop(String, String)}. Locks are not always owned by the calling thread, so the owner
+     * is always given.
+     *
+     * @param lockValue the owner name that the lock is stored with
+     * @return completed exceptionally with {@link org.github.siahsang.redutils.exception.RefreshLockException} when the
+     * lock is lost
+     */
+    CompletableFuture<Void> start(String lockName, String lockValue);
 
-    void tryStop(String lockName);
+    /**
+     * Stop refreshing the lock, if it is still refreshed for the given owner. A stale owner, whose lock was lost and
+     * acquired again by another owner of the client, does not stop the refresh of the new owner.
+     *
+     * @param lockValue the owner name that the lock is stored with
+     */
+    void tryStop(String lockName, String lockValue);
+
+    /**
+     * Stop refreshing all locks, they fail with {@link org.github.siahsang.redutils.exception.RefreshLockException},
+     * and free the connection of the refresher
+     */
+    void shutdown();
 }
@@ -0,0 +1,34 @@
+package org.github.siahsang.redutils.lock;
+
+/**
+ * Subscribe to the channel of the lock and wait for the notification of releasing it, or for the remaining time of
+ * the holder. This is the default strategy.
+ *
+ * @author Javad Alimohammadi
+ */
+public class PubSubWaitStrategy implements WaitStrategy {
+
+    @Override
+    public Waiting start(final String lockName, final LockChannel lockChannel) {
+        final ChannelListener channelListener = lockChannel.subscribe(lockName);
+        return new Waiting() {
+            @Override
+            public void await(final int attempt, final long ttlMillis, final long maxWaitMillis) throws InterruptedException {
+                // try again at once, the lock may have been released before subscribing to the channel
+                if (attempt > 1) {
+                    lockChannel.waitForNotification(channelListener, Math.min(ttlMillis, maxWaitMillis));
+                }
+            }
+
+            @Override
+            public void finish(final boolean lockAcquired) {
+                lockChannel.unSubscribe(lockName, lockAcquired);
+            }
+        };
+    }
+
+    @Override
+    public String toString() {
+        return "PubSubWaitStrategy";
+    }
+}
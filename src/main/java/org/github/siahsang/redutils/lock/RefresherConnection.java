@@ -0,0 +1,114 @@
+package org.github.siahsang.redutils.lock;
+
+import org.github.siahsang.redutils.common.connection.ConnectionManager;
+import org.github.siahsang.redutils.exception.InsufficientResourceException;
+import org.github.siahsang.redutils.replica.ReplicaManager;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import redis.clients.jedis.Jedis;
+
+import java.util.UUID;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Function;
+
+/**
+ * Connection that is reserved for a refresher. Refresh tasks run on an executor and use it one at a time.
+ * <p>
+ * It is reserved by the first refresh and kept while the refresher has locks to refresh, then the refresher frees it
+ * with {@link #releaseIfIdle()}, so an idle client does not hold a connection of the pool. While the pool is exhausted,
+ * a refresh that has to reserve it again fails its locks with {@link InsufficientResourceException}.
+ *
+ * @author Javad Alimohammadi
+ */
+class RefresherConnection {
+    private static final Logger log = LoggerFactory.getLogger(RefresherConnection.class);
+
+    private final ConnectionManager<Jedis> jedisConnectionManager;
+
+    private final ReplicaManager replicaManager;
+
+    private final String resourceId = "red-utils-refresher:" + UUID.randomUUID();
+
+    // a lock instead of a monitor, since it is held during blocking I/O
+    private final ReentrantLock lock = new ReentrantLock();
+
+    // guarded by lock
+    private boolean connectionReserved;
+
+    // guarded by lock
+    private boolean closed;
+
+    RefresherConnection(ConnectionManager<Jedis> jedisConnectionManager, ReplicaManager replicaManager) {
+        this.jedisConnectionManager = jedisConnectionManager;
+        this.replicaManager = replicaManager;
+    }
+
+    /**
+     * Execute the operation and wait for replicas. If anything goes wrong the connection is released, since it may be
+     * in an unknown state (e.g. after a read timeout) and should not be reused.
+     */
+    <E> E doWithConnection(final Function<Jedis, E> operation) {
+        lock.lock();
+        try {
+            reserveConnection();
+            E result = jedisConnectionManager.doWithConnection(resourceId, operation);
+            replicaManager.waitForResponse(resourceId);
+            return result;
+        } catch (Exception ex) {
+            releaseConnection();
+            throw ex;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Free the connection if no refresh is using it, the next refresh reserves it again. A running refresh is not
+     * waited for, the refresher calls this again when it finishes.
+     */
+    void releaseIfIdle() {
+        if (lock.tryLock()) {
+            try {
+                releaseConnection();
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    /**
+     * Free the connection, it can not be used afterwards
+     */
+    void close() {
+        lock.lock();
+        try {
+            closed = true;
+            releaseConnection();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void reserveConnection() {
+        if (closed) {
+            throw new IllegalStateException("Refresher is shut down");
+        }
+        if (!connectionReserved) {
+            if (!jedisConnectionManager.reserve(resourceId, 1)) {
+                throw new InsufficientResourceException("There is`t any available connection for refreshing locks");
+            }
+            connectionReserved = true;
+        }
+    }
+
+    private void releaseConnection() {
+        if (connectionReserved) {
+            connectionReserved = false;
+            try {
+                jedisConnectionManager.free(resourceId);
+            } catch (Exception exception) {
+                log.debug("Error in freeing refresher connection", exception);
+            }
+        }
+    }
+}
@@ -0,0 +1,349 @@
+package org.github.siahsang.redutils.lock;
+
+import org.github.siahsang.redutils.common.HashedWheelTimer;
+import org.github.siahsang.redutils.common.RedUtilsConfig;
+import org.github.siahsang.redutils.common.connection.ConnectionManager;
+import org.github.siahsang.redutils.common.redis.LuaScript;
+import org.github.siahsang.redutils.exception.RefreshLockException;
+import org.github.siahsang.redutils.replica.ReplicaManager;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import redis.clients.jedis.Jedis;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Keep all locks of a client alive by heartbeating its session key. Regardless of the number of held locks, only one
+ * command is sent per refresh period and the heartbeat stops when the client does not hold any lock.
+ * <p>
+ * The session key holds the number of its incarnation and every lock records the incarnation it was acquired in. Once
+ * an incarnation is lost, all of its locks fail and the next acquire starts a new incarnation, so an expired session
+ * never makes its old locks valid again. Lock keys also expire {@link #LOCK_KEY_LEASE_FACTOR} session leases after
+ * their last refresh, they are refreshed by every {@link #LOCK_KEY_REFRESH_BEATS}th heartbeat, so keys of a crashed
+ * client do not stay forever.
+ *
+ * @author Javad Alimohammadi
+ */
+
+public class SessionLockRefresher implements LockRefresher {
+    private static final Logger log = LoggerFactory.getLogger(SessionLockRefresher.class);
+
+    static final int LOCK_KEY_LEASE_FACTOR = 10;
+
+    static final int LOCK_KEY_REFRESH_BEATS = 5;
+
+    private final RedUtilsConfig redUtilsConfig;
+
+    private final String sessionKey;
+
+    private final HashedWheelTimer timer;
+
+    private final Executor heartbeatExecutor;
+
+    private final HashedWheelTimer.BatchTask<String> heartbeatTask = sessionKeys -> submitHeartbeat();
+
+    private final RefresherConnection refresherConnection;
+
+    // guarded by this
+    private final Map<String, HeldLock> heldLocks = new HashMap<>();
+
+    // guarded by this, null until the next acquire starts a new incarnation
+    private Incarnation incarnation;
+
+    // guarded by this
+    private long lastIncarnation;
+
+    // guarded by this
+    private boolean heartbeatScheduled;
+
+    // only used by the heartbeat, one heartbeat runs at a time
+    private int beatCount;
+
+    public SessionLockRefresher(RedUtilsConfig redUtilsConfig, String sessionKey, ReplicaManager replicaManager,
+                                ConnectionManager<Jedis> jedisConnectionManager, Executor heartbeatExecutor) {
+        this(redUtilsConfig, sessionKey, replicaManager, jedisConnectionManager, HashedWheelTimer.shared(),
+                heartbeatExecutor);
+    }
+
+    /**
+     * @param heartbeatExecutor executor of the heartbeat commands, the timer only hands the heartbeat to it so a slow
+     *                          Redis does not delay the other tasks of the timer
+     */
+    public SessionLockRefresher(RedUtilsConfig redUtilsConfig, String sessionKey, ReplicaManager replicaManager,
+                                ConnectionManager<Jedis> jedisConnectionManager, HashedWheelTimer timer,
+                                Executor heartbeatExecutor) {
+        this.redUtilsConfig = redUtilsConfig;
+        this.sessionKey = sessionKey;
+        this.timer = timer;
+        this.heartbeatExecutor = heartbeatExecutor;
+        this.refresherConnection = new RefresherConnection(jedisConnectionManager, replicaManager);
+    }
+
+    /**
+     * @return incarnation that a new lock should be acquired in
+     */
+    public synchronized Incarnation getIncarnation() {
+        if (incarnation == null) {
+            incarnation = new Incarnation(++lastIncarnation);
+        }
+        return incarnation;
+    }
+
+    /**
+     * @return lease time of lock keys in milliseconds
+     */
+    public long getLockKeyLeaseMillis() {
+        return redUtilsConfig.getLeaseTimeMillis() * LOCK_KEY_LEASE_FACTOR;
+    }
+
+    /**
+     * Keep the lock that is acquired in the incarnation alive, until {@link #tryStop(String, String)}
+     *
+     * @param lockValue value of the lock key
+     * @return false if the incarnation is not the current one anymore, then the lock is not kept alive
+     */
+    public boolean register(final String lockName, final Incarnation acquiredIn, final String lockValue) {
+        synchronized (this) {
+            if (acquiredIn != incarnation) {
+                return false;
+            }
+
+            acquiredIn.started = true;
+            HeldLock heldLock = heldLocks.get(lockName);
+            if (heldLock == null || !heldLock.lockValue.equals(lockValue)) {
+                heldLocks.put(lockName, new HeldLock(lockValue));
+            }
+            if (!heartbeatScheduled) {
+                heartbeatScheduled = true;
+                scheduleHeartbeat();
+            }
+        }
+
+        return true;
+    }
+
+    /**
+     * Called when acquiring a lock found the session expired, all locks of the incarnation fail
+     *
+     * @return false if the incarnation was already replaced, then the caller can try again
+     */
+    public boolean onExpired(final Incarnation expired) {
+        final List<HeldLock> lostLocks;
+        synchronized (this) {
+            if (expired != incarnation) {
+                return false;
+            }
+            lostLocks = endIncarnation();
+        }
+
+        fail(lostLocks, null);
+        return true;
+    }
+
+    /**
+     * The lock is kept alive since {@link #register(String, Incarnation, String)}, this returns its status
+     */
+    @Override
+    public synchronized CompletableFuture<Void> start(final String lockName, final String lockValue) {
+        HeldLock heldLock = heldLocks.get(lockName);
+        if (heldLock == null || !isOwnedBy(heldLock, lockValue)) {
+            // the incarnation was lost after acquiring the lock
+            CompletableFuture<Void> status = new CompletableFuture<>();
+            status.completeExceptionally(new RefreshLockException(String.format("Session of the lock '%s' is lost",
+                    lockName), null));
+            return status;
+        }
+
+        return heldLock.status;
+    }
+
+    @Override
+    public synchronized void tryStop(final String lockName, final String lockValue) {
+        // the heartbeat stops by itself when there is no held lock
+        HeldLock heldLock = heldLocks.get(lockName);
+        if (heldLock != null && isOwnedBy(heldLock, lockValue)) {
+            heldLocks.remove(lockName);
+        }
+    }
+
+    @Override
+    public void shutdown() {
+        final List<HeldLock> stoppedLocks;
+        synchronized (this) {
+            stoppedLocks = endIncarnation();
+        }
+        fail(stoppedLocks, new IllegalStateException("Refresher is shut down"));
+        refresherConnection.close();
+    }
+
+    /**
+     * @param owner the owner name that is a part of the lock value
+     */
+    private boolean isOwnedBy(final HeldLock heldLock, final String owner) {
+        return heldLock.lockValue.startsWith(sessionKey + "|" + owner + "|");
+    }
+
+    private void scheduleHeartbeat() {
+        final long refreshPeriodMillis = redUtilsConfig.getLeaseTimeMillis() / 3;
+        timer.schedule(heartbeatTask, sessionKey, refreshPeriodMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Runs on the timer thread
+     */
+    private void submitHeartbeat() {
+        try {
+            heartbeatExecutor.execute(this::heartbeat);
+        } catch (RejectedExecutionException ex) {
+            final List<HeldLock> lostLocks;
+            synchronized (this) {
+                lostLocks = endIncarnation();
+            }
+            fail(lostLocks, ex);
+        }
+    }
+
+    private void heartbeat() {
+        final Incarnation beatingIncarnation;
+        final List<String> lockNames = new ArrayList<>();
+        final List<HeldLock> beatingLocks = new ArrayList<>();
+        final boolean refreshLockKeys = ++beatCount % LOCK_KEY_REFRESH_BEATS == 0;
+        synchronized (this) {
+            if (heldLocks.isEmpty()) {
+                // the session key expires by itself, a lock that is released later can not bring it back
+                heartbeatScheduled = false;
+                incarnation = null;
+                beatingIncarnation = null;
+            } else {
+                beatingIncarnation = incarnation;
+                if (refreshLockKeys) {
+                    heldLocks.forEach((lockName, heldLock) -> {
+                        lockNames.add(lockName);
+                        beatingLocks.add(heldLock);
+                    });
+                }
+            }
+        }
+
+        if (beatingIncarnation == null) {
+            // an idle client does not keep the connection
+            refresherConnection.releaseIfIdle();
+            return;
+        }
+
+        final List<String> keys = new ArrayList<>(lockNames.size() + 1);
+        final List<String> args = new ArrayList<>(lockNames.size() + 3);
+        keys.add(sessionKey);
+        keys.addAll(lockNames);
+        args.add(String.valueOf(beatingIncarnation.number));
+        args.add(String.valueOf(redUtilsConfig.getLeaseTimeMillis()));
+        args.add(String.valueOf(getLockKeyLeaseMillis()));
+        beatingLocks.forEach(heldLock -> args.add(heldLock.lockValue));
+
+        Exception cause = null;
+        List<Long> result;
+        try {
+            log.trace("Refreshing the session [{}]", sessionKey);
+            result = refresherConnection.doWithConnection(jedis -> {
+                @SuppressWarnings("unchecked")
+                List<Long> reply = (List<Long>) LuaScript.HEARTBEAT_SESSION.eval(jedis, keys, args);
+                return reply;
+            });
+        } catch (Exception ex) {
+            cause = ex;
+            result = Collections.singletonList(0L);
+        }
+
+        final List<HeldLock> lostLocks = new ArrayList<>();
+        final boolean stopped;
+        synchronized (this) {
+            stopped = result.get(0) != 1;
+            if (!stopped) {
+                for (int i = 0; i < lockNames.size(); i++) {
+                    if (result.get(i + 1) != 1 && heldLocks.remove(lockNames.get(i), beatingLocks.get(i))) {
+                        lostLocks.add(beatingLocks.get(i));
+                    }
+                }
+                scheduleHeartbeat();
+            } else if (incarnation == beatingIncarnation) {
+                // all locks of an expired session may already be taken by other clients
+                lostLocks.addAll(endIncarnation());
+            } else {
+                // the incarnation was already ended by an acquire
+                heartbeatScheduled = false;
+            }
+        }
+
+        if (stopped) {
+            refresherConnection.releaseIfIdle();
+        }
+        fail(lostLocks, cause);
+    }
+
+    /**
+     * The next acquire starts a new incarnation
+     *
+     * @return locks that are lost
+     */
+    private List<HeldLock> endIncarnation() {
+        List<HeldLock> lostLocks = new ArrayList<>(heldLocks.values());
+        heldLocks.clear();
+        incarnation = null;
+        heartbeatScheduled = false;
+        return lostLocks;
+    }
+
+    private void fail(final List<HeldLock> lostLocks, final Exception cause) {
+        String errMSG = String.format("Error in refreshing the session '%s'", sessionKey);
+        for (HeldLock heldLock : lostLocks) {
+            heldLock.status.completeExceptionally(new RefreshLockException(errMSG, cause));
+        }
+    }
+
+    /**
+     * One incarnation of the session
+     */
+    public static final class Incarnation {
+        private final long number;
+
+        private final String encoded;
+
+        // whether a lock is acquired in it, then the session key is not created again
+        private volatile boolean started;
+
+        private Incarnation(long number) {
+            this.number = number;
+            this.encoded = String.valueOf(number);
+        }
+
+        public String getNumber() {
+            return encoded;
+        }
+
+        /**
+         * @return true if acquiring a lock may create the session key of this incarnation
+         */
+        public boolean isStartable() {
+            return !started;
+        }
+    }
+
+    private static final class HeldLock {
+        private final String lockValue;
+
+        private final CompletableFuture<Void> status = new CompletableFuture<>();
+
+        private HeldLock(String lockValue) {
+            this.lockValue = lockValue;
+        }
+    }
+
+}
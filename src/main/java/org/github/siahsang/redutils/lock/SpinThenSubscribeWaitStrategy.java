@@ -0,0 +1,75 @@
+package org.github.siahsang.redutils.lock;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Try again a few times after short pauses before subscribing to the channel of the lock, so locks that are held for
+ * a very short time are acquired without the cost of subscribing. Callers that still could not get the lock wait with
+ * {@link PubSubWaitStrategy}.
+ *
+ * @author Javad Alimohammadi
+ */
+public class SpinThenSubscribeWaitStrategy implements WaitStrategy {
+    private final int spinAttempts;
+
+    private final long spinPauseNanos;
+
+    private final WaitStrategy subscribeStrategy = new PubSubWaitStrategy();
+
+    /**
+     * Three attempts with 50 microseconds pauses
+     */
+    public SpinThenSubscribeWaitStrategy() {
+        this(3, 50, TimeUnit.MICROSECONDS);
+    }
+
+    /**
+     * @param spinAttempts number of attempts before subscribing
+     * @param spinPause    pause before each of those attempts
+     */
+    public SpinThenSubscribeWaitStrategy(int spinAttempts, long spinPause, TimeUnit unit) {
+        if (spinAttempts < 0 || spinPause < 0) {
+            throw new IllegalArgumentException("spinAttempts and spinPause can not be negative");
+        }
+        this.spinAttempts = spinAttempts;
+        this.spinPauseNanos = unit.toNanos(spinPause);
+    }
+
+    @Override
+    public Waiting start(final String lockName, final LockChannel lockChannel) {
+        return new Waiting() {
+            // null while spinning
+            private Waiting subscribed;
+
+            @Override
+            public void await(final int attempt, final long ttlMillis, final long maxWaitMillis) throws InterruptedException {
+                if (attempt <= spinAttempts) {
+                    LockSupport.parkNanos(Math.min(spinPauseNanos, TimeUnit.MILLISECONDS.toNanos(maxWaitMillis)));
+                    if (Thread.interrupted()) {
+                        throw new InterruptedException();
+                    }
+                    return;
+                }
+
+                if (subscribed == null) {
+                    subscribed = subscribeStrategy.start(lockName, lockChannel);
+                }
+                subscribed.await(attempt - spinAttempts, ttlMillis, maxWaitMillis);
+            }
+
+            @Override
+            public void finish(final boolean lockAcquired) {
+                if (subscribed != null) {
+                    subscribed.finish(lockAcquired);
+                }
+            }
+        };
+    }
+
+    @Override
+    public String toString() {
+        return String.format("SpinThenSubscribeWaitStrategy{spinAttempts=%d, spinPauseNanos=%d}", spinAttempts,
+                spinPauseNanos);
+    }
+}
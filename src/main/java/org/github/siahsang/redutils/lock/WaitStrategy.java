@@ -0,0 +1,36 @@
+package org.github.siahsang.redutils.lock;
+
+/**
+ * Decide how a caller waits between its attempts of getting a lock that is held by someone else. A strategy is shared
+ * by all callers, the state of one caller is kept in its {@link Waiting}.
+ *
+ * @author Javad Alimohammadi
+ * @see PubSubWaitStrategy
+ * @see SpinThenSubscribeWaitStrategy
+ * @see BackoffPollingWaitStrategy
+ */
+public interface WaitStrategy {
+
+    /**
+     * Called once by a caller after its first attempt failed
+     *
+     * @return waiting of the calling thread, it is not shared with other threads
+     */
+    Waiting start(String lockName, LockChannel lockChannel);
+
+    interface Waiting {
+        /**
+         * Wait before the next attempt
+         *
+         * @param attempt       number of the next attempt, starting from 1
+         * @param ttlMillis     remaining time of the current holder of the lock
+         * @param maxWaitMillis remaining time of the caller, it should not wait longer
+         */
+        void await(int attempt, long ttlMillis, long maxWaitMillis) throws InterruptedException;
+
+        /**
+         * Called once when the caller stops waiting, whether it got the lock or not
+         */
+        void finish(boolean lockAcquired);
+    }
+}
@@ -1,6 +1,8 @@
 package org.github.siahsang.redutils.replica;
 
+import org.github.siahsang.redutils.common.ThreadManager;
 import org.github.siahsang.redutils.common.connection.JedisConnectionManager;
+import org.github.siahsang.redutils.exception.DeadlineExceededException;
 import org.github.siahsang.redutils.exception.ReplicaIsDownException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -30,19 +32,27 @@ public class JedisReplicaManager implements ReplicaManager {
 
     @Override
     public void waitForResponse() {
+        waitForResponse(ThreadManager.getName());
+    }
+
+    @Override
+    public void waitForResponse(final String resourceId) {
+        waitForResponse(resourceId, Long.MAX_VALUE);
+    }
+
+    @Override
+    public void waitForResponse(final String resourceId, final long timeOutMillis) {
         if (replicaCount > 0) {
+            final long deadline = timeOutMillis == Long.MAX_VALUE
+                    ? Long.MAX_VALUE : System.currentTimeMillis() + timeOutMillis;
             int retry = 1;
-            long replicaResponseCount = jedisConnectionManager.doWithConnection(jedis -> {
-                return jedis.waitReplicas(replicaCount, waitingTimeMillis);
-            });
+            long replicaResponseCount = waitReplicas(resourceId, deadline);
 
 
             while (replicaResponseCount != replicaCount && retry <= retryCount) {
                 log.warn("Expected number of replica(s) is [{}] but available number of replica(s) is [{}], trying again({})",
                         replicaCount, replicaResponseCount, retry);
-                replicaResponseCount = jedisConnectionManager.doWithConnection(jedis -> {
-                    return jedis.waitReplicas(replicaCount, waitingTimeMillis);
-                });
+                replicaResponseCount = waitReplicas(resourceId, deadline);
                 retry++;
             }
 
@@ -54,4 +64,18 @@ public class JedisReplicaManager implements ReplicaManager {
         }
     }
 
+    private long waitReplicas(final String resourceId, final long deadline) {
+        long waitingTime = waitingTimeMillis;
+        if (deadline != Long.MAX_VALUE) {
+            final long remainingMillis = deadline - System.currentTimeMillis();
+            if (remainingMillis <= 0) {
+                throw new DeadlineExceededException("Deadline passed while waiting for replicas");
+            }
+            waitingTime = Math.min(waitingTime, remainingMillis);
+        }
+
+        final long timeout = waitingTime;
+        return jedisConnectionManager.doWithConnection(resourceId, jedis -> jedis.waitReplicas(replicaCount, timeout));
+    }
+
 }
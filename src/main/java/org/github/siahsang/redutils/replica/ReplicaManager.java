@@ -5,4 +5,18 @@ package org.github.siahsang.redutils.replica;
  */
 public interface ReplicaManager {
     void waitForResponse();
+
+    /**
+     * Wait for replicas using the connection reserved for the given resource id
+     *
+     * @param resourceId Client id that reserved the connection
+     */
+    void waitForResponse(String resourceId);
+
+    /**
+     * Same as {@link #waitForResponse(String)} without waiting more than the given time
+     *
+     * @throws org.github.siahsang.redutils.exception.DeadlineExceededException if replicas do not respond in time
+     */
+    void waitForResponse(String resourceId, long timeOutMillis);
 }
@@ -0,0 +1,48 @@
+package org.github.siahsang.redutils.common;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Java 21 variant of the thread factories that creates virtual threads, so parked waiters, callbacks, refreshers and
+ * listeners do not hold OS threads. Set the system property {@code redutils.virtualThreads} to false for using
+ * platform threads.
+ *
+ * @author Javad Alimohammadi
+ */
+public final class ThreadFactories {
+    private static final boolean VIRTUAL = Boolean.parseBoolean(System.getProperty("redutils.virtualThreads", "true"));
+
+    private ThreadFactories() {
+    }
+
+    /**
+     * @return true if the created threads are virtual
+     */
+    public static boolean isVirtual() {
+        return VIRTUAL;
+    }
+
+    /**
+     * @return executor of callbacks and other short tasks, with a thread per running task
+     */
+    public static ExecutorService newTaskExecutor() {
+        if (!VIRTUAL) {
+            return Executors.newCachedThreadPool(Thread.ofPlatform().name("red-utils-task-", 0).factory());
+        }
+
+        return Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("red-utils-task-", 0).factory());
+    }
+
+    /**
+     * @return unstarted thread for a long running task, like a listener or a timer, that does not keep the JVM alive
+     */
+    public static Thread newDaemonThread(final String name, final Runnable task) {
+        if (!VIRTUAL) {
+            return Thread.ofPlatform().name(name).daemon(true).unstarted(task);
+        }
+
+        // virtual threads are always daemon
+        return Thread.ofVirtual().name(name).unstarted(task);
+    }
+}
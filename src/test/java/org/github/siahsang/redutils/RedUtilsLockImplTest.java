@@ -1,9 +1,15 @@
 package org.github.siahsang.redutils;
 
 import org.awaitility.Awaitility;
+import org.github.siahsang.redutils.common.CommandExecutionMode;
 import org.github.siahsang.redutils.common.RedUtilsConfig;
+import org.github.siahsang.redutils.common.UnlockNotificationMode;
+import org.github.siahsang.redutils.common.redis.LuaScript;
+import org.github.siahsang.redutils.exception.BulkheadFullException;
+import org.github.siahsang.redutils.exception.KeyspaceNotificationDisabledException;
 import org.github.siahsang.redutils.exception.RefreshLockException;
 import org.github.siahsang.redutils.exception.ReplicaIsDownException;
+import org.github.siahsang.redutils.lock.BackoffPollingWaitStrategy;
 import org.github.siahsang.test.redis.RedisAddress;
 import org.github.siahsang.test.redis.RedisServer;
 import org.junit.jupiter.api.AfterEach;
@@ -17,7 +23,9 @@ import redis.clients.jedis.exceptions.JedisConnectionException;
 import java.time.Duration;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Set;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.TimeUnit;
@@ -543,6 +551,608 @@ class RedUtilsLockImplTest extends AbstractBaseTest {
     }
 
 
+    @Test
+    void test_acquire_WHEN_session_lease_is_enabled_THEN_lock_SHOULD_be_bound_to_the_session() throws Exception {
+        //************************
+        //          Given
+        //************************
+        RedUtilsConfig redUtilsConfig = new RedUtilsConfig.RedUtilsConfigBuilder()
+                .hostAddress(GENERAL_REDIS_ADDRESS.masterHostAddress)
+                .port(GENERAL_REDIS_ADDRESS.masterPort)
+                .sessionLeaseEnabled(true)
+                .leaseTimeMillis(3_000)
+                .build();
+
+        RedUtilsLockImpl redUtilsLock = new RedUtilsLockImpl(redUtilsConfig);
+        AtomicReference<String> lockValue = new AtomicReference<>();
+        AtomicReference<Long> lockTTL = new AtomicReference<>();
+        AtomicReference<Long> sessionTTL = new AtomicReference<>();
+
+        //************************
+        //          WHEN
+        //************************
+        redUtilsLock.acquire("lock1", () -> {
+            // wait for a few heartbeats
+            sleepSeconds(4);
+            lockValue.set(getKey("lock1"));
+            lockTTL.set(JEDIS.pttl("lock1"));
+            sessionTTL.set(JEDIS.pttl(lockValue.get().substring(0, lockValue.get().indexOf('|'))));
+        });
+
+        //************************
+        //          THEN
+        //************************
+        Assertions.assertNotNull(lockValue.get());
+        // the lock key only expires if the client stops heartbeating, e.g. it crashes
+        Assertions.assertTrue(lockTTL.get() > 3_000 && lockTTL.get() <= 30_000);
+        Assertions.assertTrue(sessionTTL.get() > 0);
+        Assertions.assertNull(getKey("lock1"));
+    }
+
+
+    @Test
+    void test_acquire_WHEN_session_is_expired_THEN_its_locks_SHOULD_be_lost_and_not_come_back() throws Exception {
+        //************************
+        //          Given
+        //************************
+        RedUtilsConfig redUtilsConfig = new RedUtilsConfig.RedUtilsConfigBuilder()
+                .hostAddress(GENERAL_REDIS_ADDRESS.masterHostAddress)
+                .port(GENERAL_REDIS_ADDRESS.masterPort)
+                .sessionLeaseEnabled(true)
+                .leaseTimeMillis(30_000)
+                .build();
+
+        RedUtilsLockImpl firstClient = new RedUtilsLockImpl(redUtilsConfig);
+        RedUtilsLockImpl secondClient = new RedUtilsLockImpl(redUtilsConfig);
+        Lease firstLease = firstClient.lock("lock1");
+        String firstValue = getKey("lock1");
+
+        //************************
+        //          WHEN
+        //************************
+        // the session expires before the next heartbeat, e.g. after a long pause
+        String firstSession = firstValue.substring(0, firstValue.indexOf('|'));
+        JEDIS.del(firstSession);
+        Lease secondLease = secondClient.tryLock("lock1");
+        Assertions.assertThrows(RefreshLockException.class, () -> firstClient.tryAcquire("lock2", () -> {
+        }));
+        // the owner of the lost lease is interrupted
+        boolean ownerInterrupted = Thread.interrupted();
+        boolean acquiredInNewSession = firstClient.tryAcquire("lock2", () -> {
+        });
+        firstLease.close();
+        Lease lostLease = firstClient.tryLock("lock1");
+
+        //************************
+        //          THEN
+        //************************
+        Assertions.assertNotNull(secondLease);
+        Assertions.assertTrue(ownerInterrupted);
+        Assertions.assertFalse(firstLease.isValid());
+        Assertions.assertTrue(acquiredInNewSession);
+        // the new session does not bring back the lost lock
+        Assertions.assertNull(lostLease);
+        Assertions.assertFalse(getKey("lock1").startsWith(firstSession));
+        secondLease.close();
+        Assertions.assertNull(getKey("lock1"));
+    }
+
+    @Test
+    void test_acquire_WHEN_scripts_are_flushed_THEN_they_SHOULD_be_loaded_again() throws Exception {
+        //************************
+        //          Given
+        //************************
+        RedUtilsLockImpl redUtilsLock = new RedUtilsLockImpl(GENERAL_REDIS_ADDRESS.masterHostAddress, GENERAL_REDIS_ADDRESS.masterPort);
+        AtomicInteger executionCount = new AtomicInteger(0);
+        redUtilsLock.acquire("lock1", executionCount::incrementAndGet);
+
+        //************************
+        //          WHEN
+        //************************
+        JEDIS.scriptFlush();
+        redUtilsLock.acquire("lock1", executionCount::incrementAndGet);
+
+        //************************
+        //          THEN
+        //************************
+        Assertions.assertEquals(2, executionCount.get());
+        Assertions.assertNull(getKey("lock1"));
+    }
+
+
+    @Test
+    void test_constructor_WHEN_keyspace_notifications_are_disabled_THEN_we_SHOULD_get_exception() throws Exception {
+        //************************
+        //          Given
+        //************************
+        RedUtilsConfig redUtilsConfig = new RedUtilsConfig.RedUtilsConfigBuilder()
+                .hostAddress(GENERAL_REDIS_ADDRESS.masterHostAddress)
+                .port(GENERAL_REDIS_ADDRESS.masterPort)
+                .unlockNotificationMode(UnlockNotificationMode.KEYSPACE)
+                .build();
+
+        //************************
+        //          WHEN
+        //************************
+        JEDIS.configSet("notify-keyspace-events", "");
+
+        //************************
+        //          THEN
+        //************************
+        Assertions.assertThrows(KeyspaceNotificationDisabledException.class, () -> new RedUtilsLockImpl(redUtilsConfig));
+    }
+
+
+    @Test
+    void test_acquire_WHEN_lock_of_crashed_holder_is_removed_THEN_waiter_SHOULD_get_lock_immediately() throws Exception {
+        //************************
+        //          Given
+        //************************
+        JEDIS.configSet("notify-keyspace-events", "Kgx");
+        RedUtilsConfig redUtilsConfig = new RedUtilsConfig.RedUtilsConfigBuilder()
+                .hostAddress(GENERAL_REDIS_ADDRESS.masterHostAddress)
+                .port(GENERAL_REDIS_ADDRESS.masterPort)
+                .unlockNotificationMode(UnlockNotificationMode.KEYSPACE)
+                .build();
+
+        RedUtilsLockImpl redUtilsLock = new RedUtilsLockImpl(redUtilsConfig);
+        AtomicBoolean lockAcquired = new AtomicBoolean(false);
+        // the holder crashed, so nobody publishes the unlock message
+        JEDIS.psetex("lock1", 30_000, "crashed-holder");
+
+        //************************
+        //          WHEN
+        //************************
+        try {
+            CompletableFuture.runAsync(() -> redUtilsLock.acquire("lock1", () -> lockAcquired.set(true)));
+            sleepMillis(500);
+            JEDIS.del("lock1");
+
+            //************************
+            //          THEN
+            //************************
+            Awaitility.await("check lock is acquired").atMost(Duration.ofSeconds(3)).untilTrue(lockAcquired);
+        } finally {
+            JEDIS.configSet("notify-keyspace-events", "");
+        }
+    }
+
+
+    @Test
+    void test_acquire_WHEN_waiters_are_more_than_connections_THEN_all_of_them_SHOULD_get_lock() throws Exception {
+        //************************
+        //          Given
+        //************************
+        final int waiterCount = 20;
+        RedUtilsConfig redUtilsConfig = new RedUtilsConfig.RedUtilsConfigBuilder()
+                .hostAddress(GENERAL_REDIS_ADDRESS.masterHostAddress)
+                .port(GENERAL_REDIS_ADDRESS.masterPort)
+                .maxPoolSize(5)
+                .build();
+
+        RedUtilsLockImpl redUtilsLock = new RedUtilsLockImpl(redUtilsConfig);
+        AtomicInteger sharedResource = new AtomicInteger(0);
+        ExecutorService executorService = Executors.newCachedThreadPool();
+        executorService.submit(() -> redUtilsLock.acquire("lock1", () -> sleepSeconds(2)));
+        sleepMillis(500);
+
+        //************************
+        //          WHEN
+        //************************
+        // waiters are parked without holding any connection
+        for (int i = 0; i < waiterCount; i++) {
+            executorService.submit(() -> redUtilsLock.acquire("lock1", sharedResource::incrementAndGet));
+            sleepMillis(20);
+        }
+        executorService.shutdown();
+        boolean allThreadExecutionFinished = executorService.awaitTermination(1, TimeUnit.MINUTES);
+
+        //************************
+        //          THEN
+        //************************
+        Assertions.assertTrue(allThreadExecutionFinished);
+        Assertions.assertEquals(waiterCount, sharedResource.get());
+    }
+
+
+    @Test
+    void test_acquire_WHEN_auto_pipelining_is_enabled_AND_multiple_threads_process_the_same_resource_THEN_we_SHOULD_get_correct_result() throws Exception {
+        //************************
+        //          Given
+        //************************
+        final int threadCount = 50;
+        RedUtilsConfig redUtilsConfig = new RedUtilsConfig.RedUtilsConfigBuilder()
+                .hostAddress(GENERAL_REDIS_ADDRESS.masterHostAddress)
+                .port(GENERAL_REDIS_ADDRESS.masterPort)
+                .commandExecutionMode(CommandExecutionMode.AUTO_PIPELINING)
+                .maxPoolSize(5)
+                .build();
+
+        RedUtilsLockImpl redUtilsLock = new RedUtilsLockImpl(redUtilsConfig);
+        AtomicInteger sharedResource = new AtomicInteger(0);
+        ExecutorService executorService = Executors.newCachedThreadPool();
+
+        //************************
+        //          WHEN
+        //************************
+        // more threads than connections, since lock commands are sent over the shared pipeline connections
+        for (int i = 0; i < threadCount; i++) {
+            executorService.submit(() -> redUtilsLock.acquire("lock1", () -> {
+                int resValue = sharedResource.get();
+                sharedResource.set(resValue + 1);
+            }));
+        }
+        executorService.shutdown();
+        boolean allThreadExecutionFinished = executorService.awaitTermination(1, TimeUnit.MINUTES);
+
+        //************************
+        //          THEN
+        //************************
+        Assertions.assertTrue(allThreadExecutionFinished);
+        Assertions.assertEquals(threadCount, sharedResource.get());
+    }
+
+
+    @Test
+    void test_acquire_WHEN_nio_is_enabled_THEN_locks_SHOULD_be_acquired_and_released() throws Exception {
+        //************************
+        //          Given
+        //************************
+        final int threadCount = 50;
+        RedUtilsConfig redUtilsConfig = new RedUtilsConfig.RedUtilsConfigBuilder()
+                .hostAddress(GENERAL_REDIS_ADDRESS.masterHostAddress)
+                .port(GENERAL_REDIS_ADDRESS.masterPort)
+                .commandExecutionMode(CommandExecutionMode.NIO)
+                .build();
+
+        RedUtilsLockImpl redUtilsLock = new RedUtilsLockImpl(redUtilsConfig);
+        AtomicInteger sharedResource = new AtomicInteger(0);
+        ExecutorService executorService = Executors.newCachedThreadPool();
+        JEDIS.scriptFlush();
+
+        //************************
+        //          WHEN
+        //************************
+        for (int i = 0; i < threadCount; i++) {
+            executorService.submit(() -> redUtilsLock.acquire("lock1", () -> {
+                int resValue = sharedResource.get();
+                sharedResource.set(resValue + 1);
+            }));
+        }
+        executorService.shutdown();
+        boolean allThreadExecutionFinished = executorService.awaitTermination(1, TimeUnit.MINUTES);
+
+        //************************
+        //          THEN
+        //************************
+        Assertions.assertTrue(allThreadExecutionFinished);
+        Assertions.assertEquals(threadCount, sharedResource.get());
+        Assertions.assertNull(getKey("lock1"));
+    }
+
+
+    @Test
+    void test_constructor_WHEN_warm_up_is_enabled_THEN_scripts_SHOULD_be_loaded() throws Exception {
+        //************************
+        //          Given
+        //************************
+        JEDIS.scriptFlush();
+        RedUtilsConfig redUtilsConfig = new RedUtilsConfig.RedUtilsConfigBuilder()
+                .hostAddress(GENERAL_REDIS_ADDRESS.masterHostAddress)
+                .port(GENERAL_REDIS_ADDRESS.masterPort)
+                .warmUpEnabled(true)
+                .minIdleConnections(4)
+                .build();
+
+        //************************
+        //          WHEN
+        //************************
+        new RedUtilsLockImpl(redUtilsConfig);
+
+        //************************
+        //          THEN
+        //************************
+        Assertions.assertTrue(JEDIS.scriptExists(LuaScript.GET_LOCK.getSha()));
+        Assertions.assertTrue(JEDIS.scriptExists(LuaScript.RELEASE_LOCK.getSha()));
+    }
+
+    @Test
+    void test_handle_WHEN_multiple_threads_use_the_same_handle_THEN_we_SHOULD_get_correct_result() throws Exception {
+        //************************
+        //          Given
+        //************************
+        final int threadCount = 30;
+        final AtomicInteger sharedResource = new AtomicInteger(0);
+        RedUtilsLockImpl redUtilsLock = new RedUtilsLockImpl(GENERAL_REDIS_ADDRESS.masterHostAddress, GENERAL_REDIS_ADDRESS.masterPort);
+        LockHandle lockHandle = redUtilsLock.handle("lock1");
+        ExecutorService executorService = Executors.newCachedThreadPool();
+
+        //************************
+        //          WHEN
+        //************************
+        for (int i = 0; i < threadCount; i++) {
+            executorService.submit(() -> {
+                lockHandle.acquire(() -> {
+                    int resValue = sharedResource.get();
+                    resValue = resValue + 1;
+                    sharedResource.set(resValue);
+                });
+            });
+        }
+        executorService.shutdown();
+        boolean allThreadExecutionFinished = executorService.awaitTermination(1, TimeUnit.MINUTES);
+        boolean gotLockAfterwards = lockHandle.tryAcquire(() -> {
+        });
+
+        //************************
+        //          THEN
+        //************************
+        Assertions.assertTrue(allThreadExecutionFinished);
+        Assertions.assertEquals(threadCount, sharedResource.get());
+        Assertions.assertTrue(gotLockAfterwards);
+        Assertions.assertEquals("lock1", lockHandle.getLockName());
+        Assertions.assertNull(getKey("lock1"));
+    }
+
+
+    @Test
+    void test_lock_WHEN_lease_is_open_THEN_lock_SHOULD_be_held_by_calling_thread_until_it_is_closed() throws Exception {
+        //************************
+        //          Given
+        //************************
+        RedUtilsLockImpl redUtilsLock = new RedUtilsLockImpl(GENERAL_REDIS_ADDRESS.masterHostAddress, GENERAL_REDIS_ADDRESS.masterPort);
+        ThreadLocal<String> callerState = ThreadLocal.withInitial(() -> "caller");
+        AtomicReference<String> stateInCriticalSection = new AtomicReference<>();
+        AtomicBoolean otherThreadGotLock = new AtomicBoolean(true);
+        Lease closedLease;
+
+        //************************
+        //          WHEN
+        //************************
+        try (Lease lease = redUtilsLock.lock("lock1")) {
+            stateInCriticalSection.set(callerState.get());
+            Assertions.assertTrue(lease.isValid());
+            CompletableFuture.runAsync(() -> {
+                try (Lease otherLease = redUtilsLock.tryLock("lock1")) {
+                    otherThreadGotLock.set(otherLease != null);
+                }
+            }).join();
+            closedLease = lease;
+        }
+
+        //************************
+        //          THEN
+        //************************
+        Assertions.assertEquals("caller", stateInCriticalSection.get());
+        Assertions.assertFalse(otherThreadGotLock.get());
+        Assertions.assertFalse(closedLease.isValid());
+        Assertions.assertThrows(IllegalStateException.class, closedLease::checkValid);
+        Assertions.assertNull(getKey("lock1"));
+    }
+
+    @Test
+    void test_lock_WHEN_leases_are_nested_THEN_closing_inner_lease_SHOULD_not_release_outer_lease() throws Exception {
+        //************************
+        //          Given
+        //************************
+        RedUtilsLockImpl redUtilsLock = new RedUtilsLockImpl(GENERAL_REDIS_ADDRESS.masterHostAddress, GENERAL_REDIS_ADDRESS.masterPort);
+        Lease nestedSameNameLease;
+        String outerValueAfterInnerClosed;
+        AtomicBoolean otherThreadGotLock = new AtomicBoolean(true);
+
+        //************************
+        //          WHEN
+        //************************
+        try (Lease outerLease = redUtilsLock.lock("lock1")) {
+            nestedSameNameLease = redUtilsLock.tryLock("lock1");
+            Assertions.assertThrows(IllegalStateException.class, () -> redUtilsLock.lock("lock1"));
+
+            try (Lease innerLease = redUtilsLock.lock("lock2")) {
+                Assertions.assertTrue(innerLease.isValid());
+            }
+            outerValueAfterInnerClosed = getKey("lock1");
+            CompletableFuture.runAsync(() -> {
+                try (Lease otherLease = redUtilsLock.tryLock("lock1")) {
+                    otherThreadGotLock.set(otherLease != null);
+                }
+            }).join();
+            outerLease.checkValid();
+        }
+
+        //************************
+        //          THEN
+        //************************
+        Assertions.assertNull(nestedSameNameLease);
+        Assertions.assertNotNull(outerValueAfterInnerClosed);
+        Assertions.assertFalse(otherThreadGotLock.get());
+        Assertions.assertNull(getKey("lock1"));
+        Assertions.assertNull(getKey("lock2"));
+        // the lock can be leased again after the outer lease is closed
+        try (Lease lease = redUtilsLock.tryLock("lock1")) {
+            Assertions.assertNotNull(lease);
+        }
+    }
+
+    @Test
+    void test_acquireAsync_WHEN_lock_is_held_THEN_request_SHOULD_wait_without_a_thread_and_run_after_release() throws Exception {
+        //************************
+        //          Given
+        //************************
+        RedUtilsLockImpl redUtilsLock = new RedUtilsLockImpl(GENERAL_REDIS_ADDRESS.masterHostAddress, GENERAL_REDIS_ADDRESS.masterPort);
+        AtomicInteger counter = new AtomicInteger();
+        CompletableFuture<Void> request;
+
+        //************************
+        //          WHEN
+        //************************
+        try (Lease lease = redUtilsLock.lock("lock1")) {
+            request = redUtilsLock.acquireAsync("lock1", counter::incrementAndGet);
+            Assertions.assertFalse(redUtilsLock.tryAcquireAsync("lock1", counter::incrementAndGet).get(5, TimeUnit.SECONDS));
+            sleepMillis(300);
+            Assertions.assertFalse(request.isDone());
+        }
+        request.get(5, TimeUnit.SECONDS);
+
+        //************************
+        //          THEN
+        //************************
+        Assertions.assertEquals(1, counter.get());
+        Assertions.assertNull(getKey("lock1"));
+    }
+
+    @Test
+    void test_acquire_WHEN_callback_group_is_full_THEN_callers_of_group_SHOULD_be_rejected_and_others_SHOULD_not() throws Exception {
+        //************************
+        //          Given
+        //************************
+        ExecutorService ordersExecutor = Executors.newFixedThreadPool(2);
+        RedUtilsConfig redUtilsConfig = new RedUtilsConfig.RedUtilsConfigBuilder()
+                .hostAddress(GENERAL_REDIS_ADDRESS.masterHostAddress)
+                .port(GENERAL_REDIS_ADDRESS.masterPort)
+                .callbackGroup("orders:*", ordersExecutor, 1)
+                .build();
+        RedUtilsLockImpl redUtilsLock = new RedUtilsLockImpl(redUtilsConfig);
+        CountDownLatch callbackStarted = new CountDownLatch(1);
+        CountDownLatch releaseCallback = new CountDownLatch(1);
+        AtomicInteger otherLockCounter = new AtomicInteger();
+
+        //************************
+        //          WHEN
+        //************************
+        CompletableFuture<Void> hotLock = redUtilsLock.acquireAsync("orders:1", () -> {
+            callbackStarted.countDown();
+            awaitUninterruptibly(releaseCallback);
+        });
+        Assertions.assertTrue(callbackStarted.await(5, TimeUnit.SECONDS));
+
+        //************************
+        //          THEN
+        //************************
+        Assertions.assertThrows(BulkheadFullException.class, () -> redUtilsLock.acquire("orders:2", () -> {
+        }));
+        redUtilsLock.acquire("payments:1", otherLockCounter::incrementAndGet);
+        Assertions.assertEquals(1, otherLockCounter.get());
+        Assertions.assertEquals(1, redUtilsLock.getBulkhead("orders:2").getRejectedCount());
+        Assertions.assertNull(redUtilsLock.getBulkhead("payments:1"));
+
+        releaseCallback.countDown();
+        hotLock.get(5, TimeUnit.SECONDS);
+        Assertions.assertEquals(0, redUtilsLock.getBulkhead("orders:1").getActiveCalls());
+        redUtilsLock.shutdown();
+        ordersExecutor.shutdown();
+    }
+
+    @Test
+    void test_acquire_WHEN_lock_is_not_released_before_max_wait_THEN_it_SHOULD_return_false_without_running_operation() throws Exception {
+        //************************
+        //          Given
+        //************************
+        RedUtilsLockImpl redUtilsLock = new RedUtilsLockImpl(GENERAL_REDIS_ADDRESS.masterHostAddress, GENERAL_REDIS_ADDRESS.masterPort);
+        AtomicInteger counter = new AtomicInteger();
+        boolean acquiredWhileHeld;
+        long elapsedMillis;
+
+        //************************
+        //          WHEN
+        //************************
+        try (Lease lease = redUtilsLock.lock("lock1")) {
+            long startTime = System.currentTimeMillis();
+            acquiredWhileHeld = CompletableFuture.supplyAsync(() ->
+                    redUtilsLock.acquire("lock1", Duration.ofMillis(500), counter::incrementAndGet)).get();
+            elapsedMillis = System.currentTimeMillis() - startTime;
+        }
+        boolean acquiredAfterRelease = redUtilsLock.acquire("lock1", Duration.ofSeconds(5), counter::incrementAndGet);
+
+        //************************
+        //          THEN
+        //************************
+        Assertions.assertFalse(acquiredWhileHeld);
+        Assertions.assertTrue(elapsedMillis >= 500 && elapsedMillis < 2000);
+        Assertions.assertTrue(acquiredAfterRelease);
+        Assertions.assertEquals(1, counter.get());
+        Assertions.assertNull(getKey("lock1"));
+    }
+
+    @Test
+    void test_acquire_WHEN_backoff_polling_is_used_AND_multiple_threads_process_the_same_resource_THEN_we_SHOULD_get_correct_result() throws Exception {
+        //************************
+        //          Given
+        //************************
+        final int threadCount = 20;
+        RedUtilsConfig redUtilsConfig = new RedUtilsConfig.RedUtilsConfigBuilder()
+                .hostAddress(GENERAL_REDIS_ADDRESS.masterHostAddress)
+                .port(GENERAL_REDIS_ADDRESS.masterPort)
+                .waitStrategy(new BackoffPollingWaitStrategy(1, 20, 2, 0.5))
+                .build();
+
+        RedUtilsLockImpl redUtilsLock = new RedUtilsLockImpl(redUtilsConfig);
+        AtomicInteger sharedResource = new AtomicInteger(0);
+        ExecutorService executorService = Executors.newCachedThreadPool();
+
+        //************************
+        //          WHEN
+        //************************
+        for (int i = 0; i < threadCount; i++) {
+            executorService.submit(() -> redUtilsLock.acquire("lock1", () -> {
+                int resValue = sharedResource.get();
+                sleepMillis(5);
+                sharedResource.set(resValue + 1);
+            }));
+        }
+        executorService.shutdown();
+        boolean allThreadExecutionFinished = executorService.awaitTermination(1, TimeUnit.MINUTES);
+
+        //************************
+        //          THEN
+        //************************
+        Assertions.assertTrue(allThreadExecutionFinished);
+        Assertions.assertEquals(threadCount, sharedResource.get());
+        // nobody subscribed to the channel of the lock
+        Assertions.assertEquals(0, redUtilsLock.getChannelLingerCache().getMissCount());
+    }
+
+    @Test
+    void test_shutdown_WHEN_client_has_used_channels_and_refresher_THEN_no_thread_of_client_SHOULD_remain() throws Exception {
+        //************************
+        //          Given
+        //************************
+        Set<Thread> threadsBefore = Thread.getAllStackTraces().keySet();
+        RedUtilsLockImpl redUtilsLock = new RedUtilsLockImpl(GENERAL_REDIS_ADDRESS.masterHostAddress, GENERAL_REDIS_ADDRESS.masterPort);
+        try (Lease lease = redUtilsLock.lock("lock1")) {
+            // a waiter subscribes to the channel of the lock
+            CompletableFuture<Boolean> waiter = CompletableFuture.supplyAsync(() ->
+                    redUtilsLock.acquire("lock1", Duration.ofMillis(300), () -> {
+                    }));
+            Assertions.assertFalse(waiter.get());
+        }
+        redUtilsLock.acquire("lock2", () -> sleepMillis(100));
+
+        //************************
+        //          WHEN
+        //************************
+        redUtilsLock.shutdown();
+
+        //************************
+        //          THEN
+        //************************
+        // the timer is shared by all clients of the process
+        Awaitility.await("check threads of the client are stopped").atMost(Duration.ofSeconds(5)).until(() ->
+                Thread.getAllStackTraces().keySet().stream()
+                        .filter(thread -> !threadsBefore.contains(thread))
+                        .filter(Thread::isAlive)
+                        .noneMatch(thread -> thread.getName().startsWith("red-utils-")
+                                && !thread.getName().equals("red-utils-timer")));
+    }
+
+    private void awaitUninterruptibly(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+
     private String getKey(String key) {
         return JEDIS.get(key);
     }
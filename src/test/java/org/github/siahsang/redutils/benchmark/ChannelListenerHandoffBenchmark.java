@@ -0,0 +1,123 @@
+package org.github.siahsang.redutils.benchmark;
+
+import org.github.siahsang.redutils.common.WakePolicy;
+import org.github.siahsang.redutils.lock.ChannelListener;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Measure the time between receiving the unlock message and waking up the first local waiter, with many threads
+ * waiting for the same lock.
+ * <p>
+ * Compile with {@code mvn clean test-compile -Pbenchmark} and run the {@code main} method with the test classpath, it
+ * does not need a Redis server.
+ *
+ * @author Javad Alimohammadi
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ChannelListenerHandoffBenchmark {
+
+    @Param({"1", "4", "16", "64", "256"})
+    private int waiters;
+
+    @Param({"WAKE_ONE", "WAKE_ALL"})
+    private WakePolicy wakePolicy;
+
+    private ChannelListener channelListener;
+
+    private final List<Thread> waiterThreads = new ArrayList<>();
+
+    private final AtomicLong wakeUpCount = new AtomicLong();
+
+    @Setup(Level.Trial)
+    public void startWaiters() {
+        channelListener = new ChannelListener(wakePolicy) {
+            @Override
+            public void shutdown() {
+            }
+
+            @Override
+            public void startListening() {
+            }
+        };
+
+        for (int i = 0; i < waiters; i++) {
+            Thread thread = new Thread(() -> {
+                channelListener.addSubscriber(Thread.currentThread().getId());
+                try {
+                    while (!Thread.currentThread().isInterrupted()) {
+                        channelListener.waitForGettingNotificationFromChannel(TimeUnit.MINUTES.toMillis(1));
+                        wakeUpCount.incrementAndGet();
+                    }
+                } catch (InterruptedException ignored) {
+                    // benchmark is finished
+                } finally {
+                    channelListener.removeSubscriber(Thread.currentThread().getId(), true);
+                }
+            }, "handoff-waiter-" + i);
+            thread.setDaemon(true);
+            thread.start();
+            waiterThreads.add(thread);
+        }
+    }
+
+    @Setup(Level.Invocation)
+    public void awaitAllWaitersParked() {
+        while (channelListener.getWaitingCount() < waiters) {
+            Thread.yield();
+        }
+    }
+
+    @Benchmark
+    public long handoff() {
+        final long wakeUpsBefore = wakeUpCount.get();
+        channelListener.onGettingNewMessage();
+        while (wakeUpCount.get() == wakeUpsBefore) {
+            Thread.yield();
+        }
+
+        return wakeUpCount.get();
+    }
+
+    @TearDown(Level.Trial)
+    public void stopWaiters() throws InterruptedException {
+        for (Thread thread : waiterThreads) {
+            thread.interrupt();
+        }
+        for (Thread thread : waiterThreads) {
+            thread.join(TimeUnit.SECONDS.toMillis(5));
+        }
+        waiterThreads.clear();
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(ChannelListenerHandoffBenchmark.class.getSimpleName())
+                .build()
+        ).run();
+    }
+}
@@ -0,0 +1,208 @@
+package org.github.siahsang.redutils.benchmark;
+
+import org.github.siahsang.redutils.common.connection.ConnectionReservations;
+import org.github.siahsang.redutils.common.connection.JedisConnectionManager;
+import org.github.siahsang.redutils.exception.BadRequestException;
+import org.github.siahsang.redutils.exception.InsufficientResourceException;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Compare {@link ConnectionReservations} with the previous bookkeeping of {@link JedisConnectionManager}, with many
+ * threads that each reserve, use and free a connection. Connections are plain objects, so it does not need a Redis
+ * server. Change the number of threads with {@code -t}, e.g. {@code -t 256}.
+ *
+ * @author Javad Alimohammadi
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Threads(200)
+@Fork(value = 1, jvmArgsAppend = "-Xmx1g")
+public class ConnectionReservationsBenchmark {
+
+    // the legacy code gives back capacity on every put back, so leave room for it to grow
+    private static final int CAPACITY = 1_000_000;
+
+    private static final Object CONNECTION = new Object();
+
+    private static final List<Object> CONNECTIONS = Collections.singletonList(CONNECTION);
+
+    @State(Scope.Benchmark)
+    public static class SharedState {
+        final ConnectionReservations<Object> reservations = new ConnectionReservations<>(CAPACITY);
+
+        final LegacyReservations legacyReservations = new LegacyReservations(CAPACITY);
+    }
+
+    @State(Scope.Thread)
+    public static class OwnerState {
+        final String resourceId = Thread.currentThread().getId() + ":" + UUID.randomUUID();
+
+        final String attemptResourceId = resourceId + ":attempt";
+
+        @Setup(Level.Iteration)
+        public void reserve(SharedState sharedState) {
+            sharedState.reservations.tryReserve(1);
+            sharedState.reservations.add(resourceId, CONNECTIONS);
+            sharedState.legacyReservations.reserve(resourceId, 1);
+        }
+
+        @TearDown(Level.Iteration)
+        public void free(SharedState sharedState) {
+            sharedState.reservations.free(resourceId, connection -> {
+            });
+            sharedState.legacyReservations.free(resourceId);
+        }
+    }
+
+    /**
+     * Borrow and put back a connection, like every command that is sent with a reserved connection
+     */
+    @Benchmark
+    public Object borrowAndPutBack(SharedState sharedState, OwnerState ownerState) {
+        Object connection = sharedState.reservations.borrow(ownerState.resourceId);
+        sharedState.reservations.putBack(ownerState.resourceId, connection);
+        return connection;
+    }
+
+    @Benchmark
+    public Object legacyBorrowAndPutBack(SharedState sharedState, OwnerState ownerState) {
+        Object connection = sharedState.legacyReservations.borrow(ownerState.resourceId);
+        sharedState.legacyReservations.putBack(ownerState.resourceId, connection);
+        return connection;
+    }
+
+    /**
+     * A full lock attempt of a parked thread: reserve, send one command and free
+     */
+    @Benchmark
+    public Object reserveAndFree(SharedState sharedState, OwnerState ownerState) {
+        final String resourceId = ownerState.attemptResourceId;
+        sharedState.reservations.tryReserve(1);
+        sharedState.reservations.add(resourceId, CONNECTIONS);
+        Object connection = sharedState.reservations.borrow(resourceId);
+        sharedState.reservations.putBack(resourceId, connection);
+        sharedState.reservations.free(resourceId, closed -> {
+        });
+        return connection;
+    }
+
+    @Benchmark
+    public Object legacyReserveAndFree(SharedState sharedState, OwnerState ownerState) {
+        final String resourceId = ownerState.attemptResourceId;
+        sharedState.legacyReservations.reserve(resourceId, 1);
+        Object connection = sharedState.legacyReservations.borrow(resourceId);
+        sharedState.legacyReservations.putBack(resourceId, connection);
+        sharedState.legacyReservations.free(resourceId);
+        return connection;
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(ConnectionReservationsBenchmark.class.getSimpleName())
+                .build()
+        ).run();
+    }
+
+    /**
+     * Copy of the bookkeeping that {@link JedisConnectionManager} used before {@link ConnectionReservations}
+     */
+    static final class LegacyReservations {
+        private final AtomicInteger capacity;
+
+        private final Map<String, List<Object>> reservedConnections = new ConcurrentHashMap<>();
+
+        LegacyReservations(int capacity) {
+            this.capacity = new AtomicInteger(capacity);
+        }
+
+        boolean reserve(final String resourceId, final int size) {
+            AtomicBoolean reservedSuccessfully = new AtomicBoolean(false);
+            capacity.updateAndGet(operand -> {
+                if (operand - size >= 0) {
+                    reservedSuccessfully.set(true);
+                    return operand - size;
+                } else {
+                    reservedSuccessfully.set(false);
+                    return operand;
+                }
+            });
+
+            if (reservedSuccessfully.get()) {
+                reservedConnections.putIfAbsent(resourceId, new ArrayList<>());
+                for (int i = 0; i < size; i++) {
+                    reservedConnections.get(resourceId).add(CONNECTION);
+                }
+            }
+
+            return reservedSuccessfully.get();
+        }
+
+        Object borrow(final String resourceId) {
+            List<Object> returnList = new ArrayList<>();
+            reservedConnections.compute(resourceId, (s, connectionList) -> {
+                if (Objects.isNull(connectionList)) {
+                    throw new BadRequestException("Invalid resource_id " + resourceId);
+                }
+
+                if (connectionList.isEmpty()) {
+                    throw new InsufficientResourceException("There is no any free connection. Try later!");
+                }
+
+                returnList.add(connectionList.remove(connectionList.size() - 1));
+                return connectionList;
+            });
+
+            return returnList.get(0);
+        }
+
+        void putBack(final String resourceId, final Object connection) {
+            reservedConnections.compute(resourceId, (s, connectionList) -> {
+                if (Objects.isNull(connectionList)) {
+                    throw new BadRequestException("Invalid resource_id " + resourceId);
+                }
+                connectionList.add(connection);
+                return connectionList;
+            });
+
+            capacity.incrementAndGet();
+        }
+
+        void free(final String resourceId) {
+            reservedConnections.compute(resourceId, (s, connectionList) -> {
+                if (Objects.isNull(connectionList)) {
+                    throw new BadRequestException("Invalid resource_id " + resourceId);
+                }
+                connectionList.clear();
+                return null;
+            });
+        }
+    }
+}
@@ -0,0 +1,94 @@
+package org.github.siahsang.redutils.benchmark;
+
+import org.github.siahsang.redutils.Lease;
+import org.github.siahsang.redutils.LockHandle;
+import org.github.siahsang.redutils.RedUtilsLockImpl;
+import org.github.siahsang.test.redis.RedisAddress;
+import org.github.siahsang.test.redis.RedisServer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Compare a short critical section that runs on the operation executor (callback API) with the same section that runs
+ * on the calling thread (lease API). Every thread uses its own lock, so only the overhead of the API is measured. It
+ * needs Docker for running Redis.
+ *
+ * @author Javad Alimohammadi
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Threads(8)
+@Fork(1)
+public class LeaseVsCallbackBenchmark {
+
+    private RedisServer redisServer;
+
+    private RedUtilsLockImpl redUtilsLock;
+
+    private final AtomicLong lockIds = new AtomicLong();
+
+    @State(Scope.Thread)
+    public static class ThreadLock {
+        private LockHandle lockHandle;
+
+        private long counter;
+
+        @Setup(Level.Trial)
+        public void prepare(LeaseVsCallbackBenchmark benchmark) {
+            lockHandle = benchmark.redUtilsLock.handle("benchmark-lock-" + benchmark.lockIds.incrementAndGet());
+        }
+    }
+
+    @Setup(Level.Trial)
+    public void startRedis() {
+        redisServer = new RedisServer();
+        RedisAddress redisAddress = redisServer.startSingleInstance();
+        redUtilsLock = new RedUtilsLockImpl(redisAddress.masterHostAddress, redisAddress.masterPort);
+    }
+
+    @Benchmark
+    public long callback(ThreadLock threadLock) {
+        threadLock.lockHandle.acquire(() -> threadLock.counter++);
+        return threadLock.counter;
+    }
+
+    @Benchmark
+    public long lease(ThreadLock threadLock) {
+        try (Lease lease = threadLock.lockHandle.lock()) {
+            threadLock.counter++;
+        }
+        return threadLock.counter;
+    }
+
+    @TearDown(Level.Trial)
+    public void stopRedis() {
+        redisServer.shutDown();
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(LeaseVsCallbackBenchmark.class.getSimpleName())
+                .build()
+        ).run();
+    }
+}
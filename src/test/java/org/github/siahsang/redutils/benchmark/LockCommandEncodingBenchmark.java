@@ -0,0 +1,110 @@
+package org.github.siahsang.redutils.benchmark;
+
+import org.github.siahsang.redutils.common.OwnerToken;
+import org.github.siahsang.redutils.common.ThreadManager;
+import org.github.siahsang.redutils.common.redis.LuaScript;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import redis.clients.jedis.util.SafeEncoder;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measure what is allocated on the client side to build the arguments of one get-lock and one release-lock command,
+ * from the owner name to the encoded parameters that are handed to Jedis. {@code legacyStringArguments} repeats what
+ * was done before owner tokens: a new owner name for every reservation, string lists and encoding in the string API of
+ * Jedis.
+ * <p>
+ * Compile with {@code mvn clean test-compile -Pbenchmark} and run the {@code main} method with the test classpath, it
+ * does not need a Redis server. Allocation is reported by the gc profiler.
+ *
+ * @author Javad Alimohammadi
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class LockCommandEncodingBenchmark {
+
+    private static final String GENERATED_UUID = UUID.randomUUID().toString();
+
+    private static final long LEASE_TIME_MILLIS = 30_000;
+
+    private final String lockName = "orders:42";
+
+    private final byte[] lockKey = lockName.getBytes(StandardCharsets.UTF_8);
+
+    private final byte[] leaseTimeBytes = String.valueOf(LEASE_TIME_MILLIS).getBytes(StandardCharsets.US_ASCII);
+
+    private final byte[] unlockedMessageBytes = "RED_UTILS_UN_LOCKED_".getBytes(StandardCharsets.UTF_8);
+
+    @Benchmark
+    public void legacyStringArguments(Blackhole blackhole) {
+        String owner = Thread.currentThread().getId() + ":" + GENERATED_UUID;
+
+        List<String> getLockKeys = Collections.singletonList(lockName);
+        List<String> getLockArgs = Arrays.asList(owner, String.valueOf(LEASE_TIME_MILLIS));
+        blackhole.consume(encode(LuaScript.GET_LOCK.getSha(), getLockKeys, getLockArgs));
+
+        List<String> releaseLockKeys = Collections.singletonList(lockName);
+        List<String> releaseLockArgs = Arrays.asList(owner, "RED_UTILS_UN_LOCKED_");
+        blackhole.consume(encode(LuaScript.RELEASE_LOCK.getSha(), releaseLockKeys, releaseLockArgs));
+    }
+
+    @Benchmark
+    public void cachedBinaryArguments(Blackhole blackhole) {
+        OwnerToken owner = ThreadManager.createToken();
+
+        blackhole.consume(LuaScript.GET_LOCK.getShaBytes());
+        consumeParams(blackhole, lockKey, owner.getBytes(), leaseTimeBytes);
+
+        blackhole.consume(LuaScript.RELEASE_LOCK.getShaBytes());
+        consumeParams(blackhole, lockKey, ThreadManager.getToken().getBytes(), unlockedMessageBytes);
+    }
+
+    private static void consumeParams(Blackhole blackhole, byte[]... params) {
+        blackhole.consume(params);
+    }
+
+    /**
+     * Same as the string evalsha of Jedis before it writes the command
+     */
+    private static byte[][] encode(String sha, List<String> keys, List<String> args) {
+        byte[][] params = new byte[keys.size() + args.size() + 1][];
+        params[0] = SafeEncoder.encode(sha);
+        int index = 1;
+        for (String key : keys) {
+            params[index++] = SafeEncoder.encode(key);
+        }
+        for (String arg : args) {
+            params[index++] = SafeEncoder.encode(arg);
+        }
+        return params;
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(LockCommandEncodingBenchmark.class.getSimpleName())
+                .addProfiler("gc")
+                .build()
+        ).run();
+    }
+}
@@ -0,0 +1,90 @@
+package org.github.siahsang.redutils.benchmark;
+
+import org.github.siahsang.redutils.RedUtilsLockImpl;
+import org.github.siahsang.redutils.common.RedUtilsConfig;
+import org.github.siahsang.test.redis.RedisAddress;
+import org.github.siahsang.test.redis.RedisServer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import redis.clients.jedis.Jedis;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measure the time of the first acquire of a new client, like the first requests after a deploy, with and without
+ * warm-up. Creating the client is not measured. It needs Docker for running Redis.
+ *
+ * @author Javad Alimohammadi
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 30)
+@Fork(1)
+public class StartupLatencyBenchmark {
+
+    @Param({"false", "true"})
+    private boolean warmUpEnabled;
+
+    private RedisServer redisServer;
+
+    private RedisAddress redisAddress;
+
+    private RedUtilsLockImpl redUtilsLock;
+
+    @Setup(Level.Trial)
+    public void startRedis() {
+        redisServer = new RedisServer();
+        redisAddress = redisServer.startSingleInstance();
+    }
+
+    @Setup(Level.Invocation)
+    public void createClient() {
+        // a restarted server does not have the scripts either
+        try (Jedis jedis = new Jedis(redisAddress.masterHostAddress, redisAddress.masterPort)) {
+            jedis.scriptFlush();
+        }
+
+        RedUtilsConfig redUtilsConfig = new RedUtilsConfig.RedUtilsConfigBuilder()
+                .hostAddress(redisAddress.masterHostAddress)
+                .port(redisAddress.masterPort)
+                .warmUpEnabled(warmUpEnabled)
+                .minIdleConnections(4)
+                .build();
+
+        redUtilsLock = new RedUtilsLockImpl(redUtilsConfig);
+    }
+
+    @Benchmark
+    public boolean firstAcquire() {
+        return redUtilsLock.tryAcquire("startup-lock", () -> {
+        });
+    }
+
+    @TearDown(Level.Trial)
+    public void stopRedis() {
+        redisServer.shutDown();
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(StartupLatencyBenchmark.class.getSimpleName())
+                .build()
+        ).run();
+    }
+}
@@ -0,0 +1,111 @@
+package org.github.siahsang.redutils.benchmark;
+
+import org.github.siahsang.redutils.RedUtilsLockImpl;
+import org.github.siahsang.redutils.common.RedUtilsConfig;
+import org.github.siahsang.redutils.lock.BackoffPollingWaitStrategy;
+import org.github.siahsang.redutils.lock.PubSubWaitStrategy;
+import org.github.siahsang.redutils.lock.SpinThenSubscribeWaitStrategy;
+import org.github.siahsang.redutils.lock.WaitStrategy;
+import org.github.siahsang.test.redis.RedisAddress;
+import org.github.siahsang.test.redis.RedisServer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Supplier;
+
+/**
+ * Compare the wait strategies while several threads contend for the same lock, with very short and with longer
+ * critical sections. The number of subscriptions is printed after each trial. It needs Docker for running Redis.
+ *
+ * @author Javad Alimohammadi
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Threads(8)
+@Fork(1)
+public class WaitStrategyBenchmark {
+
+    public enum WaitStrategyProfile {
+        PUB_SUB(PubSubWaitStrategy::new),
+        SPIN_THEN_SUBSCRIBE(() -> new SpinThenSubscribeWaitStrategy(3, 50, TimeUnit.MICROSECONDS)),
+        BACKOFF_POLLING(() -> new BackoffPollingWaitStrategy(1, 50, 2, 0.5));
+
+        private final Supplier<WaitStrategy> factory;
+
+        WaitStrategyProfile(Supplier<WaitStrategy> factory) {
+            this.factory = factory;
+        }
+    }
+
+    @Param({"PUB_SUB", "SPIN_THEN_SUBSCRIBE", "BACKOFF_POLLING"})
+    private WaitStrategyProfile waitStrategy;
+
+    /**
+     * Time inside the critical section, 0 is a lock that is held only during the round trips
+     */
+    @Param({"0", "2000"})
+    private int criticalSectionMicros;
+
+    private RedisServer redisServer;
+
+    private RedUtilsLockImpl redUtilsLock;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        redisServer = new RedisServer();
+        RedisAddress redisAddress = redisServer.startSingleInstance();
+
+        RedUtilsConfig redUtilsConfig = new RedUtilsConfig.RedUtilsConfigBuilder()
+                .hostAddress(redisAddress.masterHostAddress)
+                .port(redisAddress.masterPort)
+                .maxPoolSize(16)
+                .waitStrategy(waitStrategy.factory.get())
+                .build();
+
+        redUtilsLock = new RedUtilsLockImpl(redUtilsConfig);
+    }
+
+    @Benchmark
+    public void contendedAcquire() {
+        redUtilsLock.acquire("wait-strategy-lock", () -> {
+            if (criticalSectionMicros > 0) {
+                LockSupport.parkNanos(TimeUnit.MICROSECONDS.toNanos(criticalSectionMicros));
+            }
+        });
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        System.out.println();
+        System.out.println(waitStrategy + " subscriptions: " + redUtilsLock.getChannelLingerCache().getMissCount());
+        redUtilsLock.shutdown();
+        redisServer.shutDown();
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(WaitStrategyBenchmark.class.getSimpleName())
+                .build()
+        ).run();
+    }
+}
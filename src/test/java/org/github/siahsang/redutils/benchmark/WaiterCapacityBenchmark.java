@@ -0,0 +1,130 @@
+package org.github.siahsang.redutils.benchmark;
+
+import org.github.siahsang.redutils.Lease;
+import org.github.siahsang.redutils.RedUtilsLockImpl;
+import org.github.siahsang.redutils.common.RedUtilsConfig;
+import org.github.siahsang.redutils.common.ThreadFactories;
+import org.github.siahsang.test.redis.RedisAddress;
+import org.github.siahsang.test.redis.RedisServer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Park many waiters on a held lock, then release it and wait until all of them got the lock once. Waiters are
+ * platform threads, tasks of {@link ThreadFactories#newTaskExecutor()} or asynchronous requests. The peak number of
+ * live threads is printed after each trial. It needs Docker for running Redis.
+ * <p>
+ * Tasks run on virtual threads only if the benchmark runs on Java 21 with the packaged multi-release jar in the
+ * classpath instead of {@code target/classes}.
+ *
+ * @author Javad Alimohammadi
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(1)
+public class WaiterCapacityBenchmark {
+    private static final String LOCK_NAME = "waiter-capacity-lock";
+
+    public enum WaiterMode {
+        PLATFORM_THREADS, TASK_EXECUTOR, ASYNC
+    }
+
+    @Param({"1000", "10000"})
+    private int waiters;
+
+    @Param({"PLATFORM_THREADS", "TASK_EXECUTOR", "ASYNC"})
+    private WaiterMode waiterMode;
+
+    private RedisServer redisServer;
+
+    private RedUtilsLockImpl redUtilsLock;
+
+    private ExecutorService taskExecutor;
+
+    @Setup(Level.Trial)
+    public void startRedis() {
+        redisServer = new RedisServer();
+        RedisAddress redisAddress = redisServer.startSingleInstance();
+        RedUtilsConfig redUtilsConfig = new RedUtilsConfig.RedUtilsConfigBuilder()
+                .hostAddress(redisAddress.masterHostAddress)
+                .port(redisAddress.masterPort)
+                .admissionQueueEnabled(true)
+                .admissionQueueMaxLength(waiters)
+                .admissionQueueMaxWaitMillis(60_000)
+                .build();
+
+        redUtilsLock = new RedUtilsLockImpl(redUtilsConfig);
+        taskExecutor = ThreadFactories.newTaskExecutor();
+        ManagementFactory.getThreadMXBean().resetPeakThreadCount();
+    }
+
+    @Benchmark
+    public void parkAndDrain() throws Exception {
+        final CountDownLatch finished = new CountDownLatch(waiters);
+        final List<CompletableFuture<Void>> requests = new ArrayList<>(waiters);
+        try (Lease lease = redUtilsLock.lock(LOCK_NAME)) {
+            for (int i = 0; i < waiters; i++) {
+                startWaiter(finished, requests);
+            }
+        }
+
+        if (!finished.await(2, TimeUnit.MINUTES)) {
+            throw new IllegalStateException(finished.getCount() + " waiters did not get the lock");
+        }
+        CompletableFuture.allOf(requests.toArray(new CompletableFuture[0])).join();
+    }
+
+    private void startWaiter(final CountDownLatch finished, final List<CompletableFuture<Void>> requests) {
+        final Runnable waiter = () -> redUtilsLock.acquire(LOCK_NAME, finished::countDown);
+        switch (waiterMode) {
+            case PLATFORM_THREADS:
+                new Thread(waiter).start();
+                break;
+            case TASK_EXECUTOR:
+                taskExecutor.execute(waiter);
+                break;
+            default:
+                requests.add(redUtilsLock.acquireAsync(LOCK_NAME, finished::countDown));
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void stopRedis() {
+        System.out.printf("%n%s waiters in %s mode, virtual threads: %s, peak live threads: %d%n", waiters, waiterMode,
+                ThreadFactories.isVirtual(), ManagementFactory.getThreadMXBean().getPeakThreadCount());
+        taskExecutor.shutdown();
+        redisServer.shutDown();
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(WaiterCapacityBenchmark.class.getSimpleName())
+                .build()
+        ).run();
+    }
+}
@@ -0,0 +1,58 @@
+package org.github.siahsang.redutils.common;
+
+import org.github.siahsang.redutils.AbstractBaseTest;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+/**
+ * @author Javad Alimohammadi
+ */
+
+class BulkheadTest extends AbstractBaseTest {
+
+    @Test
+    void test_tryEnter_WHEN_limit_is_reached_THEN_calls_SHOULD_be_rejected_until_one_exits() {
+        //************************
+        //          Given
+        //************************
+        Bulkhead bulkhead = new Bulkhead("orders:*", 2);
+
+        //************************
+        //          WHEN
+        //************************
+        boolean first = bulkhead.tryEnter();
+        boolean second = bulkhead.tryEnter();
+        boolean third = bulkhead.tryEnter();
+        double saturation = bulkhead.getSaturation();
+        bulkhead.exit();
+        boolean afterExit = bulkhead.tryEnter();
+
+        //************************
+        //          THEN
+        //************************
+        Assertions.assertTrue(first);
+        Assertions.assertTrue(second);
+        Assertions.assertFalse(third);
+        Assertions.assertTrue(afterExit);
+        Assertions.assertEquals(100.0, saturation);
+        Assertions.assertEquals(2, bulkhead.getPeakActiveCalls());
+        Assertions.assertEquals(3, bulkhead.getAcceptedCount());
+        Assertions.assertEquals(1, bulkhead.getRejectedCount());
+    }
+
+    @Test
+    void test_matches_WHEN_pattern_has_wildcards_THEN_only_matching_lock_names_SHOULD_belong_to_group() {
+        //************************
+        //          Given
+        //************************
+        CallbackGroup callbackGroup = new CallbackGroup("orders:*:item.*", null, CallbackGroup.UNLIMITED);
+
+        //************************
+        //          THEN
+        //************************
+        Assertions.assertTrue(callbackGroup.matches("orders:12:item.3"));
+        Assertions.assertTrue(callbackGroup.matches("orders::item."));
+        Assertions.assertFalse(callbackGroup.matches("orders:12:itemX3"));
+        Assertions.assertFalse(callbackGroup.matches("payments:12:item.3"));
+    }
+}
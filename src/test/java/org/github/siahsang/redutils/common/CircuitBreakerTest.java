@@ -0,0 +1,80 @@
+package org.github.siahsang.redutils.common;
+
+import org.github.siahsang.redutils.AbstractBaseTest;
+import org.github.siahsang.redutils.exception.CircuitBreakerOpenException;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import redis.clients.jedis.exceptions.JedisConnectionException;
+import redis.clients.jedis.exceptions.JedisDataException;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * @author Javad Alimohammadi
+ */
+
+class CircuitBreakerTest extends AbstractBaseTest {
+
+    @Test
+    void test_checkPermission_WHEN_connection_errors_reach_threshold_THEN_it_SHOULD_fail_fast_until_probe_succeeds() throws Exception {
+        //************************
+        //          Given
+        //************************
+        AtomicBoolean redisIsUp = new AtomicBoolean(false);
+        AtomicInteger probeCount = new AtomicInteger();
+        CircuitBreaker circuitBreaker = new CircuitBreaker(50, 4, 100, () -> {
+            probeCount.incrementAndGet();
+            if (!redisIsUp.get()) {
+                throw new JedisConnectionException("Connection refused");
+            }
+        }, Runnable::run);
+
+        //************************
+        //          WHEN
+        //************************
+        circuitBreaker.onSuccess();
+        circuitBreaker.onSuccess();
+        circuitBreaker.onFailure(new JedisConnectionException("Read timed out"));
+        CircuitBreaker.State stateBeforeThreshold = circuitBreaker.getState();
+        circuitBreaker.onFailure(new JedisConnectionException("Read timed out"));
+        CircuitBreaker.State stateAfterThreshold = circuitBreaker.getState();
+
+        //************************
+        //          THEN
+        //************************
+        Assertions.assertEquals(CircuitBreaker.State.CLOSED, stateBeforeThreshold);
+        Assertions.assertEquals(CircuitBreaker.State.OPEN, stateAfterThreshold);
+        Assertions.assertThrows(CircuitBreakerOpenException.class, circuitBreaker::checkPermission);
+
+        sleepMillis(500);
+        Assertions.assertTrue(probeCount.get() >= 2);
+        Assertions.assertEquals(CircuitBreaker.State.OPEN, circuitBreaker.getState());
+
+        redisIsUp.set(true);
+        sleepMillis(500);
+        Assertions.assertEquals(CircuitBreaker.State.CLOSED, circuitBreaker.getState());
+        circuitBreaker.checkPermission();
+    }
+
+    @Test
+    void test_onFailure_WHEN_redis_replies_with_error_THEN_circuit_SHOULD_stay_closed() throws Exception {
+        //************************
+        //          Given
+        //************************
+        CircuitBreaker circuitBreaker = new CircuitBreaker(50, 2, 100, () -> {
+        }, Runnable::run);
+
+        //************************
+        //          WHEN
+        //************************
+        for (int i = 0; i < 10; i++) {
+            circuitBreaker.onFailure(new JedisDataException("ERR wrong number of arguments"));
+        }
+
+        //************************
+        //          THEN
+        //************************
+        Assertions.assertEquals(CircuitBreaker.State.CLOSED, circuitBreaker.getState());
+    }
+}
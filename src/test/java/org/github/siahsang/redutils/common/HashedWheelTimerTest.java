@@ -0,0 +1,69 @@
+package org.github.siahsang.redutils.common;
+
+import org.awaitility.Awaitility;
+import org.github.siahsang.redutils.AbstractBaseTest;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * @author Javad Alimohammadi
+ */
+
+class HashedWheelTimerTest extends AbstractBaseTest {
+
+    @Test
+    void test_schedule_WHEN_elements_expire_in_the_same_tick_THEN_they_SHOULD_be_processed_in_one_batch() throws Exception {
+        //************************
+        //          Given
+        //************************
+        HashedWheelTimer timer = new HashedWheelTimer("test-timer", 100, 8);
+        List<List<String>> batches = new CopyOnWriteArrayList<>();
+        HashedWheelTimer.BatchTask<String> task = batches::add;
+
+        //************************
+        //          WHEN
+        //************************
+        timer.schedule(task, "lock1", 250, TimeUnit.MILLISECONDS);
+        timer.schedule(task, "lock2", 250, TimeUnit.MILLISECONDS);
+        timer.schedule(task, "lock3", 250, TimeUnit.MILLISECONDS);
+
+        //************************
+        //          THEN
+        //************************
+        Awaitility.await("check elements are expired").atMost(Duration.ofSeconds(2)).until(() -> !batches.isEmpty());
+        Assertions.assertEquals(1, batches.size());
+        Assertions.assertEquals(3, batches.get(0).size());
+    }
+
+    @Test
+    void test_schedule_WHEN_timeout_is_cancelled_THEN_element_SHOULD_NOT_be_processed() throws Exception {
+        //************************
+        //          Given
+        //************************
+        HashedWheelTimer timer = new HashedWheelTimer("test-timer", 10, 4);
+        List<String> expiredElements = new CopyOnWriteArrayList<>();
+        HashedWheelTimer.BatchTask<String> task = expiredElements::addAll;
+
+        //************************
+        //          WHEN
+        //************************
+        HashedWheelTimer.Timeout<String> cancelledTimeout = timer.schedule(task, "lock1", 100, TimeUnit.MILLISECONDS);
+        timer.schedule(task, "lock2", 100, TimeUnit.MILLISECONDS);
+        boolean cancelled = cancelledTimeout.cancel();
+
+        //************************
+        //          THEN
+        //************************
+        Awaitility.await("check element is expired").atMost(Duration.ofSeconds(2)).until(() -> !expiredElements.isEmpty());
+        sleepMillis(100);
+        Assertions.assertTrue(cancelled);
+        Assertions.assertEquals(1, expiredElements.size());
+        Assertions.assertEquals("lock2", expiredElements.get(0));
+    }
+
+}
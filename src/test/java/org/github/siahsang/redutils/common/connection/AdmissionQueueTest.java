@@ -0,0 +1,102 @@
+package org.github.siahsang.redutils.common.connection;
+
+import org.github.siahsang.redutils.AbstractBaseTest;
+import org.github.siahsang.redutils.common.LoadSheddingPolicy;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+
+/**
+ * @author Javad Alimohammadi
+ */
+
+class AdmissionQueueTest extends AbstractBaseTest {
+
+    @Test
+    void test_admit_WHEN_capacity_is_given_back_THEN_queued_callers_SHOULD_reserve_in_arrival_order() throws Exception {
+        //************************
+        //          Given
+        //************************
+        AdmissionQueue admissionQueue = new AdmissionQueue(10, 5000, LoadSheddingPolicy.REJECT_NEW);
+        AtomicInteger capacity = new AtomicInteger(0);
+        BooleanSupplier tryReserve = () -> capacity.getAndUpdate(current -> current > 0 ? current - 1 : 0) > 0;
+        List<Integer> admittedCallers = new CopyOnWriteArrayList<>();
+        List<CompletableFuture<Void>> callers = new CopyOnWriteArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            final int callerId = i;
+            callers.add(CompletableFuture.runAsync(() -> {
+                try {
+                    if (admissionQueue.admit(tryReserve)) {
+                        admittedCallers.add(callerId);
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }));
+            // keep the arrival order
+            while (admissionQueue.getQueueDepth() != i + 1) {
+                sleepMillis(5);
+            }
+        }
+
+        //************************
+        //          WHEN
+        //************************
+        for (int i = 0; i < 3; i++) {
+            capacity.incrementAndGet();
+            admissionQueue.onCapacityReleased();
+            sleepMillis(100);
+        }
+        CompletableFuture.allOf(callers.toArray(new CompletableFuture[0])).join();
+
+        //************************
+        //          THEN
+        //************************
+        Assertions.assertEquals(Arrays.asList(0, 1, 2), admittedCallers);
+        Assertions.assertEquals(3, admissionQueue.getMaxQueueDepth());
+        Assertions.assertEquals(0, admissionQueue.getQueueDepth());
+        Assertions.assertEquals(3, admissionQueue.getAdmittedCount());
+    }
+
+    @Test
+    void test_admit_WHEN_queue_is_full_THEN_new_caller_SHOULD_be_rejected_at_once() throws Exception {
+        //************************
+        //          Given
+        //************************
+        AdmissionQueue admissionQueue = new AdmissionQueue(1, 300, LoadSheddingPolicy.REJECT_NEW);
+        BooleanSupplier noCapacity = () -> false;
+        CompletableFuture<Boolean> waitingCaller = CompletableFuture.supplyAsync(() -> {
+            try {
+                return admissionQueue.admit(noCapacity);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return false;
+            }
+        });
+        while (admissionQueue.getQueueDepth() != 1) {
+            sleepMillis(5);
+        }
+
+        //************************
+        //          WHEN
+        //************************
+        long startTime = System.currentTimeMillis();
+        boolean admitted = admissionQueue.admit(noCapacity);
+        long rejectionTime = System.currentTimeMillis() - startTime;
+
+        //************************
+        //          THEN
+        //************************
+        Assertions.assertFalse(admitted);
+        Assertions.assertTrue(rejectionTime < 100);
+        Assertions.assertFalse(waitingCaller.join());
+        Assertions.assertEquals(1, admissionQueue.getRejectedCount());
+        Assertions.assertEquals(1, admissionQueue.getTimedOutCount());
+    }
+}
@@ -0,0 +1,86 @@
+package org.github.siahsang.redutils.common.connection;
+
+import org.github.siahsang.redutils.AbstractBaseTest;
+import org.github.siahsang.redutils.exception.BadRequestException;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * @author Javad Alimohammadi
+ */
+
+class ConnectionReservationsTest extends AbstractBaseTest {
+
+    @Test
+    void test_free_WHEN_connections_are_used_THEN_capacity_SHOULD_be_given_back() throws Exception {
+        //************************
+        //          Given
+        //************************
+        ConnectionReservations<String> reservations = new ConnectionReservations<>(5);
+        List<String> closedConnections = new ArrayList<>();
+        Assertions.assertTrue(reservations.tryReserve(2));
+        reservations.add("owner1", Arrays.asList("connection1", "connection2"));
+
+        //************************
+        //          WHEN
+        //************************
+        String connection = reservations.borrow("owner1");
+        Assertions.assertTrue(reservations.putBack("owner1", connection));
+        reservations.free("owner1", closedConnections::add);
+
+        //************************
+        //          THEN
+        //************************
+        Assertions.assertEquals(5, reservations.remainingCapacity());
+        Assertions.assertEquals(2, closedConnections.size());
+        Assertions.assertThrows(BadRequestException.class, () -> reservations.borrow("owner1"));
+    }
+
+    @Test
+    void test_putBack_WHEN_reservation_is_freed_while_connection_is_borrowed_THEN_caller_SHOULD_own_connection() throws Exception {
+        //************************
+        //          Given
+        //************************
+        ConnectionReservations<String> reservations = new ConnectionReservations<>(5);
+        List<String> closedConnections = new ArrayList<>();
+        Assertions.assertTrue(reservations.tryReserve(1));
+        reservations.add("owner1", Arrays.asList("connection1"));
+        String connection = reservations.borrow("owner1");
+
+        //************************
+        //          WHEN
+        //************************
+        reservations.free("owner1", closedConnections::add);
+        boolean putBack = reservations.putBack("owner1", connection);
+
+        //************************
+        //          THEN
+        //************************
+        Assertions.assertFalse(putBack);
+        Assertions.assertTrue(closedConnections.isEmpty());
+        Assertions.assertEquals(5, reservations.remainingCapacity());
+    }
+
+    @Test
+    void test_tryReserve_WHEN_capacity_is_not_enough_THEN_it_SHOULD_NOT_change() throws Exception {
+        //************************
+        //          Given
+        //************************
+        ConnectionReservations<String> reservations = new ConnectionReservations<>(3);
+
+        //************************
+        //          WHEN
+        //************************
+        boolean reserved = reservations.tryReserve(4);
+
+        //************************
+        //          THEN
+        //************************
+        Assertions.assertFalse(reserved);
+        Assertions.assertEquals(3, reservations.remainingCapacity());
+    }
+}
@@ -0,0 +1,70 @@
+package org.github.siahsang.redutils.common.connection;
+
+import org.github.siahsang.redutils.AbstractBaseTest;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+
+/**
+ * @author Javad Alimohammadi
+ */
+
+class ElasticPoolSizerTest extends AbstractBaseTest {
+
+    @Test
+    void test_nextIdleTarget_WHEN_load_goes_up_and_down_THEN_pool_SHOULD_grow_at_once_and_shrink_gradually() throws Exception {
+        //************************
+        //          Given
+        //************************
+        final int minPoolSize = 2;
+        final int maxPoolSize = 40;
+
+        //************************
+        //          WHEN
+        //************************
+        int burstTarget = ElasticPoolSizer.nextIdleTarget(minPoolSize, 20, minPoolSize, maxPoolSize);
+        int tooHighTarget = ElasticPoolSizer.nextIdleTarget(burstTarget, 100, minPoolSize, maxPoolSize);
+        int firstQuietTarget = ElasticPoolSizer.nextIdleTarget(burstTarget, 0, minPoolSize, maxPoolSize);
+        int quietTarget = firstQuietTarget;
+        for (int i = 0; i < 10; i++) {
+            quietTarget = ElasticPoolSizer.nextIdleTarget(quietTarget, 0, minPoolSize, maxPoolSize);
+        }
+
+        //************************
+        //          THEN
+        //************************
+        Assertions.assertEquals(25, burstTarget);
+        Assertions.assertEquals(maxPoolSize, tooHighTarget);
+        Assertions.assertEquals(14, firstQuietTarget);
+        Assertions.assertEquals(minPoolSize, quietTarget);
+    }
+
+    @Test
+    void test_takePeakReserved_WHEN_connections_are_freed_THEN_peak_SHOULD_be_kept_until_it_is_taken() throws Exception {
+        //************************
+        //          Given
+        //************************
+        ConnectionReservations<String> reservations = new ConnectionReservations<>(3);
+        Assertions.assertTrue(reservations.tryReserve(2));
+        reservations.add("owner1", Arrays.asList("connection1", "connection2"));
+        Assertions.assertTrue(reservations.tryReserve(1));
+        reservations.add("owner2", Arrays.asList("connection3"));
+
+        //************************
+        //          WHEN
+        //************************
+        boolean reservedOverCapacity = reservations.tryReserve(1);
+        reservations.free("owner1", connection -> {
+        });
+
+        //************************
+        //          THEN
+        //************************
+        Assertions.assertFalse(reservedOverCapacity);
+        Assertions.assertEquals(3, reservations.takePeakReserved());
+        Assertions.assertEquals(1, reservations.takePeakReserved());
+        Assertions.assertEquals(1, reservations.takeFailedReservations());
+        Assertions.assertEquals(0, reservations.takeFailedReservations());
+    }
+}
@@ -0,0 +1,96 @@
+package org.github.siahsang.redutils.common.connection;
+
+import org.github.siahsang.redutils.AbstractBaseTest;
+import org.github.siahsang.redutils.exception.RedisReplyException;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Queue;
+
+/**
+ * @author Javad Alimohammadi
+ */
+
+class RespReaderTest extends AbstractBaseTest {
+
+    @Test
+    void test_next_WHEN_reply_is_received_in_parts_THEN_it_SHOULD_be_returned_when_complete() throws Exception {
+        //************************
+        //          Given
+        //************************
+        RespReader respReader = new RespReader();
+        ChunkedChannel channel = new ChunkedChannel("*3\r\n:1\r\n$5\r\nhel", "lo\r\n$-1\r\n");
+
+        //************************
+        //          WHEN
+        //************************
+        respReader.readFrom(channel);
+        Object firstReply = respReader.next();
+        respReader.readFrom(channel);
+        Object secondReply = respReader.next();
+
+        //************************
+        //          THEN
+        //************************
+        Assertions.assertSame(RespReader.INCOMPLETE, firstReply);
+        Assertions.assertEquals(Arrays.asList(1L, "hello", null), secondReply);
+        Assertions.assertSame(RespReader.INCOMPLETE, respReader.next());
+    }
+
+    @Test
+    void test_next_WHEN_multiple_replies_are_received_together_THEN_they_SHOULD_be_returned_in_order() throws Exception {
+        //************************
+        //          Given
+        //************************
+        RespReader respReader = new RespReader();
+        ChunkedChannel channel = new ChunkedChannel("+OK\r\n-NOSCRIPT No matching script\r\n:-2\r\n");
+
+        //************************
+        //          WHEN
+        //************************
+        respReader.readFrom(channel);
+
+        //************************
+        //          THEN
+        //************************
+        Assertions.assertEquals("OK", respReader.next());
+        Object errorReply = respReader.next();
+        Assertions.assertTrue(errorReply instanceof RedisReplyException);
+        Assertions.assertEquals("NOSCRIPT No matching script", ((RedisReplyException) errorReply).getMessage());
+        Assertions.assertEquals(-2L, respReader.next());
+    }
+
+    private static final class ChunkedChannel implements ReadableByteChannel {
+        private final Queue<byte[]> chunks = new ArrayDeque<>();
+
+        private ChunkedChannel(String... chunks) {
+            for (String chunk : chunks) {
+                this.chunks.add(chunk.getBytes(StandardCharsets.UTF_8));
+            }
+        }
+
+        @Override
+        public int read(ByteBuffer dst) {
+            byte[] chunk = chunks.poll();
+            if (chunk == null) {
+                return -1;
+            }
+            dst.put(chunk);
+            return chunk.length;
+        }
+
+        @Override
+        public boolean isOpen() {
+            return true;
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+}
@@ -0,0 +1,55 @@
+package org.github.siahsang.redutils.common.redis;
+
+import org.github.siahsang.redutils.exception.DeadlineExceededException;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * @author Javad Alimohammadi
+ */
+
+class RedisCommandExecutorTest {
+
+    @Test
+    void test_evalAndWait_WHEN_reply_does_not_arrive_before_time_out_THEN_it_SHOULD_throw_deadline_exceeded() {
+        //************************
+        //          Given
+        //************************
+        AtomicInteger sentCommands = new AtomicInteger();
+        RedisCommandExecutor neverReplies = new RedisCommandExecutor() {
+            @Override
+            public CompletableFuture<Object> eval(RedisScript script, int keyCount, byte[]... params) {
+                sentCommands.incrementAndGet();
+                return new CompletableFuture<>();
+            }
+
+            @Override
+            public boolean isReservationRequired() {
+                return false;
+            }
+
+            @Override
+            public void shutdown() {
+            }
+        };
+
+        //************************
+        //          WHEN
+        //************************
+        long startTime = System.currentTimeMillis();
+        Assertions.assertThrows(DeadlineExceededException.class,
+                () -> neverReplies.evalAndWait("owner", 100, LuaScript.GET_LOCK, 1, new byte[0]));
+        long elapsedMillis = System.currentTimeMillis() - startTime;
+
+        //************************
+        //          THEN
+        //************************
+        Assertions.assertTrue(elapsedMillis >= 100 && elapsedMillis < 1000);
+        Assertions.assertThrows(DeadlineExceededException.class,
+                () -> neverReplies.evalAndWait("owner", 0, LuaScript.GET_LOCK, 1, new byte[0]));
+        Assertions.assertEquals(1, sentCommands.get());
+    }
+}
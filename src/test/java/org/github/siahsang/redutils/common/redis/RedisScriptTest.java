@@ -0,0 +1,26 @@
+package org.github.siahsang.redutils.common.redis;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+/**
+ * @author Javad Alimohammadi
+ */
+
+class RedisScriptTest {
+
+    @Test
+    void test_sha_SHOULD_be_the_same_as_redis_script_load() throws Exception {
+        //************************
+        //          Given
+        //************************
+        RedisScript redisScript = new RedisScript("return 1");
+
+        //************************
+        //        WHEN - THEN
+        //************************
+        // same value that 'SCRIPT LOAD "return 1"' returns
+        Assertions.assertEquals("e0e1f9fabfc9d4800c877a703b823ac0578ff8db", redisScript.getSha());
+    }
+
+}
@@ -0,0 +1,175 @@
+package org.github.siahsang.redutils.lock;
+
+import org.awaitility.Awaitility;
+import org.github.siahsang.redutils.AbstractBaseTest;
+import org.github.siahsang.redutils.common.WakePolicy;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * @author Javad Alimohammadi
+ */
+
+class ChannelListenerTest extends AbstractBaseTest {
+
+    @Test
+    void test_onGettingNewMessage_WHEN_policy_is_wake_all_THEN_all_waiters_SHOULD_be_woken_up() throws Exception {
+        //************************
+        //          Given
+        //************************
+        final ChannelListener channelListener = new TestChannelListener(WakePolicy.WAKE_ALL);
+        final AtomicInteger wokenWaiters = new AtomicInteger();
+        final CountDownLatch finished = startWaiters(channelListener, 4, wokenWaiters, false);
+        sleepMillis(200);
+
+        //************************
+        //          WHEN
+        //************************
+        channelListener.onGettingNewMessage();
+
+        //************************
+        //          THEN
+        //************************
+        Awaitility.await("check all waiters are woken up").atMost(Duration.ofSeconds(2)).until(() -> wokenWaiters.get() == 4);
+        Assertions.assertTrue(finished.await(2, TimeUnit.SECONDS));
+    }
+
+    @Test
+    void test_onGettingNewMessage_WHEN_woken_waiter_leaves_without_lock_THEN_next_waiter_SHOULD_be_woken_up() throws Exception {
+        //************************
+        //          Given
+        //************************
+        final ChannelListener channelListener = new TestChannelListener(WakePolicy.WAKE_ONE);
+        final AtomicInteger wokenWaiters = new AtomicInteger();
+        final CountDownLatch finished = startWaiters(channelListener, 3, wokenWaiters, false);
+        sleepMillis(200);
+
+        //************************
+        //          WHEN
+        //************************
+        channelListener.onGettingNewMessage();
+
+        //************************
+        //          THEN
+        //************************
+        Assertions.assertTrue(finished.await(2, TimeUnit.SECONDS));
+        Assertions.assertEquals(3, wokenWaiters.get());
+        Assertions.assertTrue(channelListener.isSubscribersEmpty());
+    }
+
+    @Test
+    void test_onGettingNewMessage_WHEN_woken_waiter_gets_lock_THEN_other_waiters_SHOULD_keep_waiting() throws Exception {
+        //************************
+        //          Given
+        //************************
+        final ChannelListener channelListener = new TestChannelListener(WakePolicy.WAKE_ONE);
+        final AtomicInteger wokenWaiters = new AtomicInteger();
+        startWaiters(channelListener, 3, wokenWaiters, true);
+        sleepMillis(200);
+
+        //************************
+        //          WHEN
+        //************************
+        channelListener.onGettingNewMessage();
+
+        //************************
+        //          THEN
+        //************************
+        Awaitility.await("check one waiter is woken up").atMost(Duration.ofSeconds(2)).until(() -> wokenWaiters.get() == 1);
+        sleepMillis(200);
+        Assertions.assertEquals(1, wokenWaiters.get());
+    }
+
+    @Test
+    void test_waitForGettingNotificationFromChannel_WHEN_message_is_received_before_waiting_THEN_it_SHOULD_return_immediately() throws Exception {
+        //************************
+        //          Given
+        //************************
+        final ChannelListener channelListener = new TestChannelListener(WakePolicy.WAKE_ONE);
+        channelListener.addSubscriber(Thread.currentThread().getId());
+
+        //************************
+        //          WHEN
+        //************************
+        channelListener.onGettingNewMessage();
+        long startTime = System.currentTimeMillis();
+        channelListener.waitForGettingNotificationFromChannel(5000);
+
+        //************************
+        //          THEN
+        //************************
+        Assertions.assertTrue(System.currentTimeMillis() - startTime < 1000);
+        channelListener.removeSubscriber(Thread.currentThread().getId(), true);
+    }
+
+    @Test
+    void test_waitForNotificationAsync_WHEN_message_is_received_THEN_future_SHOULD_be_completed_and_time_out_SHOULD_complete_next_wait() throws Exception {
+        //************************
+        //          Given
+        //************************
+        final ChannelListener channelListener = new TestChannelListener(WakePolicy.WAKE_ONE);
+        final long subscriberId = -1;
+        channelListener.addSubscriber(subscriberId);
+
+        //************************
+        //          WHEN
+        //************************
+        CompletableFuture<Void> notified = channelListener.waitForNotificationAsync(subscriberId, 10_000);
+        boolean completedBeforeMessage = notified.isDone();
+        channelListener.onGettingNewMessage();
+        long startTime = System.currentTimeMillis();
+        channelListener.waitForNotificationAsync(subscriberId, 100).get(2, TimeUnit.SECONDS);
+
+        //************************
+        //          THEN
+        //************************
+        Assertions.assertFalse(completedBeforeMessage);
+        Assertions.assertTrue(notified.isDone());
+        Assertions.assertTrue(System.currentTimeMillis() - startTime >= 50);
+        channelListener.removeSubscriber(subscriberId, true);
+        Assertions.assertTrue(channelListener.isSubscribersEmpty());
+    }
+
+    private CountDownLatch startWaiters(final ChannelListener channelListener, final int count,
+                                       final AtomicInteger wokenWaiters, final boolean lockAcquired) {
+        final CountDownLatch finished = new CountDownLatch(count);
+        for (int i = 0; i < count; i++) {
+            Thread thread = new Thread(() -> {
+                final long threadId = Thread.currentThread().getId();
+                channelListener.addSubscriber(threadId);
+                try {
+                    channelListener.waitForGettingNotificationFromChannel(10_000);
+                    wokenWaiters.incrementAndGet();
+                    channelListener.removeSubscriber(threadId, lockAcquired);
+                    finished.countDown();
+                } catch (InterruptedException ignored) {
+                    Thread.currentThread().interrupt();
+                }
+            });
+            thread.setDaemon(true);
+            thread.start();
+        }
+
+        return finished;
+    }
+
+    private static final class TestChannelListener extends ChannelListener {
+        private TestChannelListener(WakePolicy wakePolicy) {
+            super(wakePolicy);
+        }
+
+        @Override
+        public void shutdown() {
+        }
+
+        @Override
+        public void startListening() {
+        }
+    }
+}
@@ -0,0 +1,42 @@
+package org.github.siahsang.redutils.lock;
+
+import org.github.siahsang.redutils.AbstractBaseTest;
+import org.github.siahsang.redutils.common.RedUtilsConfig;
+import org.github.siahsang.redutils.common.connection.JedisConnectionManager;
+import org.github.siahsang.redutils.exception.ChannelSubscriptionException;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+/**
+ * @author Javad Alimohammadi
+ */
+
+class JedisLockChannelTest extends AbstractBaseTest {
+
+    @Test
+    void test_subscribe_WHEN_redis_is_not_reachable_THEN_caller_SHOULD_get_error_and_channel_SHOULD_not_remain() {
+        //************************
+        //          Given
+        //************************
+        final RedUtilsConfig redUtilsConfig = new RedUtilsConfig.RedUtilsConfigBuilder()
+                .hostAddress("127.0.0.1")
+                .port(1)
+                .readTimeOutMillis(1_000)
+                .build();
+        final JedisLockChannel lockChannel = new JedisLockChannel(new JedisConnectionManager(redUtilsConfig),
+                redUtilsConfig.getUnlockedMessagePattern(), redUtilsConfig.getReadTimeOutMillis());
+
+        //************************
+        //          WHEN
+        //************************
+        Assertions.assertThrows(ChannelSubscriptionException.class, () -> lockChannel.subscribe("lock1", 1));
+
+        //************************
+        //          THEN
+        //************************
+        // the failed listener is not reused, so the next subscriber tries again and gets the error too
+        Assertions.assertThrows(ChannelSubscriptionException.class, () -> lockChannel.subscribe("lock1", 2));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> lockChannel.waitForNotification("lock1", 10));
+        lockChannel.shutdown();
+    }
+}
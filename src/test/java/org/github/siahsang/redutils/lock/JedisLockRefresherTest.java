@@ -0,0 +1,54 @@
+package org.github.siahsang.redutils.lock;
+
+import org.awaitility.Awaitility;
+import org.github.siahsang.redutils.AbstractBaseTest;
+import org.github.siahsang.redutils.common.HashedWheelTimer;
+import org.github.siahsang.redutils.common.RedUtilsConfig;
+import org.github.siahsang.redutils.common.connection.JedisConnectionManager;
+import org.github.siahsang.redutils.replica.JedisReplicaManager;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * @author Javad Alimohammadi
+ */
+
+class JedisLockRefresherTest extends AbstractBaseTest {
+
+    @Test
+    void test_tryStop_WHEN_stale_owner_stops_after_lock_is_acquired_again_THEN_new_owner_SHOULD_still_be_refreshed() {
+        //************************
+        //          Given
+        //************************
+        // nothing listens on the port, so every refresh fails and completes the status of the refreshed lock
+        final RedUtilsConfig redUtilsConfig = new RedUtilsConfig.RedUtilsConfigBuilder()
+                .hostAddress("127.0.0.1")
+                .port(1)
+                .readTimeOutMillis(1_000)
+                .leaseTimeMillis(300)
+                .build();
+        final JedisConnectionManager connectionManager = new JedisConnectionManager(redUtilsConfig);
+        final JedisLockRefresher lockRefresher = new JedisLockRefresher(redUtilsConfig,
+                new JedisReplicaManager(connectionManager, 0, 0, 0), connectionManager,
+                new HashedWheelTimer("test-timer", 10, 64), Runnable::run);
+
+        lockRefresher.start("lock1", "stale-owner");
+        final CompletableFuture<Void> newOwnerStatus = lockRefresher.start("lock1", "new-owner");
+
+        //************************
+        //          WHEN
+        //************************
+        lockRefresher.tryStop("lock1", "stale-owner");
+
+        //************************
+        //          THEN
+        //************************
+        Awaitility.await("check lock of new owner is refreshed").atMost(Duration.ofSeconds(3))
+                .until(newOwnerStatus::isDone);
+        Assertions.assertTrue(newOwnerStatus.isCompletedExceptionally());
+        lockRefresher.shutdown();
+    }
+}
@@ -0,0 +1,27 @@
+package org.github.siahsang.redutils.lock;
+
+import org.github.siahsang.redutils.AbstractBaseTest;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+
+/**
+ * @author Javad Alimohammadi
+ */
+
+class KeyspaceNotificationTest extends AbstractBaseTest {
+
+    @ParameterizedTest
+    @CsvSource({"'', false", "Ex, false", "Kg, false", "Kx, false", "Kgx, true", "xgK, true", "KA, true", "KEA, true"})
+    void test_isEnabled_WHEN_flags_are_given_THEN_del_and_expired_events_SHOULD_be_detected(String flags, boolean expected) {
+        //************************
+        //          WHEN
+        //************************
+        boolean enabled = KeyspaceNotification.isEnabled(flags);
+
+        //************************
+        //          THEN
+        //************************
+        Assertions.assertEquals(expected, enabled);
+    }
+}
@@ -0,0 +1,56 @@
+package org.github.siahsang.redutils.lock;
+
+import org.github.siahsang.redutils.AbstractBaseTest;
+import org.github.siahsang.redutils.common.HashedWheelTimer;
+import org.github.siahsang.redutils.common.RedUtilsConfig;
+import org.github.siahsang.redutils.common.connection.JedisConnectionManager;
+import org.github.siahsang.redutils.replica.JedisReplicaManager;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * @author Javad Alimohammadi
+ */
+
+class SessionLockRefresherTest extends AbstractBaseTest {
+
+    @Test
+    void test_tryStop_WHEN_stale_owner_stops_after_session_is_renewed_THEN_lock_of_new_owner_SHOULD_still_be_held() {
+        //************************
+        //          Given
+        //************************
+        final RedUtilsConfig redUtilsConfig = new RedUtilsConfig.RedUtilsConfigBuilder()
+                .hostAddress("127.0.0.1")
+                .port(1)
+                .build();
+        final JedisConnectionManager connectionManager = new JedisConnectionManager(redUtilsConfig);
+        // heartbeats are never run, so nothing is sent to Redis
+        final SessionLockRefresher lockRefresher = new SessionLockRefresher(redUtilsConfig, "session1",
+                new JedisReplicaManager(connectionManager, 0, 0, 0), connectionManager,
+                new HashedWheelTimer("test-timer", 10, 64), heartbeat -> {
+        });
+
+        final SessionLockRefresher.Incarnation expiredIncarnation = lockRefresher.getIncarnation();
+        Assertions.assertTrue(lockRefresher.register("lock1", expiredIncarnation,
+                "session1|stale-owner|" + expiredIncarnation.getNumber()));
+        Assertions.assertTrue(lockRefresher.onExpired(expiredIncarnation));
+
+        final SessionLockRefresher.Incarnation newIncarnation = lockRefresher.getIncarnation();
+        Assertions.assertTrue(lockRefresher.register("lock1", newIncarnation,
+                "session1|new-owner|" + newIncarnation.getNumber()));
+
+        //************************
+        //          WHEN
+        //************************
+        lockRefresher.tryStop("lock1", "stale-owner");
+
+        //************************
+        //          THEN
+        //************************
+        final CompletableFuture<Void> newOwnerStatus = lockRefresher.start("lock1", "new-owner");
+        Assertions.assertFalse(newOwnerStatus.isDone());
+        lockRefresher.shutdown();
+    }
+}
@@ -0,0 +1,96 @@
+package org.github.siahsang.redutils.lock;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * @author Javad Alimohammadi
+ */
+
+class WaitStrategyTest {
+
+    @Test
+    void test_delayMillis_WHEN_attempts_grow_THEN_delay_SHOULD_grow_up_to_max_delay_within_jitter() {
+        //************************
+        //          Given
+        //************************
+        final BackoffPollingWaitStrategy waitStrategy = new BackoffPollingWaitStrategy(10, 100, 2, 0.5);
+
+        //************************
+        //          WHEN
+        //************************
+        final long firstDelay = waitStrategy.delayMillis(1, 0);
+        final long thirdDelay = waitStrategy.delayMillis(3, 0);
+        final long lastDelay = waitStrategy.delayMillis(20, 0);
+        final long jitteredDelay = waitStrategy.delayMillis(20, 0.999);
+
+        //************************
+        //          THEN
+        //************************
+        Assertions.assertEquals(10, firstDelay);
+        Assertions.assertEquals(40, thirdDelay);
+        Assertions.assertEquals(100, lastDelay);
+        Assertions.assertTrue(jitteredDelay >= 50 && jitteredDelay < 100, "jittered delay is " + jitteredDelay);
+    }
+
+    @Test
+    void test_await_WHEN_spin_attempts_are_used_THEN_waiter_SHOULD_subscribe_only_once() throws Exception {
+        //************************
+        //          Given
+        //************************
+        final CountingLockChannel lockChannel = new CountingLockChannel();
+        final WaitStrategy waitStrategy = new SpinThenSubscribeWaitStrategy(2, 10, TimeUnit.MICROSECONDS);
+        final WaitStrategy.Waiting waiting = waitStrategy.start("lock", lockChannel);
+
+        //************************
+        //          WHEN
+        //************************
+        waiting.await(1, 1000, 1000);
+        waiting.await(2, 1000, 1000);
+        final int subscriptionsWhileSpinning = lockChannel.subscriptions.get();
+        waiting.await(3, 1000, 1000);
+        waiting.await(4, 1000, 1000);
+        waiting.finish(true);
+
+        //************************
+        //          THEN
+        //************************
+        Assertions.assertEquals(0, subscriptionsWhileSpinning);
+        Assertions.assertEquals(1, lockChannel.subscriptions.get());
+        // the first attempt after subscribing does not wait for any notification
+        Assertions.assertEquals(1, lockChannel.notificationWaits.get());
+        Assertions.assertEquals(1, lockChannel.unSubscriptions.get());
+    }
+
+    private static class CountingLockChannel implements LockChannel {
+        private final AtomicInteger subscriptions = new AtomicInteger();
+
+        private final AtomicInteger notificationWaits = new AtomicInteger();
+
+        private final AtomicInteger unSubscriptions = new AtomicInteger();
+
+        @Override
+        public ChannelListener subscribe(String lockName, long subscriberId) {
+            subscriptions.incrementAndGet();
+            return null;
+        }
+
+        @Override
+        public void waitForNotification(String lockName, long timeOutMillis) {
+            notificationWaits.incrementAndGet();
+        }
+
+        @Override
+        public void waitForNotification(ChannelListener channelListener, long timeOutMillis) {
+            notificationWaits.incrementAndGet();
+        }
+
+        @Override
+        public void unSubscribe(String lockName, long subscriberId, boolean lockAcquired) {
+            unSubscriptions.incrementAndGet();
+        }
+    }
+}